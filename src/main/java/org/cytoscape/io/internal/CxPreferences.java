@@ -2,9 +2,14 @@ package org.cytoscape.io.internal;
 
 import java.util.Properties;
 
+import org.cytoscape.io.internal.cxio.HeapEstimate;
 import org.cytoscape.property.CyProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class CxPreferences {
+	private static final Logger logger = LoggerFactory.getLogger(CxPreferences.class);
+
 	public static final String VIEW_THRESHOLD = "viewThreshold";
 	private static final int DEF_VIEW_THRESHOLD = 200000;
 	
@@ -31,6 +36,41 @@ public class CxPreferences {
 				  : CreateViewEnum.AUTO;
 	}
 	
+	/**
+	 * Decide whether a view should be created for a network of the given size (nodes + edges).
+	 * An explicit choice from the reader wins over the cx.createView preference. With the AUTO
+	 * preference, the network also has to be under the view threshold and its view is expected
+	 * to fit in the heap that is left.
+	 * @param explicitCreateView
+	 * @param networkSize
+	 * @return
+	 */
+	public static boolean shouldCreateView(Boolean explicitCreateView, long networkSize) {
+		final long viewThreshold = getViewThreshold();
+		final CreateViewEnum createViewPreference = getCreateView();
+		System.out.println("View Preference: " + createViewPreference);
+		System.out.println("Explicit Create View: " + explicitCreateView);
+
+		if (explicitCreateView != null) {
+			return explicitCreateView.booleanValue();
+		}
+		if (createViewPreference == CreateViewEnum.NEVER) {
+			return false;
+		}
+		if (createViewPreference == CreateViewEnum.ALWAYS) {
+			return true;
+		}
+		if (networkSize >= viewThreshold) {
+			return false;
+		}
+		if (!HeapEstimate.fitsView(networkSize)) {
+			logger.warn("Not creating a view: " + (HeapEstimate.forView(networkSize) >> 20) + " MB needed, "
+					+ (HeapEstimate.available() >> 20) + " MB available");
+			return false;
+		}
+		return true;
+	}
+
 	public static final String APPLY_LAYOUT_PROPERTY = "cx.applyLayout";
 	
 	public enum ApplyLayoutEnum
@@ -54,6 +94,76 @@ public class CxPreferences {
 		return getIntegerProperty(LARGE_LAYOUT_THRESHOLD_PROPERTY, DEF_LARGE_LAYOUT_THRESHOLD);
 	}
 	
+	public static final String STREAMING_IMPORT_PROPERTY = "cx.streamingImport";
+
+	/**
+	 * When true, single networks are built directly from the CX stream instead of being staged
+	 * in NiceCX/NiceCy objects first. Collections are always imported through the staged path.
+	 * @return
+	 */
+	public static boolean getStreamingImport() {
+		return Boolean.parseBoolean(getProperty(STREAMING_IMPORT_PROPERTY));
+	}
+
+	public static final String TRUSTED_IMPORT_PROPERTY = "cx.trustedImport";
+
+	/**
+	 * When true, the attribute values of a CX2 network are only checked against their declared
+	 * types for the first element with a given set of attributes.
+	 * @return
+	 */
+	public static boolean getTrustedImport() {
+		return Boolean.parseBoolean(getProperty(TRUSTED_IMPORT_PROPERTY));
+	}
+
+	public static final String PARALLEL_IMPORT_PROPERTY = "cx.parallelImport";
+
+	/**
+	 * When true, the aspect elements of CX and CX2 networks are decoded on several threads and
+	 * added to the network on one thread, in document order. Streaming CX imports read the stream
+	 * on one thread.
+	 * @return
+	 */
+	public static boolean getParallelImport() {
+		return Boolean.parseBoolean(getProperty(PARALLEL_IMPORT_PROPERTY));
+	}
+
+	public static final String MAPPED_INPUT_PROPERTY = "cx.mappedInput";
+
+	/**
+	 * When true, local CX and CX2 files are imported through memory mapped windows instead of
+	 * read calls. Off by default: a mapped file stays locked until the mapping is garbage
+	 * collected, and on Windows it can not be overwritten or deleted until then.
+	 * @return
+	 */
+	public static boolean getMappedInput() {
+		return Boolean.parseBoolean(getProperty(MAPPED_INPUT_PROPERTY));
+	}
+
+	public static final String OMIT_DEFAULT_VALUES_PROPERTY = "cx.omitDefaultValues";
+
+	/**
+	 * When true, CX2 exports declare the default value of node and edge columns in the attribute
+	 * declarations and leave out the element values equal to it. Readers that ignore declared
+	 * defaults then see those attributes as missing.
+	 * @return
+	 */
+	public static boolean getOmitDefaultValues() {
+		return Boolean.parseBoolean(getProperty(OMIT_DEFAULT_VALUES_PROPERTY));
+	}
+
+	public static final String COMPRESSION_LEVEL_PROPERTY = "cx.compressionLevel";
+
+	public static final int DEF_COMPRESSION_LEVEL = 6;
+
+	/**
+	 * The gzip level of compressed CX and CX2 exports, from 1 (fastest) to 9 (smallest)
+	 * @return
+	 */
+	public static int getCompressionLevel() {
+		return Math.max(1, Math.min(9, getIntegerProperty(COMPRESSION_LEVEL_PROPERTY, DEF_COMPRESSION_LEVEL)));
+	}
+
 	private static String getProperty(String key) {
 		final Properties props = (Properties) CyServiceModule.getService(CyProperty.class, "(cyPropertyName=cytoscape3.props)").getProperties();
 		return props.getProperty(key);
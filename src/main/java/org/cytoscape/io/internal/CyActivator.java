@@ -50,6 +50,20 @@ public class CyActivator extends AbstractCyActivator {
         cx2_writer_factory_properties.put(ID, "cx2NetworkWriterFactory");
 
         registerAllServices(bc, cx2networkWriterFactory, cx2_writer_factory_properties);
+
+        final CytoscapeCxFileFilter cxGzipFilter = new CytoscapeCxFileFilter(new String[] { "cx.gz" },
+        		new String[] { "application/gzip" }, "Compressed CX JSON", streamUtil);
+        final CxNetworkWriterFactory cxGzipWriterFactory = new CxNetworkWriterFactory(cxGzipFilter, false, true);
+        final Properties cx_gzip_writer_factory_properties = new Properties();
+        cx_gzip_writer_factory_properties.put(ID, "cxGzipNetworkWriterFactory");
+        registerAllServices(bc, cxGzipWriterFactory, cx_gzip_writer_factory_properties);
+
+        final CytoscapeCxFileFilter cx2GzipFilter = new CytoscapeCx2FileFilter(new String[] { "cx2.gz" },
+        		new String[] { "application/gzip" }, "Compressed CX2 JSON", streamUtil);
+        final CxNetworkWriterFactory cx2GzipWriterFactory = new CxNetworkWriterFactory(cx2GzipFilter, true, true);
+        final Properties cx2_gzip_writer_factory_properties = new Properties();
+        cx2_gzip_writer_factory_properties.put(ID, "cx2GzipNetworkWriterFactory");
+        registerAllServices(bc, cx2GzipWriterFactory, cx2_gzip_writer_factory_properties);
         
         final VisualMappingFunctionFactory vmfFactoryC = getService(bc,
                                                                     VisualMappingFunctionFactory.class,
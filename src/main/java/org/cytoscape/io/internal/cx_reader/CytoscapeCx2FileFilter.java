@@ -11,13 +11,13 @@ import org.slf4j.LoggerFactory;
 
 public class CytoscapeCx2FileFilter extends CytoscapeCxFileFilter {
 	
-	private static final String[] cx2Extensions = new String[] { "cx2" };
+	private static final String[] cx2Extensions = new String[] { "cx2", "cx2.gz" };
     private static final String cx2Description = "CX2 JSON";
         
     public static final Pattern CX2_HEADER_PATTERN = Pattern
                                                           .compile("\\s*\\[\\s*\\{\\s*\"\\s*CXVersion\"\\s*:\\s*\"2.0\"");
 
-    private CytoscapeCx2FileFilter(final String[] extensions,
+    public CytoscapeCx2FileFilter(final String[] extensions,
             final String[] contentTypes,
             final String description,
             final StreamUtil streamUtil) {
@@ -51,7 +51,7 @@ public class CytoscapeCx2FileFilter extends CytoscapeCxFileFilter {
      * @return null if not an CX file
      */
     protected static String getCX2startElement(final InputStream stream) {
-        final String header = getHeaderCharacters(stream, 400);
+        final String header = getHeaderCharacters(stream, HEADER_LENGTH);
         final Matcher matcher = CX2_HEADER_PATTERN.matcher(header);
         String root = null;
 
@@ -39,11 +39,10 @@ public class CytoscapeCx2NetworkReader extends AbstractCyNetworkReader {
 
 		super(input_stream, networkview_factory, network_factory, network_manager, root_network_manager);
 
-		cx2Importer = new Cx2Importer(input_stream, true);
+		cx2Importer = new Cx2Importer(new InflatingInputStream(input_stream), null);
 		_network_collection_name = network_collection_name;
 		
 		this._networks=null;
-		this.createView = Boolean.TRUE;
 	}
 
 	@Override
@@ -51,6 +50,7 @@ public class CytoscapeCx2NetworkReader extends AbstractCyNetworkReader {
 	
 		 
 		try {
+			// Null when no view is created, see CxPreferences.shouldCreateView()
 			return cx2Importer.createView();
 		} catch (Exception e) {
 			LoggerFactory.getLogger("CX2 Importer").error(e.getMessage());
@@ -81,7 +81,12 @@ public class CytoscapeCx2NetworkReader extends AbstractCyNetworkReader {
 		}
 
 		long t1 = System.currentTimeMillis();
-		CyNetwork newSubnetwork =  cx2Importer.importNetwork();
+		cx2Importer.setCreateView(createView);
+		CyNetwork newSubnetwork =  cx2Importer.importNetwork(() -> cancelled);
+		if (newSubnetwork == null) {
+			_networks = new CyNetwork[0];
+			return;
+		}
 		
 		if (cx2Importer.getNetworkName() == null) {
 			// Set the name of collection/network to be imported
@@ -21,7 +21,7 @@ public class CytoscapeCx2NetworkReaderFactory extends AbstractInputStreamTaskFac
     @Override
     public TaskIterator createTaskIterator(final InputStream is, final String collection_name) {
     	
-       return new TaskIterator(new CytoscapeCx2NetworkReader(is, 
+       return new TaskIterator(new CytoscapeCx2NetworkReader(MappedFileInputStream.wrap(is), 
     		   collection_name,
     		   CyServiceModule.getService(CyNetworkViewFactory.class),
     		   CyServiceModule.getService(CyNetworkFactory.class),
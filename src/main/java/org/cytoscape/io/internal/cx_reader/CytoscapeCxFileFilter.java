@@ -1,12 +1,15 @@
 package org.cytoscape.io.internal.cx_reader;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
 import org.cytoscape.io.BasicCyFileFilter;
 import org.cytoscape.io.DataCategory;
@@ -16,12 +19,17 @@ import org.slf4j.LoggerFactory;
 
 public class CytoscapeCxFileFilter extends BasicCyFileFilter {
 	
-	private static final String[] cxExtensions = new String[] { "cx" };
+	private static final String[] cxExtensions = new String[] { "cx", "cx.gz" };
     protected static final String[] types = new String[] { "application/json" };
     private static final String cxDescription = "CX JSON";
     //private static final DataCategory dataCategory = DataCategory.NETWORK;
     
 
+    // Bytes at the start of a document checked for the CX or CX2 header
+    protected static final int HEADER_LENGTH = 400;
+    // Compressed bytes that may be read to inflate the header
+    private static final int MARK_LIMIT = 64 * 1024;
+
     private static final Logger locallogger            = LoggerFactory.getLogger(CytoscapeCxFileFilter.class);
     private static final Pattern CX_HEADER_PATTERN = Pattern
     													.compile("\\s*\\{\\s*\"\\s*metaData\"\\s*:");
@@ -74,7 +82,7 @@ public class CytoscapeCxFileFilter extends BasicCyFileFilter {
      * @return null if not an CX file
      */
     protected static String getCXstartElement(final InputStream stream) {
-        final String header = getHeaderCharacters(stream, 400);
+        final String header = getHeaderCharacters(stream, HEADER_LENGTH);
         final Matcher matcher = CX_HEADER_PATTERN.matcher(header);
         String root = null;
 
@@ -92,32 +100,68 @@ public class CytoscapeCxFileFilter extends BasicCyFileFilter {
         return root;
     }
     
+    /**
+     * Read the start of a stream in one go, inflated if the stream is gzip compressed. A stream
+     * that supports mark and reset is reset to where it was, so the same stream can be handed to
+     * the reader afterwards, see {@link #markable(InputStream)}. Other streams are consumed and
+     * closed.
+     * @param numCharacters bytes to read, the header is ASCII
+     * @return the header, or an empty string if the stream can not be read
+     */
     protected static String getHeaderCharacters(InputStream stream, int numCharacters) {
+    	final boolean peek = stream.markSupported();
+    	final InputStream in = peek ? stream : new BufferedInputStream(stream, HEADER_LENGTH);
+    	try {
+    		in.mark(MARK_LIMIT);
+    		byte[] header = readHeader(in, numCharacters);
+    		if (InflatingInputStream.isGzip(header, header.length)) {
+    			in.reset();
+    			// Only the inflater is closed, not the stream
+    			try (GZIPInputStream gzip = new GZIPInputStream(new FilterInputStream(in) {
+    				@Override
+    				public void close() {
+    				}
+    			})) {
+    				header = readHeader(gzip, numCharacters);
+    			}
+    		}
+    		in.reset();
+    		return new String(header, StandardCharsets.UTF_8);
+    	} catch (IOException ioe) {
+    		return "";
+    	} finally {
+    		if (!peek) {
+    			try {
+    				stream.close();
+    			} catch (IOException e) {
+    			}
+    		}
+    	}
+	}
 
-		String header;
-		BufferedReader br = new BufferedReader(new InputStreamReader(stream));
-
-		try {
-			StringBuilder builder = new StringBuilder();
-			for (int i = 0; i < numCharacters; i++) {
-				char[] c = new char[1];
-				br.read(c);
-				builder.append(c);
-			}
-			header = builder.toString();
-		} catch (IOException ioe) {
-			header = "";
-		} finally {
-			if (br != null)
-				try {
-					br.close();
-				} catch (IOException e) {
-				}
-
-			br = null;
-		}
+    private static byte[] readHeader(InputStream in, int length) throws IOException {
+    	final byte[] header = new byte[length];
+    	int read = 0;
+    	int n;
+    	while (read < header.length && (n = in.read(header, read, header.length - read)) > 0) {
+    		read += n;
+    	}
+    	return read == length ? header : Arrays.copyOf(header, read);
+    }
 
-		return header;
-	}
+    /**
+     * Make a stream that the filters can check and then hand to a reader, so a download is only
+     * fetched once:
+     * <pre>
+     * InputStream in = CytoscapeCxFileFilter.markable(download);
+     * if (filter.accepts(in, DataCategory.NETWORK)) {
+     *     factory.createTaskIterator(in, name);
+     * }
+     * </pre>
+     * @return the stream if it supports mark and reset, or a buffered stream over it
+     */
+    public static InputStream markable(InputStream stream) {
+    	return stream.markSupported() ? stream : new BufferedInputStream(stream, HEADER_LENGTH);
+    }
     
 }
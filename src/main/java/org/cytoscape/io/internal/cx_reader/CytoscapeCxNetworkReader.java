@@ -2,10 +2,14 @@ package org.cytoscape.io.internal.cx_reader;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
 import java.util.List;
 
+import org.cytoscape.io.internal.CxPreferences;
 import org.cytoscape.io.internal.CyServiceModule;
 import org.cytoscape.io.internal.cxio.CxImporter;
+import org.cytoscape.io.internal.cxio.CxStreamingImporter;
+import org.cytoscape.io.internal.cxio.HeapEstimate;
 import org.cytoscape.io.internal.cxio.Settings;
 import org.cytoscape.io.internal.cxio.TimingUtil;
 import org.cytoscape.io.internal.nicecy.NiceCyRootNetwork;
@@ -18,24 +22,61 @@ import org.cytoscape.view.model.CyNetworkView;
 import org.cytoscape.view.model.CyNetworkViewFactory;
 import org.cytoscape.work.TaskMonitor;
 import org.cytoscape.work.util.ListSingleSelection;
+import org.ndexbio.cxio.core.CxElementReader2;
+import org.ndexbio.cxio.metadata.MetaDataCollection;
 import org.ndexbio.model.cx.NiceCXNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class CytoscapeCxNetworkReader extends AbstractCyNetworkReader {
 
+	private static final Logger logger = LoggerFactory.getLogger(CytoscapeCxNetworkReader.class);
+
 	private CyNetwork[] _networks;
 	private String _network_collection_name;
 	private NiceCyRootNetwork niceCy;
-	protected final NiceCXNetwork niceCX;
+	protected NiceCXNetwork niceCX;
+	
+	// Set instead of niceCX when the network is built directly from the stream
+	private CxStreamingImporter streamingImporter;
+
+	private final ProgressInputStream progress;
+	// The document, inflated if it is compressed
+	private final InputStream input;
 
-	final CxImporter cx_importer = new CxImporter();
+	CxImporter cx_importer = new CxImporter();
+	private boolean captureOpaqueAspects = true;
 
 	private Boolean createView = null;
+
+	// Networks whose view was built, the staged data is released after the last one
+	private int builtViews = 0;
 	
 	// Warning: HACK. Cytoscape doesn't allow access to reader parameters programmatically. This method allows Java reflections 
 	// access to it. This method should not be renamed or made private.
 	public void setCreateView(final Boolean createView) {
 		this.createView = createView;
 	}
+
+	/**
+	 * Only import the given aspects (see AspectSet.getAspectNames()). The other aspects are
+	 * skipped without being parsed. Must be called before run().
+	 * @param aspects
+	 */
+	public void setAspects(final Collection<String> aspects) {
+		cx_importer = new CxImporter(aspects);
+		cx_importer.setCaptureOpaqueAspects(captureOpaqueAspects);
+	}
+
+	/**
+	 * Read unknown (opaque) aspects into the parsed document as elements instead of keeping them
+	 * as raw JSON, see CxImporter.setCaptureOpaqueAspects(). Must be called before run().
+	 * @param capture
+	 */
+	public void setCaptureOpaqueAspects(final boolean capture) {
+		captureOpaqueAspects = capture;
+		cx_importer.setCaptureOpaqueAspects(capture);
+	}
 	
 	public CytoscapeCxNetworkReader(final InputStream input_stream, final String network_collection_name,
 			final CyNetworkViewFactory networkview_factory, final CyNetworkFactory network_factory,
@@ -46,20 +87,111 @@ public class CytoscapeCxNetworkReader extends AbstractCyNetworkReader {
 		if (input_stream == null) {
 			throw new IllegalArgumentException("input stream must not be null");
 		}
+		// Parsing is done in run(), where it can report progress and be cancelled
+		progress = new ProgressInputStream(input_stream);
+		input = new InflatingInputStream(progress);
+		niceCX = null;
+		streamingImporter = null;
+
+		_network_collection_name = network_collection_name;
+	}
+
+	/**
+	 * Parse the whole document into niceCX, if it was not parsed yet.
+	 * @return the parsed network, or null if the import was cancelled
+	 * @throws IOException
+	 */
+	protected NiceCXNetwork readNiceCX() throws IOException {
+		if (niceCX == null) {
+			CxElementReader2 r = cx_importer.getCxElementReader(input);
+			niceCX = cx_importer.getCXNetwork(r, r.getPreMetaData(), () -> cancelled);
+		}
+		return niceCX;
+	}
+
+	@Override
+	public void cancel() {
+		super.cancel();
+		// Unblock a parser waiting on the stream; run() notices the flag between elements
 		try {
-			niceCX = cx_importer.getCXNetworkFromStream(input_stream);
+			input.close();
 		} catch (IOException e) {
-			throw new IllegalArgumentException("Failed to import file as CX");
+			// Ignore, the import is being abandoned
 		}
+	}
 
-		_network_collection_name = network_collection_name;
+	/**
+	 * Warn up front, in the task dialog, when the declared size of the network is not expected to
+	 * fit in the heap. Whether a view is created is decided once the network is built: unless the
+	 * reader was told otherwise, CxPreferences.shouldCreateView() leaves out views that do not fit.
+	 */
+	private static void reportHeapEstimate(MetaDataCollection metadata, TaskMonitor taskMonitor) {
+		final long needed = HeapEstimate.forImport(metadata);
+		if (needed < 0) {
+			return;
+		}
+		final long available = HeapEstimate.available();
+		if (needed >= available) {
+			final String message = "Importing " + HeapEstimate.getElementCount(metadata) + " nodes and edges may need "
+					+ (needed >> 20) + " MB with a view, " + (available >> 20) + " MB available";
+			logger.warn(message);
+			if (taskMonitor != null) {
+				taskMonitor.showMessage(TaskMonitor.Level.WARN, message);
+			}
+		} else if (Settings.INSTANCE.isTiming()) {
+			logger.info("Estimated heap for import: " + (needed >> 20) + " MB of " + (available >> 20) + " MB available");
+		}
+	}
+
+	/**
+	 * Drop the parsed document once the networks are built from it
+	 */
+	protected void releaseNiceCX() {
+		niceCX = null;
+	}
+
+	/**
+	 * Release what was kept to build the views, once they are all built
+	 */
+	private void releaseViewStaging() {
+		if (niceCy != null) {
+			niceCy.release();
+			if (Settings.INSTANCE.isTiming()) {
+				TimingUtil.reportStagedData("staged after views", niceCy.getStagedSize());
+			}
+		}
+		if (streamingImporter != null) {
+			streamingImporter.release();
+		}
+	}
+
+	/**
+	 * Release everything staged by a cancelled import
+	 */
+	private void releaseStaging() {
+		niceCX = null;
+		niceCy = null;
+		streamingImporter = null;
+		_networks = new CyNetwork[0];
 	}
 
 	@Override
 	public CyNetworkView buildCyNetworkView(final CyNetwork network) {
+		try {
+			return buildView(network);
+		} finally {
+			if (++builtViews >= _networks.length) {
+				releaseViewStaging();
+			}
+		}
+	}
+
+	private CyNetworkView buildView(final CyNetwork network) {
 	
 			System.out.println("Creating view for " + network);
-			List<CyNetworkView> views = niceCy.createViews(network, createView);
+			List<CyNetworkView> views = streamingImporter != null 
+					? streamingImporter.createViews(createView) 
+					: niceCy.createViews(network, createView);
 			if (views.isEmpty()) {
 				CyNetworkViewFactory view_factory = CyServiceModule.getService(CyNetworkViewFactory.class);
 				final CyNetworkView createdView = view_factory.createNetworkView(network);
@@ -69,7 +201,11 @@ public class CytoscapeCxNetworkReader extends AbstractCyNetworkReader {
 			}
 			
 			try {
-				niceCy.addTableVisualStyles(network);
+				if (streamingImporter != null) {
+					streamingImporter.addTableVisualStyles(network);
+				} else {
+					niceCy.addTableVisualStyles(network);
+				}
 			} catch (Exception e) {
 				System.out.println("Failed to create table style for " + network + ": " + e.getMessage());
 
@@ -91,8 +227,9 @@ public class CytoscapeCxNetworkReader extends AbstractCyNetworkReader {
 		System.out.println("create view value: " + createView);
 		final long t0 = System.currentTimeMillis();
 
-		if (Settings.INSTANCE.isTiming()) {
-			TimingUtil.reportTimeDifference(t0, "total time parsing", -1);
+		if (taskMonitor != null) {
+			taskMonitor.setTitle("Importing CX network");
+			progress.setTaskMonitor(taskMonitor);
 		}
 
 		// Throw an error if trying to import CX network into existing collection.
@@ -101,8 +238,68 @@ public class CytoscapeCxNetworkReader extends AbstractCyNetworkReader {
 			setRootNetworkList(new ListSingleSelection<String>());
 		}
 
+		// Keeps what the streamed import read, to read it again if the document is a collection
+		SpoolingInputStream spool = null;
+		try {
+			if (niceCX == null && CxPreferences.getParallelImport() && !CxPreferences.getStreamingImport()) {
+				niceCX = cx_importer.getCXNetworkParallel(input, () -> cancelled,
+						metadata -> reportHeapEstimate(metadata, taskMonitor));
+			} else if (niceCX == null) {
+				if (CxPreferences.getStreamingImport()) {
+					spool = new SpoolingInputStream(input);
+				}
+				CxElementReader2 r = cx_importer.getCxElementReader(spool != null ? spool : input);
+				MetaDataCollection metadata = r.getPreMetaData();
+				reportHeapEstimate(metadata, taskMonitor);
+				if (spool != null && CxStreamingImporter.isStreamable(metadata)) {
+					if (CxStreamingImporter.isDeclaredSingleNetwork(metadata)) {
+						spool.stopSpooling();
+					}
+					streamingImporter = new CxStreamingImporter(r, cx_importer::getRawOpaqueAspects);
+					try {
+						runStreaming(taskMonitor, t0);
+						return;
+					} catch (CxStreamingImporter.CollectionAspectException e) {
+						if (!spool.isSpooling()) {
+							throw e;
+						}
+						// The pre-metadata did not list the collection aspects
+						logger.info("Importing collection with the staged import: " + e.getMessage());
+						streamingImporter = null;
+						r = cx_importer.getCxElementReader(spool.replay());
+						metadata = r.getPreMetaData();
+					}
+				} else if (spool != null) {
+					spool.stopSpooling();
+				}
+				niceCX = cx_importer.getCXNetwork(r, metadata, () -> cancelled);
+			}
+		} catch (IOException e) {
+			if (cancelled) {
+				releaseStaging();
+				return;
+			}
+			throw new IOException("Failed to import file as CX: " + e.getMessage(), e);
+		} finally {
+			if (spool != null) {
+				spool.close();
+			}
+		}
+
+		if (cancelled || niceCX == null) {
+			releaseStaging();
+			return;
+		}
+
+		if (Settings.INSTANCE.isTiming()) {
+			TimingUtil.reportTimeDifference(t0, "total time parsing", -1);
+		}
+		if (taskMonitor != null) {
+			taskMonitor.setStatusMessage("Creating networks");
+		}
+
 		long t1 = System.currentTimeMillis();
-		niceCy = new NiceCyRootNetwork(niceCX);
+		niceCy = new NiceCyRootNetwork(niceCX, cx_importer.getRawOpaqueAspects());
 		if (Settings.INSTANCE.isTiming()) {
 			TimingUtil.reportTimeDifference(t1, "Time to create NiceCyNetwork", -1);
 		}
@@ -115,6 +312,11 @@ public class CytoscapeCxNetworkReader extends AbstractCyNetworkReader {
 			niceCy.setNetworkName(_network_collection_name);
 		}
 
+		if (cancelled) {
+			releaseStaging();
+			return;
+		}
+
 		t1 = System.currentTimeMillis();
 		List<CyNetwork> importedNetworks = niceCy.apply();
 		if (Settings.INSTANCE.isTiming()) {
@@ -122,10 +324,44 @@ public class CytoscapeCxNetworkReader extends AbstractCyNetworkReader {
 		}
 		_networks = new CyNetwork[importedNetworks.size()];
 		importedNetworks.toArray(_networks);
+		releaseNiceCX();
+		if (Settings.INSTANCE.isTiming()) {
+			TimingUtil.reportStagedData("staged after apply", niceCy.getStagedSize());
+		}
 
 		if (Settings.INSTANCE.isTiming()) {
 			TimingUtil.reportTimeDifference(t0, "total time to build network(s) (not views)", -1);
 		}
+		if (taskMonitor != null) {
+			taskMonitor.setProgress(1.0);
+		}
+	}
+
+	private void runStreaming(final TaskMonitor taskMonitor, final long t0) throws IOException {
+		long t1 = System.currentTimeMillis();
+		CyNetwork network = streamingImporter.importNetwork(() -> cancelled);
+		if (network == null) {
+			releaseStaging();
+			return;
+		}
+		if (Settings.INSTANCE.isTiming()) {
+			TimingUtil.reportTimeDifference(t1, "Time to create networks in Cytoscape", -1);
+		}
+
+		if (streamingImporter.getNetworkName() == null) {
+			if (_network_collection_name == null) {
+				_network_collection_name = "Unnamed CX Network";
+			}
+			streamingImporter.setNetworkName(_network_collection_name);
+		}
+		_networks = new CyNetwork[] { network };
+
+		if (Settings.INSTANCE.isTiming()) {
+			TimingUtil.reportTimeDifference(t0, "total time to build network(s) (not views)", -1);
+		}
+		if (taskMonitor != null) {
+			taskMonitor.setProgress(1.0);
+		}
 	}
 
-}
\ No newline at end of file
+}
@@ -21,7 +21,7 @@ public class CytoscapeCxNetworkReaderFactory extends AbstractInputStreamTaskFact
     @Override
     public TaskIterator createTaskIterator(final InputStream is, final String collection_name) {
     	
-       return new TaskIterator(new CytoscapeCxNetworkReader(is, 
+       return new TaskIterator(new CytoscapeCxNetworkReader(MappedFileInputStream.wrap(is), 
     		   collection_name,
     		   CyServiceModule.getService(CyNetworkViewFactory.class),
     		   CyServiceModule.getService(CyNetworkFactory.class),
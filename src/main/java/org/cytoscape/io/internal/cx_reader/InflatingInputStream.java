@@ -0,0 +1,172 @@
+package org.cytoscape.io.internal.cx_reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+import org.cytoscape.io.internal.cxio.PipelinedReader;
+
+/**
+ * Reads a CX or CX2 document that may be gzip compressed. Compressed documents are recognized by
+ * the gzip magic bytes on the first read and inflated on a thread of their own, so inflating
+ * overlaps with parsing; other documents are passed through.
+ */
+public class InflatingInputStream extends InputStream {
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+	// Chunks handed over at a time, the queue holds 64 batches
+	private static final int CHUNKS_PER_BATCH = 4;
+
+	private final PushbackInputStream source;
+	private boolean started = false;
+
+	// Set for compressed documents
+	private PipelinedReader<byte[]> inflater;
+	private List<byte[]> batch;
+	private int batchIndex;
+	private byte[] chunk;
+	private int chunkPos;
+
+	public InflatingInputStream(InputStream source) {
+		this.source = new PushbackInputStream(source, 2);
+	}
+
+	/**
+	 * @return true if the bytes start with the gzip magic number
+	 */
+	public static boolean isGzip(byte[] header, int length) {
+		return length >= 2 && (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b;
+	}
+
+	private void start() throws IOException {
+		started = true;
+		final byte[] magic = new byte[2];
+		int length = 0;
+		int n;
+		while (length < magic.length && (n = source.read(magic, length, magic.length - length)) > 0) {
+			length += n;
+		}
+		source.unread(magic, 0, length);
+		if (isGzip(magic, length)) {
+			final GZIPInputStream gzip = new GZIPInputStream(source, CHUNK_SIZE);
+			inflater = new PipelinedReader<>(() -> new ChunkIterator(gzip), "CX gunzip", CHUNKS_PER_BATCH);
+		}
+	}
+
+	/**
+	 * @return false at the end of the document
+	 */
+	private boolean nextChunk() throws IOException {
+		while (batch == null || batchIndex == batch.size()) {
+			try {
+				batch = inflater.nextBatch();
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			batchIndex = 0;
+			if (batch == null) {
+				return false;
+			}
+		}
+		chunk = batch.get(batchIndex);
+		batch.set(batchIndex++, null);
+		chunkPos = 0;
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		final byte[] b = new byte[1];
+		return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (!started) {
+			start();
+		}
+		if (inflater == null) {
+			return source.read(b, off, len);
+		}
+		if (len == 0) {
+			return 0;
+		}
+		if ((chunk == null || chunkPos == chunk.length) && !nextChunk()) {
+			return -1;
+		}
+		final int n = Math.min(len, chunk.length - chunkPos);
+		System.arraycopy(chunk, chunkPos, b, off, n);
+		chunkPos += n;
+		return n;
+	}
+
+	@Override
+	public int available() throws IOException {
+		if (inflater == null) {
+			return source.available();
+		}
+		return chunk == null ? 0 : chunk.length - chunkPos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (inflater != null) {
+			inflater.close();
+		}
+		source.close();
+	}
+
+	/**
+	 * Inflates full chunks, the last one is shorter
+	 */
+	private static final class ChunkIterator implements Iterator<byte[]> {
+		private final InputStream in;
+		private byte[] next;
+		private boolean done = false;
+
+		ChunkIterator(InputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null && !done) {
+				next = readChunk();
+			}
+			return next != null;
+		}
+
+		@Override
+		public byte[] next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final byte[] result = next;
+			next = null;
+			return result;
+		}
+
+		private byte[] readChunk() {
+			final byte[] buffer = new byte[CHUNK_SIZE];
+			int length = 0;
+			try {
+				int n;
+				while (length < buffer.length && (n = in.read(buffer, length, buffer.length - length)) > 0) {
+					length += n;
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			if (length < buffer.length) {
+				done = true;
+			}
+			return length == 0 ? null : length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package org.cytoscape.io.internal.cx_reader;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.cytoscape.io.internal.CxPreferences;
+
+/**
+ * Reads a local file through memory mapped windows of its channel instead of read calls, so the
+ * bytes are copied once, from the page cache into the parser's buffer.
+ *
+ * Files of any size are read by mapping the next window when the current one is exhausted. The
+ * total size is known up front, so {@link #available()} reports the rest of the file.
+ * Mark and reset only move the position.
+ */
+public class MappedFileInputStream extends InputStream {
+
+	// Windows are mapped at this size, the last one is shorter
+	private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+	private final FileChannel channel;
+	private final long size;
+	private final long windowSize;
+
+	private MappedByteBuffer window;
+	// File position of the start of the window
+	private long windowStart;
+	private long mark = 0;
+
+	/**
+	 * @param channel a file channel, read from its current position
+	 */
+	public MappedFileInputStream(FileChannel channel) throws IOException {
+		this(channel, WINDOW_SIZE);
+	}
+
+	/**
+	 * @param windowSize bytes mapped at a time, smaller in tests to cross windows
+	 */
+	MappedFileInputStream(FileChannel channel, long windowSize) throws IOException {
+		this.channel = channel;
+		this.size = channel.size();
+		this.windowSize = windowSize;
+		map(channel.position());
+	}
+
+	/**
+	 * Read a stream opened on a local file through its mapped channel instead, if cx.mappedInput
+	 * is turned on
+	 * @return the mapped stream, or the stream itself if it is not a file stream
+	 */
+	public static InputStream wrap(InputStream stream) {
+		if (!(stream instanceof FileInputStream) || !CxPreferences.getMappedInput()) {
+			return stream;
+		}
+		try {
+			return new MappedFileInputStream(((FileInputStream) stream).getChannel());
+		} catch (IOException e) {
+			// Not mappable, e.g. a pipe
+			return stream;
+		}
+	}
+
+	/**
+	 * @return the size of the file
+	 */
+	public long getLength() {
+		return size;
+	}
+
+	public long getPosition() {
+		return windowStart + window.position();
+	}
+
+	private void map(long position) throws IOException {
+		windowStart = position;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.max(0, Math.min(windowSize, size - position)));
+	}
+
+	/**
+	 * @return false at the end of the file
+	 */
+	private boolean ensureRemaining() throws IOException {
+		if (window.hasRemaining()) {
+			return true;
+		}
+		final long position = getPosition();
+		if (position >= size) {
+			return false;
+		}
+		map(position);
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!ensureRemaining()) {
+			return -1;
+		}
+		return window.get() & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!ensureRemaining()) {
+			return -1;
+		}
+		final int n = Math.min(len, window.remaining());
+		window.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		final long position = getPosition();
+		final long skipped = Math.max(0, Math.min(n, size - position));
+		seek(position + skipped);
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return (int) Math.min(Integer.MAX_VALUE, size - getPosition());
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {
+		mark = getPosition();
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		seek(mark);
+	}
+
+	private void seek(long position) throws IOException {
+		if (position >= windowStart && position <= windowStart + window.limit()) {
+			window.position((int) (position - windowStart));
+		} else {
+			map(position);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
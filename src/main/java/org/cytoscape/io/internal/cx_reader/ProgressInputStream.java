@@ -0,0 +1,136 @@
+package org.cytoscape.io.internal.cx_reader;
+
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.cytoscape.work.TaskMonitor;
+
+/**
+ * Counts the bytes read from the wrapped stream and reports them to a TaskMonitor as progress.
+ *
+ * The total size is the length of the file when the stream reads a local file, or a length
+ * given by the caller, e.g. a Content-Length. Other streams, like URL downloads, have no known
+ * length: their progress is shown as indeterminate, with the amount read so far as the status.
+ * Progress is capped just below 1.0 and only the reader sets it to done.
+ */
+public class ProgressInputStream extends FilterInputStream {
+
+	/** Length of a stream whose size is not known */
+	public static final long UNKNOWN_LENGTH = -1;
+
+	// Report at most every 1% of the input
+	private static final int STEPS = 100;
+	// Report interval when the length is not known
+	private static final long UNKNOWN_LENGTH_INTERVAL = 1024 * 1024;
+
+	private final long totalBytes;
+	private final long reportInterval;
+
+	private volatile TaskMonitor taskMonitor;
+	private long bytesRead;
+	private long nextReport;
+
+	public ProgressInputStream(InputStream in) {
+		this(in, getKnownLength(in));
+	}
+
+	/**
+	 * @param totalBytes length of the stream, or {@link #UNKNOWN_LENGTH}
+	 */
+	public ProgressInputStream(InputStream in, long totalBytes) {
+		super(in);
+		this.totalBytes = totalBytes > 0 ? totalBytes : UNKNOWN_LENGTH;
+		reportInterval = this.totalBytes > 0 ? Math.max(1, this.totalBytes / STEPS) : UNKNOWN_LENGTH_INTERVAL;
+		bytesRead = 0;
+		nextReport = reportInterval;
+	}
+
+	/**
+	 * @return the bytes left in a stream of a local file, or {@link #UNKNOWN_LENGTH}.
+	 * InputStream.available() is not a length for other streams, e.g. it is a buffer size for
+	 * URL streams.
+	 */
+	public static long getKnownLength(InputStream in) {
+		try {
+			if (in instanceof MappedFileInputStream) {
+				return ((MappedFileInputStream) in).getLength() - ((MappedFileInputStream) in).getPosition();
+			}
+			if (in instanceof FileInputStream) {
+				final FileInputStream file = (FileInputStream) in;
+				return file.getChannel().size() - file.getChannel().position();
+			}
+		} catch (IOException e) {
+			// Fall through, the length is unknown
+		}
+		return UNKNOWN_LENGTH;
+	}
+
+	public void setTaskMonitor(TaskMonitor taskMonitor) {
+		this.taskMonitor = taskMonitor;
+		if (taskMonitor != null && totalBytes == UNKNOWN_LENGTH) {
+			taskMonitor.setProgress(-1);
+		}
+	}
+
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	/**
+	 * @return the length of the stream, or {@link #UNKNOWN_LENGTH}
+	 */
+	public long getTotalBytes() {
+		return totalBytes;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b >= 0) {
+			count(1);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = super.read(b, off, len);
+		if (n > 0) {
+			count(n);
+		}
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(n);
+		if (skipped > 0) {
+			count(skipped);
+		}
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		// Counting would be off after a reset
+		return false;
+	}
+
+	private void count(long n) {
+		bytesRead += n;
+		if (bytesRead >= nextReport) {
+			nextReport = bytesRead + reportInterval;
+			final TaskMonitor monitor = taskMonitor;
+			if (monitor == null) {
+				return;
+			}
+			if (totalBytes > 0) {
+				monitor.setProgress(Math.min(0.99, (double) bytesRead / totalBytes));
+			} else {
+				monitor.setStatusMessage("Read " + (bytesRead >> 20) + " MB");
+			}
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package org.cytoscape.io.internal.cx_reader;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Copies what is read from a stream to a temporary file, so that the document can be read again
+ * from its start if the first reader gives up on it, e.g. when a streamed import finds an aspect
+ * that only the staged import can handle.
+ *
+ * The first reader may still be reading on a parser thread of its own when the document is
+ * replayed. From then on it sees the end of the stream, while the replay continues with the
+ * bytes the source has left. Closing this stream deletes the copy, the source is not closed.
+ */
+public class SpoolingInputStream extends InputStream {
+
+	private final InputStream source;
+
+	private Path file;
+	private OutputStream spool;
+	private InputStream copy;
+	private boolean replayed = false;
+
+	public SpoolingInputStream(InputStream source) throws IOException {
+		this.source = source;
+		file = Files.createTempFile("cx-import", ".spool");
+		spool = new BufferedOutputStream(Files.newOutputStream(file));
+	}
+
+	@Override
+	public synchronized int read() throws IOException {
+		if (replayed) {
+			return -1;
+		}
+		final int b = source.read();
+		if (b != -1 && spool != null) {
+			spool.write(b);
+		}
+		return b;
+	}
+
+	@Override
+	public synchronized int read(byte[] b, int off, int len) throws IOException {
+		if (replayed) {
+			return -1;
+		}
+		final int n = source.read(b, off, len);
+		if (n > 0 && spool != null) {
+			spool.write(b, off, n);
+		}
+		return n;
+	}
+
+	/**
+	 * @return true while the bytes read are copied, i.e. the document can be replayed
+	 */
+	public synchronized boolean isSpooling() {
+		return spool != null;
+	}
+
+	/**
+	 * Stop copying and delete the copy, the document can not be replayed any more
+	 */
+	public synchronized void stopSpooling() throws IOException {
+		if (spool != null) {
+			spool.close();
+			spool = null;
+			deleteCopy();
+		}
+	}
+
+	/**
+	 * Read the document again: the bytes read so far from the copy, then the rest of the source.
+	 * This stream ends here.
+	 * @throws IOException if the document was not spooled
+	 */
+	public synchronized InputStream replay() throws IOException {
+		if (spool == null) {
+			throw new IOException("The CX document can not be read again");
+		}
+		replayed = true;
+		spool.close();
+		spool = null;
+		copy = Files.newInputStream(file);
+		return new SequenceInputStream(copy, new InputStream() {
+			@Override
+			public int read() throws IOException {
+				return source.read();
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return source.read(b, off, len);
+			}
+		});
+	}
+
+	private void deleteCopy() throws IOException {
+		if (copy != null) {
+			copy.close();
+			copy = null;
+		}
+		if (file != null) {
+			Files.deleteIfExists(file);
+			file = null;
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (spool != null) {
+			spool.close();
+			spool = null;
+		}
+		deleteCopy();
+	}
+}
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.SortedMap;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
 import org.cytoscape.io.internal.CxPreferences;
@@ -554,6 +555,19 @@ public final class ViewMaker {
 			Map<String, CyVisualPropertiesElement> visualProperties, 
 			Map<Long, List<CyVisualPropertiesElement>> nodeBypass,
 			Map<Long, List<CyVisualPropertiesElement>> edgeBypass) {
+		makeView(view, niceCy::getNode, niceCy::getEdge, cartesianLayout, visualProperties, nodeBypass, edgeBypass);
+	}
+
+	/**
+	 * Build the view from CX1 view aspects, resolving CX IDs with the given lookups.
+	 */
+	public static void makeView(CyNetworkView view,
+			Function<Long, CyNode> nodeLookup,
+			Function<Long, CyEdge> edgeLookup,
+			Map<Long, CartesianLayoutElement> cartesianLayout,
+			Map<String, CyVisualPropertiesElement> visualProperties, 
+			Map<Long, List<CyVisualPropertiesElement>> nodeBypass,
+			Map<Long, List<CyVisualPropertiesElement>> edgeBypass) {
 		
 		final VisualMappingManager visual_mapping_manager = CyServiceModule.getService(VisualMappingManager.class);
     	final VisualStyleFactory visual_style_factory = CyServiceModule.getService(VisualStyleFactory.class);
@@ -617,19 +631,19 @@ public final class ViewMaker {
         
         
         nodeBypass.forEach((suid, props) -> {
-        	CyNode node = niceCy.getNode(suid);
+        	CyNode node = nodeLookup.apply(suid);
         	ViewMaker.setNodeVisualProperties(view, lexicon, node, props);	
         });
         
         edgeBypass.forEach((suid, props) -> {
-        	CyEdge edge = niceCy.getEdge(suid);
+        	CyEdge edge = edgeLookup.apply(suid);
         	ViewMaker.setEdgeVisualProperties(view, lexicon, edge, props);	
         });
         
         
         // If there is a Cartesian layout for the view, do not apply a layout
         for (Long suid : cartesianLayout.keySet()) {
-        	CyNode node = niceCy.getNode(suid);
+        	CyNode node = nodeLookup.apply(suid);
         	if (applyCartesianLayout(view, node, cartesianLayout.get(suid))) {
         		doLayout = null;
         	}
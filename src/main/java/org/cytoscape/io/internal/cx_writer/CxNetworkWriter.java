@@ -15,6 +15,7 @@ import java.util.stream.Collectors;
 
 import org.cytoscape.application.CyApplicationManager;
 import org.cytoscape.io.internal.AspectSet;
+import org.cytoscape.io.internal.CxPreferences;
 import org.cytoscape.io.internal.CyServiceModule;
 import org.cytoscape.io.internal.cxio.CxExporter;
 import org.cytoscape.io.internal.cxio.CxUtil;
@@ -232,6 +233,7 @@ public class CxNetworkWriter implements CyWriter {
 				-> writeSiblings 
 				|| !Settings.IGNORE_SINGLE_NETWORK_NETWORK_ATTRIBUTES.contains(columnName)
 				).collect(Collectors.toList()));
+		exporter.setOmitDefaultValues(isCX2 && CxPreferences.getOmitDefaultValues());
 
 		final long t0 = System.currentTimeMillis();
 		if (TimingUtil.WRITE_TO_DEV_NULL) {
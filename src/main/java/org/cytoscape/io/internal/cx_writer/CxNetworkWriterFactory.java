@@ -1,24 +1,41 @@
 package org.cytoscape.io.internal.cx_writer;
 
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
 import org.cytoscape.io.CyFileFilter;
+import org.cytoscape.io.internal.CxPreferences;
 import org.cytoscape.io.write.CyNetworkViewWriterFactory;
 import org.cytoscape.io.write.CyWriter;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.view.model.CyNetworkView;
 
 public class CxNetworkWriterFactory implements CyNetworkViewWriterFactory {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private final CyFileFilter          _filter;
     private final boolean isCX2;
+    private final boolean compressed;
 
     public CxNetworkWriterFactory(final CyFileFilter filter, boolean inCX2Format) {
+        this(filter, inCX2Format, false);
+    }
+
+    /**
+     * @param compressed write gzip compressed documents, at the level of the cx.compressionLevel
+     * preference
+     */
+    public CxNetworkWriterFactory(final CyFileFilter filter, boolean inCX2Format, boolean compressed) {
         _filter = filter;
         isCX2 = inCX2Format;
+        this.compressed = compressed;
     }
 
     @Override
     public CyWriter createWriter(final OutputStream os, final CyNetwork network) {
-        return new CxNetworkWriter(os,
+        return new CxNetworkWriter(getOutputStream(os),
                                    network,
                                    false,
                                    true, isCX2);
@@ -31,11 +48,30 @@ public class CxNetworkWriterFactory implements CyNetworkViewWriterFactory {
 
     @Override
     public CyWriter createWriter(final OutputStream os, final CyNetworkView view) {
-        return new CxNetworkWriter(os,
+        return new CxNetworkWriter(getOutputStream(os),
         						view.getModel(),
                                    view,
                                    true, isCX2);
 
     }
 
+    /**
+     * The writer closes the stream, which finishes the compressed document
+     */
+    private OutputStream getOutputStream(final OutputStream os) {
+        if (!compressed) {
+            return os;
+        }
+        final int level = CxPreferences.getCompressionLevel();
+        try {
+            return new GZIPOutputStream(os, BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
 }
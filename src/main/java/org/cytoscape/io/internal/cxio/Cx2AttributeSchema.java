@@ -0,0 +1,283 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+import org.ndexbio.cx2.aspect.element.core.DeclarationEntry;
+import org.ndexbio.cxio.aspects.datamodels.ATTRIBUTE_DATA_TYPE;
+import org.ndexbio.model.exceptions.NdexException;
+
+/**
+ * The attribute declarations of one CX2 aspect, compiled against the table the aspect is loaded
+ * into. Declared names and aliases resolve to the column, the declared type and the default
+ * value, so the attributes of an element are set in its row directly instead of being extended
+ * to a full map and validated by the CX2 model first.
+ *
+ * Missing columns are created with the declared default as their default value. Rows are then
+ * only written when their value differs from it, the others read the default from the column.
+ *
+ * In trusted mode the values are only checked against the declared types for the first element
+ * with a given set of attributes; the following ones are converted without the checks.
+ *
+ * A schema belongs to one import and is not thread safe.
+ */
+public final class Cx2AttributeSchema {
+
+	private final String label;
+	private final boolean trusted;
+	private final StringPool strings;
+
+	// By declared name and by alias
+	private final Map<String, Attribute> attributes = new HashMap<>();
+	private final Attribute[] defaults;
+
+	// Validated attribute sets by hash, in trusted mode
+	private final Map<Integer, List<Attribute[]>> shapes = new HashMap<>();
+
+	// Buffers for the element being applied
+	private Attribute[] resolved = new Attribute[16];
+	private Object[] values = new Object[16];
+	private int generation = 0;
+
+	/**
+	 * @param label element name for error messages, e.g. "Node"
+	 * @param declarations declarations of the aspect, may be null
+	 * @param table table the aspect is loaded into, the missing columns are created
+	 * @param trusted only check the values of each attribute set once
+	 * @param strings the import's string pool
+	 * @throws NdexException if a declared default value does not have the declared type
+	 */
+	public Cx2AttributeSchema(String label, Map<String, DeclarationEntry> declarations, CyTable table,
+			boolean trusted, StringPool strings) throws NdexException {
+		this.label = label;
+		this.trusted = trusted;
+		this.strings = strings;
+
+		final List<Attribute> withDefault = new ArrayList<>();
+		if (declarations != null) {
+			for (Map.Entry<String, DeclarationEntry> e : declarations.entrySet()) {
+				final DeclarationEntry declaration = e.getValue();
+				final ATTRIBUTE_DATA_TYPE dataType = declaration.getDataType() == null ? ATTRIBUTE_DATA_TYPE.STRING
+						: declaration.getDataType();
+				CyColumn column = table.getColumn(e.getKey());
+				if (column == null) {
+					final Attribute declared = new Attribute(e.getKey(), dataType, CxUtil.getDataType(dataType),
+							!dataType.isSingleValueType());
+					column = CxUtil.createColumn(table, e.getKey(), declared.type, !declared.isList,
+							declared.convert(declaration.getDefaultValue(), true));
+				}
+				final Attribute attribute = new Attribute(column, dataType);
+				attributes.put(attribute.name, attribute);
+				if (declaration.getAlias() != null) {
+					attributes.put(declaration.getAlias(), attribute);
+				}
+				if (declaration.getDefaultValue() != null) {
+					attribute.defaultValue = attribute.convert(declaration.getDefaultValue(), true);
+					attribute.columnDefault = attribute.defaultValue.equals(column.getDefaultValue());
+					if (!attribute.columnDefault) {
+						// Cytoscape's own columns keep their default, write the declared one to each row
+						withDefault.add(attribute);
+					}
+				}
+			}
+		}
+		defaults = withDefault.toArray(new Attribute[0]);
+	}
+
+	/**
+	 * Set the attributes of an element in its row, with the declared defaults for the missing ones
+	 * @param elementAttributes the attributes of the CX2 element, by name or alias
+	 * @param row the row of the element
+	 * @throws NdexException if an attribute is not declared or its value does not have the declared type
+	 */
+	public void apply(Map<String, Object> elementAttributes, CyRow row) throws NdexException {
+		final int stamp = ++generation;
+		int size = 0;
+		int hash = 1;
+		if (elementAttributes != null) {
+			for (Map.Entry<String, Object> e : elementAttributes.entrySet()) {
+				if (e.getKey().equals(CyNetwork.SUID)) {
+					continue;
+				}
+				final Attribute attribute = attributes.get(e.getKey());
+				if (attribute == null) {
+					throw new NdexException(label + " attribute " + e.getKey() + " is not declared.");
+				}
+				if (size == resolved.length) {
+					resolved = Arrays.copyOf(resolved, size * 2);
+					values = Arrays.copyOf(values, size * 2);
+				}
+				resolved[size] = attribute;
+				values[size] = e.getValue();
+				hash = 31 * hash + attribute.hashCode();
+				size++;
+			}
+		}
+
+		final boolean check = !trusted || !isValidatedShape(hash, size);
+		for (int i = 0; i < size; i++) {
+			final Attribute attribute = resolved[i];
+			attribute.stamp = stamp;
+			final Object value = attribute.convert(values[i], check);
+			values[i] = null;
+			if (attribute.columnDefault && attribute.defaultValue.equals(value)) {
+				continue;
+			}
+			row.set(attribute.name, value);
+		}
+		for (Attribute attribute : defaults) {
+			if (attribute.stamp != stamp) {
+				row.set(attribute.name, attribute.defaultValue);
+			}
+		}
+	}
+
+	/**
+	 * @return the value of a declared attribute of an element, looked up by name, then alias, then
+	 * default
+	 */
+	public Object getValue(Map<String, Object> elementAttributes, String name) throws NdexException {
+		final Attribute attribute = attributes.get(name);
+		if (attribute == null) {
+			return null;
+		}
+		if (elementAttributes != null) {
+			for (Map.Entry<String, Object> e : elementAttributes.entrySet()) {
+				if (attributes.get(e.getKey()) == attribute) {
+					return attribute.convert(e.getValue(), true);
+				}
+			}
+		}
+		return attribute.defaultValue;
+	}
+
+	public boolean isDeclared(String name) {
+		return attributes.containsKey(name);
+	}
+
+	/**
+	 * Remember the attribute set in the buffer
+	 * @return true if the same set was seen before
+	 */
+	private boolean isValidatedShape(int hash, int size) {
+		List<Attribute[]> candidates = shapes.get(hash);
+		if (candidates == null) {
+			candidates = new ArrayList<>(1);
+			shapes.put(hash, candidates);
+		}
+		for (Attribute[] shape : candidates) {
+			if (shape.length == size && Arrays.equals(shape, 0, size, resolved, 0, size)) {
+				return true;
+			}
+		}
+		candidates.add(Arrays.copyOf(resolved, size));
+		return false;
+	}
+
+	private final class Attribute {
+		final String name;
+		final ATTRIBUTE_DATA_TYPE dataType;
+		final Class<?> type;
+		final boolean isList;
+		final StringPool.Values values;
+		Object defaultValue;
+		// The column has the default value, rows holding it are not written
+		boolean columnDefault;
+		int stamp;
+
+		Attribute(String name, ATTRIBUTE_DATA_TYPE dataType, Class<?> type, boolean isList) {
+			this.name = strings.intern(name);
+			this.values = strings.values(this.name);
+			this.dataType = dataType;
+			this.type = type;
+			this.isList = isList;
+		}
+
+		/**
+		 * Convert to what the column holds, which is the declared type except for Cytoscape's own columns
+		 */
+		Attribute(CyColumn column, ATTRIBUTE_DATA_TYPE dataType) {
+			this(column.getName(), dataType, column.getType() == List.class ? column.getListElementType() : column.getType(),
+					column.getType() == List.class);
+		}
+
+		Object convert(Object value, boolean check) throws NdexException {
+			if (value == null) {
+				return null;
+			}
+			if (!isList) {
+				return convertSingle(value, check);
+			}
+			if (!(value instanceof List)) {
+				throw typeError(value);
+			}
+			final List<?> list = (List<?>) value;
+			if (!check && (type == String.class || type == Boolean.class)) {
+				// Already what the column holds, no number to widen
+				return list;
+			}
+			final List<Object> converted = new ArrayList<>(list.size());
+			for (Object v : list) {
+				converted.add(v == null ? null : convertSingle(v, check));
+			}
+			return converted;
+		}
+
+		private Object convertSingle(Object value, boolean check) throws NdexException {
+			if (type == String.class) {
+				if (value instanceof String) {
+					return values.intern((String) value);
+				}
+			} else if (type == Boolean.class) {
+				if (value instanceof Boolean) {
+					return value;
+				}
+			} else if (type == Double.class) {
+				if (value instanceof Double) {
+					return value;
+				} else if (value instanceof Number) {
+					return ((Number) value).doubleValue();
+				}
+			} else if (type == Long.class) {
+				if (value instanceof Long) {
+					return value;
+				} else if (value instanceof Number && (!check || isIntegral((Number) value, Long.MIN_VALUE, Long.MAX_VALUE))) {
+					return ((Number) value).longValue();
+				}
+			} else if (type == Integer.class) {
+				if (value instanceof Integer) {
+					return value;
+				} else if (value instanceof Number && (!check || isIntegral((Number) value, Integer.MIN_VALUE, Integer.MAX_VALUE))) {
+					return ((Number) value).intValue();
+				}
+			} else {
+				return value;
+			}
+			throw typeError(value);
+		}
+
+		private NdexException typeError(Object value) {
+			return new NdexException(label + " attribute " + name + " has value " + value + " of type "
+					+ value.getClass().getSimpleName() + ", but it is declared as " + dataType + ".");
+		}
+	}
+
+	private static boolean isIntegral(Number n, long min, long max) {
+		if (n instanceof BigInteger) {
+			return ((BigInteger) n).bitLength() < 64 && n.longValue() >= min && n.longValue() <= max;
+		}
+		if (n instanceof Double || n instanceof Float) {
+			final double d = n.doubleValue();
+			return d == Math.rint(d) && d >= min && d <= max;
+		}
+		return n.longValue() >= min && n.longValue() <= max;
+	}
+}
@@ -0,0 +1,141 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+/**
+ * The columns of a node or edge table that are written as attributes of CX2 elements, decided
+ * once per table instead of for every row.
+ *
+ * The decisions that only depend on the column, {@link Settings#isIgnoreColumn}, the column
+ * filter and the excluded name prefixes, are made when the plan is built. Each row then reads
+ * the planned columns directly, and only the value checks remain: null and non-finite values,
+ * {@link Settings#isIgnoreValue} and values equal to the declared default. The attributes are
+ * written to the JSON generator as they are read, see {@link Cx2ElementEncoder}.
+ */
+final class Cx2ColumnPlan {
+
+	private static final String ATTRIBUTES = "v";
+
+	private final String[] names;
+	private final Class<?>[] types;
+	// Element type of list columns, null for the others
+	private final Class<?>[] listTypes;
+	private final Object[] defaults;
+
+	/**
+	 * @param table the default node or edge table of the exported network
+	 * @param ignored additional column names to ignore
+	 * @param columnFilter the columns to export, or null for all
+	 * @param defaults declared default values by column name, values equal to them are left out
+	 * @param excludedPrefixes column names starting with these are left out
+	 */
+	Cx2ColumnPlan(CyTable table, Set<String> ignored, Collection<String> columnFilter,
+			Map<String, Object> defaults, String... excludedPrefixes) {
+		final List<CyColumn> columns = new ArrayList<>();
+		for (CyColumn column : table.getColumns()) {
+			if (isIncluded(column.getName(), ignored, columnFilter, excludedPrefixes)) {
+				columns.add(column);
+			}
+		}
+		final int n = columns.size();
+		names = new String[n];
+		types = new Class<?>[n];
+		listTypes = new Class<?>[n];
+		this.defaults = new Object[n];
+		for (int i = 0; i < n; i++) {
+			final CyColumn column = columns.get(i);
+			names[i] = column.getName();
+			types[i] = column.getType();
+			listTypes[i] = column.getType() == List.class ? column.getListElementType() : null;
+			this.defaults[i] = defaults.get(names[i]);
+		}
+	}
+
+	private static boolean isIncluded(String name, Set<String> ignored, Collection<String> columnFilter,
+			String[] excludedPrefixes) {
+		if (Settings.isIgnoreColumn(name, ignored)) {
+			return false;
+		}
+		if (columnFilter != null && !columnFilter.contains(name)) {
+			return false;
+		}
+		for (String prefix : excludedPrefixes) {
+			if (name.startsWith(prefix)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Write the attributes of the row in column order as the "v" member of the element being
+	 * generated, without collecting them first
+	 * @param always write the member even if the row has no attributes to write
+	 */
+	void writeAttributes(CyRow row, JsonGenerator gen, SerializerProvider provider, boolean always) throws IOException {
+		boolean started = false;
+		if (always) {
+			gen.writeObjectFieldStart(ATTRIBUTES);
+			started = true;
+		}
+		for (int i = 0; i < names.length; i++) {
+			final Object value = listTypes[i] != null ? row.getList(names[i], listTypes[i]) : row.get(names[i], types[i]);
+			if (value == null || (value instanceof Double && !Double.isFinite((Double) value))) {
+				continue;
+			}
+			if (Settings.isIgnoreValue(names[i], value) || value.equals(defaults[i])) {
+				continue;
+			}
+			if (!started) {
+				gen.writeObjectFieldStart(ATTRIBUTES);
+				started = true;
+			}
+			gen.writeFieldName(names[i]);
+			writeValue(value, gen, provider);
+		}
+		if (started) {
+			gen.writeEndObject();
+		}
+	}
+
+	/**
+	 * The values of Cytoscape columns, written like the default serializers of their types do
+	 */
+	private static void writeValue(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+		if (value instanceof String) {
+			gen.writeString((String) value);
+		} else if (value instanceof Double) {
+			gen.writeNumber((Double) value);
+		} else if (value instanceof Integer) {
+			gen.writeNumber((Integer) value);
+		} else if (value instanceof Long) {
+			gen.writeNumber((Long) value);
+		} else if (value instanceof Boolean) {
+			gen.writeBoolean((Boolean) value);
+		} else if (value instanceof List) {
+			gen.writeStartArray();
+			for (Object v : (List<?>) value) {
+				if (v == null) {
+					gen.writeNull();
+				} else {
+					writeValue(v, gen, provider);
+				}
+			}
+			gen.writeEndArray();
+		} else {
+			provider.defaultSerializeValue(value, gen);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.IOException;
+
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.ndexbio.cx2.aspect.element.core.CxEdge;
+import org.ndexbio.cx2.aspect.element.core.CxNode;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Encodes CX2 nodes and edges straight from their rows and node views.
+ *
+ * The CXWriter serializes elements through databind. Instead of a new CxNode or CxEdge with a
+ * map of attributes for every element, one {@link Node} or {@link Edge} is pointed at each
+ * element in turn and handed to the writer. Its serializer writes the members with the writer's
+ * JSON generator, the attributes through the {@link Cx2ColumnPlan}. The members are written in
+ * the order and with the omissions of the CxNode and CxEdge serialization:
+ * <pre>
+ * {"id":1,"v":{...},"x":0.0,"y":0.0,"z":0.0}    "v" always, "x" and "y" with a view, "z" if used
+ * {"id":2,"v":{...},"s":1,"t":1}                "v" only if there are attributes
+ * </pre>
+ */
+final class Cx2ElementEncoder {
+
+	private Cx2ElementEncoder() {
+	}
+
+	/**
+	 * The node being written
+	 */
+	@JsonSerialize(using = NodeSerializer.class)
+	static final class Node extends CxNode {
+		private final Cx2ColumnPlan columns;
+		private final boolean zUsed;
+
+		private long nodeId;
+		private CyRow row;
+		private View<CyNode> nodeView;
+
+		/**
+		 * @param zUsed write the z location of the node views
+		 */
+		Node(Cx2ColumnPlan columns, boolean zUsed) {
+			this.columns = columns;
+			this.zUsed = zUsed;
+		}
+
+		/**
+		 * @param nodeView null if the network is exported without a view
+		 */
+		Node set(long nodeId, CyRow row, View<CyNode> nodeView) {
+			this.nodeId = nodeId;
+			this.row = row;
+			this.nodeView = nodeView;
+			return this;
+		}
+	}
+
+	/**
+	 * The edge being written
+	 */
+	@JsonSerialize(using = EdgeSerializer.class)
+	static final class Edge extends CxEdge {
+		private final Cx2ColumnPlan columns;
+
+		private long edgeId;
+		private long sourceId;
+		private long targetId;
+		private CyRow row;
+
+		Edge(Cx2ColumnPlan columns) {
+			this.columns = columns;
+		}
+
+		Edge set(long edgeId, long sourceId, long targetId, CyRow row) {
+			this.edgeId = edgeId;
+			this.sourceId = sourceId;
+			this.targetId = targetId;
+			this.row = row;
+			return this;
+		}
+	}
+
+	public static final class NodeSerializer extends StdSerializer<Node> {
+		private static final long serialVersionUID = 1L;
+
+		public NodeSerializer() {
+			super(Node.class);
+		}
+
+		@Override
+		public void serialize(Node node, JsonGenerator gen, SerializerProvider provider) throws IOException {
+			gen.writeStartObject();
+			gen.writeNumberField("id", node.nodeId);
+			node.columns.writeAttributes(node.row, gen, provider, true);
+			if (node.nodeView != null) {
+				writeLocation("x", node.nodeView.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION), gen);
+				writeLocation("y", node.nodeView.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION), gen);
+				if (node.zUsed) {
+					writeLocation("z", node.nodeView.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION), gen);
+				}
+			}
+			gen.writeEndObject();
+		}
+
+		private static void writeLocation(String name, Double value, JsonGenerator gen) throws IOException {
+			if (value != null) {
+				gen.writeNumberField(name, value);
+			}
+		}
+	}
+
+	public static final class EdgeSerializer extends StdSerializer<Edge> {
+		private static final long serialVersionUID = 1L;
+
+		public EdgeSerializer() {
+			super(Edge.class);
+		}
+
+		@Override
+		public void serialize(Edge edge, JsonGenerator gen, SerializerProvider provider) throws IOException {
+			gen.writeStartObject();
+			gen.writeNumberField("id", edge.edgeId);
+			edge.columns.writeAttributes(edge.row, gen, provider, false);
+			gen.writeNumberField("s", edge.sourceId);
+			gen.writeNumberField("t", edge.targetId);
+			gen.writeEndObject();
+		}
+	}
+}
@@ -1,17 +1,22 @@
 package org.cytoscape.io.internal.cxio;
 
 import java.awt.Paint;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.cytoscape.io.internal.CxPreferences;
@@ -72,7 +77,11 @@ import org.ndexbio.model.exceptions.NdexException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -85,6 +94,19 @@ public final class Cx2Importer {
 	
 	private static final Logger logger = LoggerFactory.getLogger("CX2 Importer");
 
+	// Bytes of elements parsed by one task in a parallel import
+	private static final int PARALLEL_CHUNK_SIZE = 4 * 1024 * 1024;
+
+	// Bytes at the head of the document searched for the metaData fragment
+	private static final int METADATA_PEEK_SIZE = 64 * 1024;
+	// Largest number of entries the ID maps are presized for
+	private static final int MAX_PRESIZE = 1 << 26;
+
+	// Fragments checked instead of being read as aspects in a parallel import
+	private static final String METADATA = "metaData";
+	private static final String STATUS = "status";
+	private static final Set<String> CHECKED_FRAGMENTS = new HashSet<>(Arrays.asList(METADATA, STATUS));
+
     private InputStream input;
 	
     private CyNetwork base;
@@ -93,7 +115,8 @@ public final class Cx2Importer {
     
     private CxAttributeDeclaration attrDecls;
     
-    private boolean createView;
+    // Explicit choice of the reader, or null to follow the preferences
+    private Boolean createView;
     
     private CyNetworkView currentView;
     
@@ -102,13 +125,13 @@ public final class Cx2Importer {
     private CyTable baseNetworkTable;
     
     //CX ID to suid mapping table
-    private Map<Long,Long> nodeIdMap;
+    private LongLongMap nodeIdMap;
     
     //CX ID to suid mapping table
-    private Map<Long,Long> edgeIdMap;
+    private LongLongMap edgeIdMap;
     
-    // node suid to CxNodes mapping table. 
-    private Map<Long, CxNode> cxNodes;
+    // Node positions in document order, for the layout
+    private NodeCoordinates coordinates;
     
     private CxVisualProperty visualProperties;
     
@@ -130,13 +153,27 @@ public final class Cx2Importer {
 
     private AbstractTableVisualProperty tableStyle;
 
-	public Cx2Importer(InputStream in, boolean createView) {
+    // Repeated attribute values of this import
+    private final StringPool strings;
+
+    // Declarations compiled against the node and edge tables
+    private Cx2AttributeSchema nodeSchema;
+    private Cx2AttributeSchema edgeSchema;
+
+	/**
+	 * @param createView whether to create a view, or null to decide from the cx.createView
+	 * preference and the size of the network, see CxPreferences.shouldCreateView()
+	 */
+	public Cx2Importer(InputStream in, Boolean createView) {
 
     	this.input = in;
     	this.createView = createView;
-    	nodeIdMap = new TreeMap<>();
-    	edgeIdMap = new TreeMap<>();
-    	cxNodes = new TreeMap<>();
+    	nodeIdMap = new LongLongMap();
+    	edgeIdMap = new LongLongMap();
+    	coordinates = new NodeCoordinates();
+    	strings = new StringPool();
+    	nodeSchema = null;
+    	edgeSchema = null;
     	hasLayout = false;
     	
     	base = null;
@@ -168,77 +205,271 @@ public final class Cx2Importer {
 		this.collectionName = collectionName;
 	}
 
+	/**
+	 * @see #Cx2Importer(InputStream, Boolean)
+	 */
+	public void setCreateView(Boolean createView) {
+		this.createView = createView;
+	}
+
 
   
     public CyNetwork importNetwork() throws IOException, NdexException {
+    	return importNetwork(null);
+    }
+
+    /**
+     * @param cancelled checked between elements, may be null
+     * @return the imported network, or null if the import was cancelled
+     */
+    public CyNetwork importNetwork(BooleanSupplier cancelled) throws IOException, NdexException {
         long t0 = System.currentTimeMillis();
 		
         long nodeIdCounter = 0;
         long edgeIdCounter = 0;
         
-		CXReader cxreader = new CXReader(input);
-		
 		CyNetworkFactory network_factory = CyServiceModule.getService(CyNetworkFactory.class);
 		
 		base = network_factory.createNetwork();
 	//	root = ((CySubNetwork)base).getRootNetwork();
+		presizeIdMaps();
 		
 		  
-		for ( CxAspectElement elmt : cxreader ) {
-			switch ( elmt.getAspectName() ) {
-				case CxAttributeDeclaration.ASPECT_NAME:
-					attrDecls = (CxAttributeDeclaration)elmt;
-					if ( !attrDecls.getDeclarations().isEmpty())
-						initializeTables();
-					break;
-				case CxNode.ASPECT_NAME :       //Node
-					createNode((CxNode) elmt);
-					break;
-				case CxEdge.ASPECT_NAME:       // Edge
-					CxEdge ee = (CxEdge) elmt;
-					createEdge(ee);
-					break;
-				case CxNetworkAttribute.ASPECT_NAME: //network attributes
-					createNetworkAttribute(( CxNetworkAttribute) elmt);
-					break;
-				case CxVisualProperty.ASPECT_NAME: 
-					visualProperties = (CxVisualProperty) elmt;
-					visualProperties.evaluate();
-					break;
-				case CxNodeBypass.ASPECT_NAME: 
-					nodeBypasses.add((CxNodeBypass) elmt );
-					break;
-				case CxEdgeBypass.ASPECT_NAME:
-					edgeBypasses.add((CxEdgeBypass) elmt);
-					break;
-				case VisualEditorProperties.ASPECT_NAME: 
-					if ( this.editorProperties == null) 
-						this.editorProperties = (VisualEditorProperties) elmt;
-					else 
-						throw new NdexException("Only one " + VisualEditorProperties.ASPECT_NAME + " element is allowed in a CX2 network.");
-					break;
-				case AbstractTableVisualProperty.ASPECT_NAME:
-					if ( this.tableStyle == null)
-						this.tableStyle = (AbstractTableVisualProperty)elmt;
-					else
-						throw new NdexException ("Only one " + AbstractTableVisualProperty.ASPECT_NAME + " element is allowed in a CX2 network." );
-					break;
-				default:    // opaque aspect
-					addOpaqueAspectElement((CxOpaqueAspectElement)elmt);
+		// Nobody listens to the unregistered network yet, its row events are dropped
+		try (TableEventScope events = new TableEventScope()) {
+			events.silence(base);
+			final boolean complete = CxPreferences.getParallelImport() ? readAspectsParallel(cancelled)
+					: readAspects(new CXReader(input), cancelled);
+			if (!complete) {
+				base = null;
+				return null;
 			}
-
-		} 
-   
-		serializeOpaqueAspects();
-		
-     	// create the view
-	/*	CyEventHelper cyEventHelper = CyServiceModule.getService(CyEventHelper.class);
-		cyEventHelper.flushPayloadEvents();
-	*/
+			serializeOpaqueAspects();
+		}
+		if (Settings.INSTANCE.isTiming()) {
+			TimingUtil.reportStringPool("strings", strings);
+		}
 		return base;
     }
     
-    private void initializeTables() {
+    /**
+     * Size the ID maps for the node and edge counts of the metaData fragment, which comes first
+     * in a CX2 document. The bytes read to find it are replayed in front of the rest of the input.
+     */
+    private void presizeIdMaps() throws IOException {
+    	final byte[] head = new byte[METADATA_PEEK_SIZE];
+    	int length = 0;
+    	int n;
+    	while (length < head.length && (n = input.read(head, length, head.length - length)) > 0) {
+    		length += n;
+    	}
+    	input = new SequenceInputStream(new ByteArrayInputStream(head, 0, length), input);
+
+    	final Map<String, Long> counts = readElementCounts(head, length);
+    	final Long nodes = counts.get(CxNode.ASPECT_NAME);
+    	if (nodes != null && nodes > 0) {
+    		nodeIdMap = new LongLongMap((int) Math.min(nodes, MAX_PRESIZE), -1);
+    	}
+    	final Long edges = counts.get(CxEdge.ASPECT_NAME);
+    	if (edges != null && edges > 0) {
+    		edgeIdMap = new LongLongMap((int) Math.min(edges, MAX_PRESIZE), -1);
+    	}
+    }
+
+    /**
+     * @return the element counts by aspect name from the metaData fragment in the given head of
+     * the document, empty or incomplete if the fragment is not in it
+     */
+    private static Map<String, Long> readElementCounts(byte[] head, int length) {
+    	final Map<String, Long> counts = new HashMap<>();
+    	try (JsonParser parser = new JsonFactory().createParser(head, 0, length)) {
+    		if (parser.nextToken() != JsonToken.START_ARRAY) {
+    			return counts;
+    		}
+    		while (parser.nextToken() == JsonToken.START_OBJECT) {
+    			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+    				final String aspect = parser.currentName();
+    				if (parser.nextToken() != JsonToken.START_ARRAY || !"metaData".equals(aspect)) {
+    					parser.skipChildren();
+    					continue;
+    				}
+    				while (parser.nextToken() == JsonToken.START_OBJECT) {
+    					String name = null;
+    					long count = -1;
+    					while (parser.nextToken() == JsonToken.FIELD_NAME) {
+    						final String field = parser.currentName();
+    						final JsonToken value = parser.nextToken();
+    						if ("name".equals(field) && value == JsonToken.VALUE_STRING) {
+    							name = parser.getText();
+    						} else if ("elementCount".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+    							count = parser.getLongValue();
+    						} else {
+    							parser.skipChildren();
+    						}
+    					}
+    					if (name != null && count >= 0) {
+    						counts.put(name, count);
+    					}
+    				}
+    				return counts;
+    			}
+    		}
+    	} catch (IOException e) {
+    		// Not a complete metaData fragment in the head, the maps grow as needed
+    	}
+    	return counts;
+    }
+
+    /**
+     * The aspects are parsed on a thread of their own while the network is built here, see
+     * {@link PipelinedReader}.
+     * @return false if the import was cancelled
+     */
+    private boolean readAspects(CXReader cxreader, BooleanSupplier cancelled) throws IOException, NdexException {
+		try (PipelinedReader<CxAspectElement> pipeline = new PipelinedReader<>(cxreader, "CX2 parser")) {
+			List<CxAspectElement> batch;
+			while ((batch = pipeline.nextBatch()) != null) {
+				if (cancelled != null && cancelled.getAsBoolean()) {
+					return false;
+				}
+				for (CxAspectElement elmt : batch) {
+					readAspect(elmt);
+				}
+			}
+		}
+		return true;
+    }
+
+    /**
+     * Parse the aspects in chunks on the fork/join pool, see {@link ParallelChunkReader}. The
+     * parsed elements are added to the network on this thread in document order, so the network
+     * is built as by {@link #readAspects(CXReader, BooleanSupplier)}.
+     * @return false if the import was cancelled
+     */
+    private boolean readAspectsParallel(BooleanSupplier cancelled) throws IOException, NdexException {
+    	final long t0 = System.currentTimeMillis();
+    	final ParallelChunkReader<ParsedChunk> reader = new ParallelChunkReader<>(
+    			new CxFragmentSplitter(input, PARALLEL_CHUNK_SIZE, CxFragmentSplitter.CX2_HEADER), Cx2Importer::parse);
+    	final boolean complete = reader.read(chunk -> {
+    		if (chunk.fragment != null) {
+    			checkFragment(chunk.aspectName, chunk.fragment);
+    		}
+    		for (CxAspectElement elmt : chunk.elements) {
+    			readAspect(elmt);
+    		}
+    	}, cancelled);
+    	if (Settings.INSTANCE.isTiming()) {
+    		TimingUtil.reportTimeDifference(t0, "CX2 aspects from " + reader.getChunkCount() + " chunks", -1);
+    	}
+    	return complete;
+    }
+
+    /**
+     * Parse the elements of a chunk. The metaData and status fragments are decoded as JSON, they
+     * are checked in document order by {@link #checkFragment(String, JsonNode)}.
+     */
+    private static ParsedChunk parse(CxFragmentSplitter.Chunk chunk) throws IOException, NdexException {
+    	if (CHECKED_FRAGMENTS.contains(chunk.getAspectName())) {
+    		final JsonNode document = new ObjectMapper().readTree(chunk.getInputStream());
+    		final JsonNode fragment = document.get(document.size() - 1).get(chunk.getAspectName());
+    		return new ParsedChunk(chunk.getAspectName(), Collections.emptyList(), fragment);
+    	}
+    	final List<CxAspectElement> elements = new ArrayList<>(chunk.getElementCount());
+    	for (CxAspectElement elmt : new CXReader(chunk.getInputStream())) {
+    		elements.add(elmt);
+    	}
+    	return new ParsedChunk(chunk.getAspectName(), elements, null);
+    }
+
+    /**
+     * Check a metaData or status fragment as the CX2 reader of a whole document does: metadata
+     * names the aspects and counts their elements, and the status has to report success.
+     */
+    private static void checkFragment(String aspectName, JsonNode fragment) throws NdexException {
+    	if (fragment == null || !fragment.isArray()) {
+    		throw new NdexException("Malformed CX2 " + aspectName + " fragment: array expected");
+    	}
+    	for (JsonNode element : fragment) {
+    		if (METADATA.equals(aspectName)) {
+    			final JsonNode name = element.get("name");
+    			final JsonNode count = element.get("elementCount");
+    			if (name == null || !name.isTextual()) {
+    				throw new NdexException("Malformed CX2 metaData: element without an aspect name");
+    			}
+    			if (count != null && !count.isNull() && !(count.isIntegralNumber() && count.asLong() >= 0)) {
+    				throw new NdexException("Malformed CX2 metaData: invalid elementCount of " + name.asText());
+    			}
+    		} else {
+    			final JsonNode success = element.get("success");
+    			if (success == null || !success.isBoolean()) {
+    				throw new NdexException("Malformed CX2 status: success expected");
+    			}
+    			if (!success.booleanValue()) {
+    				final JsonNode error = element.get("error");
+    				throw new NdexException("CX2 document reports an error: " + (error == null ? "" : error.asText()));
+    			}
+    		}
+    	}
+    }
+
+    private static final class ParsedChunk {
+    	final String aspectName;
+    	final List<CxAspectElement> elements;
+    	// The metaData or status fragment, see CHECKED_FRAGMENTS
+    	final JsonNode fragment;
+
+    	ParsedChunk(String aspectName, List<CxAspectElement> elements, JsonNode fragment) {
+    		this.aspectName = aspectName;
+    		this.elements = elements;
+    		this.fragment = fragment;
+    	}
+    }
+
+    private void readAspect(CxAspectElement elmt) throws NdexException {
+		switch ( elmt.getAspectName() ) {
+			case CxAttributeDeclaration.ASPECT_NAME:
+				attrDecls = (CxAttributeDeclaration)elmt;
+				if ( !attrDecls.getDeclarations().isEmpty())
+					initializeTables();
+				break;
+			case CxNode.ASPECT_NAME :       //Node
+				createNode((CxNode) elmt);
+				break;
+			case CxEdge.ASPECT_NAME:       // Edge
+				CxEdge ee = (CxEdge) elmt;
+				createEdge(ee);
+				break;
+			case CxNetworkAttribute.ASPECT_NAME: //network attributes
+				createNetworkAttribute(( CxNetworkAttribute) elmt);
+				break;
+			case CxVisualProperty.ASPECT_NAME: 
+				visualProperties = (CxVisualProperty) elmt;
+				visualProperties.evaluate();
+				break;
+			case CxNodeBypass.ASPECT_NAME: 
+				nodeBypasses.add((CxNodeBypass) elmt );
+				break;
+			case CxEdgeBypass.ASPECT_NAME:
+				edgeBypasses.add((CxEdgeBypass) elmt);
+				break;
+			case VisualEditorProperties.ASPECT_NAME: 
+				if ( this.editorProperties == null) 
+					this.editorProperties = (VisualEditorProperties) elmt;
+				else 
+					throw new NdexException("Only one " + VisualEditorProperties.ASPECT_NAME + " element is allowed in a CX2 network.");
+				break;
+			case AbstractTableVisualProperty.ASPECT_NAME:
+				if ( this.tableStyle == null)
+					this.tableStyle = (AbstractTableVisualProperty)elmt;
+				else
+					throw new NdexException ("Only one " + AbstractTableVisualProperty.ASPECT_NAME + " element is allowed in a CX2 network." );
+				break;
+			default:    // opaque aspect
+				addOpaqueAspectElement((CxOpaqueAspectElement)elmt);
+		}
+    }
+
+    private void initializeTables() throws NdexException {
         	
     	if (attrDecls.getDeclarations().isEmpty())
     		return;
@@ -246,11 +477,8 @@ public final class Cx2Importer {
     	baseNetworkTable = base.getDefaultNetworkTable();
     	createTableAttrs(attrDecls.getDeclarations().get(CxNetworkAttribute.ASPECT_NAME),baseNetworkTable, Settings.cytoscapeBuiltinTableAttributes);
 		
-		baseNodeTable = base.getDefaultNodeTable();
-		createTableAttrs(attrDecls.getDeclarations().get(CxNode.ASPECT_NAME), baseNodeTable, Settings.cytoscapeBuiltinTableAttributes);
-
-		baseEdgeTable = base.getDefaultEdgeTable();
-		createTableAttrs(attrDecls.getDeclarations().get(CxEdge.ASPECT_NAME), baseEdgeTable, Settings.cytoscapeBuiltinEdgeTableAttributes);
+		// The node and edge columns are created with their declared defaults
+		compileSchemas();
 		
     }
 
@@ -270,6 +498,22 @@ public final class Cx2Importer {
     }
     
     
+    /**
+     * Compile the node and edge declarations, creating their columns. Without declarations the
+     * schemas are empty and any attribute is reported as undeclared.
+     */
+    private void compileSchemas() throws NdexException {
+    	final boolean trusted = CxPreferences.getTrustedImport();
+    	baseNodeTable = base.getDefaultNodeTable();
+    	baseEdgeTable = base.getDefaultEdgeTable();
+    	nodeSchema = new Cx2AttributeSchema("Node", getDeclarations(CxNode.ASPECT_NAME), baseNodeTable, trusted, strings);
+    	edgeSchema = new Cx2AttributeSchema("Edge", getDeclarations(CxEdge.ASPECT_NAME), baseEdgeTable, trusted, strings);
+    }
+    
+    private Map<String, DeclarationEntry> getDeclarations(String aspectName) {
+    	return attrDecls == null ? null : attrDecls.getAttributesInAspect(aspectName);
+    }
+    
     private void createNode(CxNode node) throws NdexException {
     	
     	if (!hasLayout) {
@@ -277,12 +521,11 @@ public final class Cx2Importer {
     			hasLayout = true;
     	}
     	
-    	Map<String,DeclarationEntry> attributeDeclarations = attrDecls.getAttributesInAspect(CxNode.ASPECT_NAME);
-    	node.extendToFullNode(attributeDeclarations);
-		node.validateAttribute(attributeDeclarations, true);
+    	if (nodeSchema == null)
+    		compileSchemas();
     	// add node to cy data model.
-    	Long nodesuid = this.nodeIdMap.get(node.getId());
-    	if ( nodesuid == null) {
+    	long nodesuid = this.nodeIdMap.get(node.getId());
+    	if ( nodesuid == LongLongMap.NO_VALUE) {
     		CyNode cyNode = createCyNodeByCXId(node.getId());
     		nodesuid = cyNode.getSUID();		
     	} 
@@ -290,18 +533,12 @@ public final class Cx2Importer {
     	// add attributes
 		final CyRow localRow = baseNodeTable.getRow(nodesuid);
 
-		for ( Map.Entry<String,Object> e: node.getAttributes().entrySet()) {
-			String attrName = e.getKey();
-			if(attrName.equals(CyNetwork.SUID))
-				continue;
-			if (baseNodeTable.getColumn(attrName) != null) {
-				localRow.set(attrName, e.getValue());
-			} else 
-				throw new NdexException("Node attribute " + e.getKey() + " is not declared.");
-		}
+		nodeSchema.apply(node.getAttributes(), localRow);
     	
-		// add cxnode to table
-		cxNodes.put(nodesuid, node);
+		// keep only the position for the layout, the CxNode is dropped
+		if (node.getX() != null) {
+			coordinates.add(nodesuid, node.getX(), node.getY() == null ? 0 : node.getY(), node.getZ());
+		}
 		
 		/*if ( currentView !=null) {
             final View<CyNode> node_view = currentView.getNodeView(cyNode);
@@ -319,21 +556,20 @@ public final class Cx2Importer {
     
     private void createEdge(CxEdge edge) throws NdexException {
 
-    	Map<String,DeclarationEntry> attributeDeclarations = attrDecls.getAttributesInAspect(CxEdge.ASPECT_NAME);
-    	edge.extendToFullNode(attributeDeclarations);
-		edge.validateAttribute(attributeDeclarations, true);
+    	if (edgeSchema == null)
+    		compileSchemas();
  	    	
     	// add edge 
     	CyNode src,tgt;
     	
-    	Long srcsuid = this.nodeIdMap.get(edge.getSource());
-    	if ( srcsuid == null) {
+    	long srcsuid = this.nodeIdMap.get(edge.getSource());
+    	if ( srcsuid == LongLongMap.NO_VALUE) {
     		src = createCyNodeByCXId(edge.getSource());
     	} else 
     		src = base.getNode(srcsuid);
     	
-    	Long tgtsuid = this.nodeIdMap.get(edge.getTarget());
-    	if ( tgtsuid == null) {
+    	long tgtsuid = this.nodeIdMap.get(edge.getTarget());
+    	if ( tgtsuid == LongLongMap.NO_VALUE) {
     		tgt = createCyNodeByCXId ( edge.getTarget());
     	} else
     		tgt = base.getNode(tgtsuid);
@@ -345,19 +581,10 @@ public final class Cx2Importer {
     	// edge edge attributes
 		CyRow localRow = baseEdgeTable.getRow(cyEdge.getSUID());
 
-		for ( Map.Entry<String,Object> e: edge.getAttributes().entrySet()) {
-			if (e.getKey().equals(CyNetwork.SUID))
-				continue;
-			if (baseEdgeTable.getColumn(e.getKey()) != null) {
-				localRow.set(e.getKey(), e.getValue());
-			} else 
-				throw new NdexException("Edge attribute " + e.getKey() + " is not declared.");
-		}
+		edgeSchema.apply(edge.getAttributes(), localRow);
 		
-		if ( attributeDeclarations!=null && (! attributeDeclarations.containsKey(CxUtil.SHARED_INTERACTION) && 
-				attributeDeclarations.containsKey(CxUtil.INTERACTION))) {
-			Object v = edge.getAttributes().get(CxUtil.INTERACTION);
-			localRow.set(CxUtil.SHARED_INTERACTION,v);			
+		if (!edgeSchema.isDeclared(CxUtil.SHARED_INTERACTION) && edgeSchema.isDeclared(CxUtil.INTERACTION)) {
+			localRow.set(CxUtil.SHARED_INTERACTION, edgeSchema.getValue(edge.getAttributes(), CxUtil.INTERACTION));
 		}
 		
     }
@@ -422,7 +649,8 @@ public final class Cx2Importer {
 	}
     
 	public CyNetworkView createView() throws Exception {
-		if ( createView) {
+		final long networkSize = base.getNodeCount() + base.getEdgeCount();
+		if (CxPreferences.shouldCreateView(createView, networkSize)) {
 			CyNetworkViewFactory view_factory = CyServiceModule.getService(CyNetworkViewFactory.class);
 			CyNetworkViewManager view_manager = CyServiceModule.getService(CyNetworkViewManager.class);
 
@@ -490,19 +718,19 @@ public final class Cx2Importer {
 
         
         if(hasLayout) {
-        	for ( Map.Entry<Long, CxNode> e: cxNodes.entrySet()) {
-        		CyNode node = base.getNode(e.getKey());
+        	for (int i = 0; i < coordinates.size(); i++) {
+        		CyNode node = base.getNode(coordinates.getSuid(i));
                 final View<CyNode> nodeView = currentView.getNodeView(node);
                 if (nodeView != null) {
-                	CxNode n = e.getValue();
-                    nodeView.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, n.getX());
-                    nodeView.setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, n.getY());
-                    if (n.getZ() !=null) {
+                    nodeView.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, coordinates.getX(i));
+                    nodeView.setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, coordinates.getY(i));
+                    if (coordinates.hasZ(i)) {
                         nodeView.setVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION,
-                                                    n.getZ());
+                                                    coordinates.getZ(i));
                     }
                 }
         	}
+        	coordinates.clear();
         	doLayout = null;
         }
         
@@ -581,7 +809,7 @@ public final class Cx2Importer {
         
     	//Node Bypasses
         for (CxNodeBypass bypass: nodeBypasses) {
-        	Long suid = this.nodeIdMap.get(bypass.getId());
+        	long suid = this.nodeIdMap.get(bypass.getId());
         	CyNode n = this.base.getNode(suid);
         	VisualPropertyTable vps = bypass.getVisualProperties();
             final View<CyNode> nv = currentView.getNodeView(n);
@@ -597,7 +825,7 @@ public final class Cx2Importer {
         
         //Edge bypasses
         for (CxEdgeBypass bypass: edgeBypasses) {
-        	Long suid = this.edgeIdMap.get(bypass.getId());
+        	long suid = this.edgeIdMap.get(bypass.getId());
         	CyEdge e = this.base.getEdge(suid);
             final View<CyEdge> ev = currentView.getEdgeView(e);
 
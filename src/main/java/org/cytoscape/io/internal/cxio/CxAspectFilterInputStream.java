@@ -0,0 +1,351 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Filters the aspect fragments of a CX document before it reaches the JSON parser.
+ *
+ * A CX document is a top level array of fragments, each an object keyed by aspect name:
+ * <pre>
+ * [ {"metaData": [...]}, {"nodes": [...]}, {"provenanceHistory": [...]}, ... ]
+ * </pre>
+ * For every fragment member the filter asks for an {@link Action}:
+ * <ul>
+ * <li>PASS: the bytes are handed on unchanged</li>
+ * <li>SKIP: the value is scanned past without being tokenized or copied</li>
+ * <li>CAPTURE: the raw bytes of the value are kept aside, see {@link #getCapturedAspects()}</li>
+ * </ul>
+ * The scan only tracks strings and bracket depth, so skipped and captured aspects never build
+ * JSON tokens, trees or aspect elements.
+ */
+public class CxAspectFilterInputStream extends InputStream {
+
+	public enum Action {
+		PASS,
+		SKIP,
+		CAPTURE
+	}
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// Scanner states
+	private static final int TOP_START = 0;
+	private static final int TOP_NEXT = 1;
+	private static final int OBJECT_NEXT = 2;
+	private static final int KEY = 3;
+	private static final int COLON = 4;
+	private static final int VALUE_START = 5;
+	private static final int VALUE = 6;
+	private static final int TRAILER = 7;
+
+	private final InputStream in;
+	private final Function<String, Action> filter;
+
+	private final byte[] inBuffer = new byte[BUFFER_SIZE];
+	private int inPos = 0;
+	private int inLen = 0;
+	private boolean eof = false;
+
+	private byte[] outBuffer = new byte[BUFFER_SIZE];
+	private int outPos = 0;
+	private int outLen = 0;
+
+	private int state = TOP_START;
+	private int fragmentsWritten = 0;
+	private boolean objectOpen = false;
+
+	private final ByteArrayOutputStream key = new ByteArrayOutputStream();
+	private boolean keyEscape = false;
+	private String aspectName;
+	private Action action;
+	private ByteArrayOutputStream capture;
+
+	private int depth;
+	private boolean inString;
+	private boolean escape;
+	private long valueBytes;
+
+	private final Map<String, List<byte[]>> captured = new LinkedHashMap<>();
+	private final Map<String, Long> skipped = new HashMap<>();
+
+	public CxAspectFilterInputStream(InputStream in, Function<String, Action> filter) {
+		this.in = in;
+		this.filter = filter;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (outPos == outLen && !fill()) {
+			return -1;
+		}
+		return outBuffer[outPos++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (outPos == outLen && !fill()) {
+			return -1;
+		}
+		int n = Math.min(len, outLen - outPos);
+		System.arraycopy(outBuffer, outPos, b, off, n);
+		outPos += n;
+		return n;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return outLen - outPos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Raw values of the captured aspects, each merged into a single JSON array
+	 * @return aspect name to JSON array text, in document order
+	 */
+	public Map<String, String> getCapturedAspects() {
+		Map<String, String> result = new LinkedHashMap<>();
+		captured.forEach((name, fragments) -> {
+			StringBuilder sb = new StringBuilder("[");
+			boolean first = true;
+			for (byte[] fragment : fragments) {
+				String json = new String(fragment, StandardCharsets.UTF_8).trim();
+				if (json.startsWith("[") && json.endsWith("]")) {
+					json = json.substring(1, json.length() - 1).trim();
+				}
+				if (json.isEmpty()) {
+					continue;
+				}
+				if (!first) {
+					sb.append(',');
+				}
+				sb.append(json);
+				first = false;
+			}
+			result.put(name, sb.append(']').toString());
+		});
+		return result;
+	}
+
+	/**
+	 * @return aspect name to the number of bytes skipped for it
+	 */
+	public Map<String, Long> getSkippedAspects() {
+		return skipped;
+	}
+
+	private boolean fill() throws IOException {
+		outPos = 0;
+		outLen = 0;
+		while (outLen < BUFFER_SIZE && !eof) {
+			if (inPos == inLen) {
+				inLen = in.read(inBuffer, 0, BUFFER_SIZE);
+				inPos = 0;
+				if (inLen <= 0) {
+					inLen = 0;
+					eof = true;
+					break;
+				}
+			}
+			step(inBuffer[inPos++]);
+		}
+		return outLen > 0;
+	}
+
+	private void step(byte c) {
+		switch (state) {
+		case TOP_START:
+			if (c == '[') {
+				emit(c);
+				state = TOP_NEXT;
+			} else if (!isWhitespace(c)) {
+				// Not a CX document, leave it to the parser to complain
+				emit(c);
+				state = TRAILER;
+			}
+			break;
+		case TOP_NEXT:
+			if (c == '{') {
+				objectOpen = false;
+				state = OBJECT_NEXT;
+			} else if (c == ']') {
+				emit(c);
+				state = TRAILER;
+			} else if (c != ',' && !isWhitespace(c)) {
+				emit(c);
+				state = TRAILER;
+			}
+			break;
+		case OBJECT_NEXT:
+			if (c == '"') {
+				key.reset();
+				keyEscape = false;
+				state = KEY;
+			} else if (c == '}') {
+				if (objectOpen) {
+					emit(c);
+				}
+				state = TOP_NEXT;
+			} else if (c != ',' && !isWhitespace(c)) {
+				emit(c);
+				state = TRAILER;
+			}
+			break;
+		case KEY:
+			if (keyEscape) {
+				keyEscape = false;
+			} else if (c == '\\') {
+				keyEscape = true;
+			} else if (c == '"') {
+				state = COLON;
+				break;
+			}
+			key.write(c);
+			break;
+		case COLON:
+			if (c == ':') {
+				startMember();
+				state = VALUE_START;
+			}
+			break;
+		case VALUE_START:
+			if (isWhitespace(c)) {
+				break;
+			}
+			depth = 0;
+			inString = false;
+			escape = false;
+			valueBytes = 0;
+			state = VALUE;
+			// fall through to scan the first byte of the value
+		case VALUE:
+			scanValue(c);
+			break;
+		default:
+			emit(c);
+		}
+	}
+
+	private void startMember() {
+		aspectName = new String(key.toByteArray(), StandardCharsets.UTF_8);
+		action = filter.apply(aspectName);
+		if (action == null) {
+			action = Action.PASS;
+		}
+
+		switch (action) {
+		case PASS:
+			if (objectOpen) {
+				emit((byte) ',');
+			} else {
+				if (fragmentsWritten > 0) {
+					emit((byte) ',');
+				}
+				emit((byte) '{');
+				objectOpen = true;
+				fragmentsWritten++;
+			}
+			emit((byte) '"');
+			byte[] name = key.toByteArray();
+			for (byte b : name) {
+				emit(b);
+			}
+			emit((byte) '"');
+			emit((byte) ':');
+			break;
+		case CAPTURE:
+			capture = new ByteArrayOutputStream();
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void scanValue(byte c) {
+		if (inString) {
+			if (escape) {
+				escape = false;
+			} else if (c == '\\') {
+				escape = true;
+			} else if (c == '"') {
+				inString = false;
+			}
+			keep(c);
+			if (!inString && depth == 0) {
+				endMember();
+			}
+			return;
+		}
+
+		if (depth == 0 && valueBytes > 0 && (c == ',' || c == '}' || isWhitespace(c))) {
+			// End of a scalar value, the delimiter belongs to the enclosing object
+			endMember();
+			step(c);
+			return;
+		}
+
+		keep(c);
+		if (c == '"') {
+			inString = true;
+		} else if (c == '[' || c == '{') {
+			depth++;
+		} else if (c == ']' || c == '}') {
+			depth--;
+			if (depth == 0) {
+				endMember();
+			}
+		}
+	}
+
+	private void keep(byte c) {
+		valueBytes++;
+		switch (action) {
+		case PASS:
+			emit(c);
+			break;
+		case CAPTURE:
+			capture.write(c);
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void endMember() {
+		if (action == Action.CAPTURE) {
+			captured.computeIfAbsent(aspectName, k -> new ArrayList<>()).add(capture.toByteArray());
+			capture = null;
+		} else if (action == Action.SKIP) {
+			skipped.merge(aspectName, valueBytes, Long::sum);
+		}
+		state = OBJECT_NEXT;
+	}
+
+	private void emit(byte c) {
+		if (outLen == outBuffer.length) {
+			byte[] larger = new byte[outBuffer.length * 2];
+			System.arraycopy(outBuffer, 0, larger, 0, outLen);
+			outBuffer = larger;
+		}
+		outBuffer[outLen++] = c;
+	}
+
+	private static boolean isWhitespace(byte c) {
+		return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+	}
+}
@@ -0,0 +1,126 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.List;
+
+import org.ndexbio.cxio.aspects.datamodels.ATTRIBUTE_DATA_TYPE;
+import org.ndexbio.cxio.aspects.datamodels.EdgeAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodeAttributesElement;
+import org.ndexbio.cxio.util.JsonWriter;
+
+/**
+ * Encodes CX node and edge attributes straight from the values of their rows.
+ *
+ * Instead of a new NodeAttributesElement or EdgeAttributesElement with its values converted to
+ * strings for every cell, one {@link NodeAttribute} or {@link EdgeAttribute} is pointed at each
+ * cell in turn and written right away. It writes itself like the cxio elements do, converting the
+ * value while writing it:
+ * <pre>
+ * {"po":1,"n":"degree","v":"5","d":"integer","s":2}    "d" unless a string, "s" if in a collection
+ * </pre>
+ * The state of the cxio element itself is not used, so the encoder relies on the CxWriter handing
+ * the elements its JsonWriter through write(JsonWriter), which CxAttributeEncoderTest checks.
+ */
+final class CxAttributeEncoder {
+
+	private CxAttributeEncoder() {
+	}
+
+	/**
+	 * The node attribute being written
+	 */
+	static final class NodeAttribute extends NodeAttributesElement {
+		private final Cell cell = new Cell();
+
+		NodeAttribute() {
+			super(null, 0L, NodeAttributesElement.ASPECT_NAME, "", ATTRIBUTE_DATA_TYPE.STRING);
+		}
+
+		NodeAttribute set(Long subnetworkId, long nodeId, String name, Object value, ATTRIBUTE_DATA_TYPE type) {
+			cell.set(subnetworkId, nodeId, name, value, type);
+			return this;
+		}
+
+		@Override
+		public void write(JsonWriter out) throws IOException {
+			cell.write(out);
+		}
+	}
+
+	/**
+	 * The edge attribute being written
+	 */
+	static final class EdgeAttribute extends EdgeAttributesElement {
+		private final Cell cell = new Cell();
+
+		EdgeAttribute() {
+			super(null, 0L, EdgeAttributesElement.ASPECT_NAME, "", ATTRIBUTE_DATA_TYPE.STRING);
+		}
+
+		EdgeAttribute set(Long subnetworkId, long edgeId, String name, Object value, ATTRIBUTE_DATA_TYPE type) {
+			cell.set(subnetworkId, edgeId, name, value, type);
+			return this;
+		}
+
+		@Override
+		public void write(JsonWriter out) throws IOException {
+			cell.write(out);
+		}
+	}
+
+	private static final class Cell {
+		private final StringValues strings = new StringValues();
+
+		private Long subnetworkId;
+		private long propertyOf;
+		private String name;
+		private Object value;
+		private ATTRIBUTE_DATA_TYPE type;
+
+		void set(Long subnetworkId, long propertyOf, String name, Object value, ATTRIBUTE_DATA_TYPE type) {
+			this.subnetworkId = subnetworkId;
+			this.propertyOf = propertyOf;
+			this.name = name;
+			this.value = value;
+			this.type = type;
+		}
+
+		void write(JsonWriter out) throws IOException {
+			out.writeStartObject();
+			out.writeNumberField("po", propertyOf);
+			out.writeStringField("n", name);
+			if (type.isSingleValueType()) {
+				out.writeStringField("v", value instanceof String ? (String) value : String.valueOf(value));
+			} else {
+				strings.values = (List<?>) value;
+				out.writeList("v", strings);
+				strings.values = null;
+			}
+			if (type != ATTRIBUTE_DATA_TYPE.STRING) {
+				out.writeStringField("d", type.toString());
+			}
+			if (subnetworkId != null) {
+				out.writeNumberField("s", subnetworkId);
+			}
+			out.writeEndObject();
+		}
+	}
+
+	/**
+	 * The values of a list cell as strings, each converted as it is written
+	 */
+	private static final class StringValues extends AbstractList<String> {
+		private List<?> values;
+
+		@Override
+		public String get(int index) {
+			return String.valueOf(values.get(index));
+		}
+
+		@Override
+		public int size() {
+			return values.size();
+		}
+	}
+}
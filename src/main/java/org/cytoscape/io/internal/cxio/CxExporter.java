@@ -10,10 +10,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.cytoscape.application.CyApplicationManager;
@@ -106,9 +106,6 @@ import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 
 /**
  * This class is for serializing Cytoscape networks, views, and attribute tables
@@ -139,10 +136,30 @@ public final class CxExporter {
 	private final List<CySubNetwork> subnetworks;
 	
 	private boolean omitOpaqueAspects = false;
+	private boolean omitDefaultValues = false;
 	private List<String> nodeColumns, edgeColumns, networkColumns;
 	
+	// Column defaults declared in the CX2 attribute declarations, values equal to them are not written
+	private Map<String, Object> nodeDefaults = new HashMap<>();
+	private Map<String, Object> edgeDefaults = new HashMap<>();
+	
 	private HashMap<String, Long> idCounters = new HashMap<>();
 	
+	// The aspects with element IDs, for the ID counters in the post-metadata
+	private static final Map<String, Function<AspectElement, Long>> ID_GETTERS = new HashMap<>();
+	static {
+		ID_GETTERS.put(NodesElement.ASPECT_NAME, el -> ((NodesElement) el).getId());
+		ID_GETTERS.put(EdgesElement.ASPECT_NAME, el -> ((EdgesElement) el).getId());
+		ID_GETTERS.put(SubNetworkElement.ASPECT_NAME, el -> ((SubNetworkElement) el).getId());
+	}
+	
+	// Elements held at a time by the aspects that are streamed to the writer
+	private static final int STREAM_BATCH_SIZE = 1000;
+	
+	// Reused for every attribute written
+	private final CxAttributeEncoder.NodeAttribute nodeAttribute = new CxAttributeEncoder.NodeAttribute();
+	private final CxAttributeEncoder.EdgeAttribute edgeAttribute = new CxAttributeEncoder.EdgeAttribute();
+	
 	private Set<CyGroup> collapsed_groups;
 	
 	//Services needed to export
@@ -150,7 +167,6 @@ public final class CxExporter {
 	private final CyNetworkViewManager _networkview_manager;
 	
 	private CxWriter writer;
-	private String ID_STRING = "_id";
 	
 	private CyNetworkView view;
 	
@@ -948,20 +964,16 @@ public final class CxExporter {
 	
 	// Nodes, edges
 	private final void writeNodes() throws IOException {
-		// Handles nodes (and edges/nodes inside group nodes)
-		final HashMap<String, List<AspectElement>> elementMap = new HashMap<String, List<AspectElement>>();
-		
-		elementMap.put(NodesElement.ASPECT_NAME, new ArrayList<AspectElement>());
-		elementMap.put(CyGroupsElement.ASPECT_NAME, new ArrayList<AspectElement>());
+		// Handles nodes (and edges/nodes inside group nodes). Nodes are streamed, the few group
+		// elements are collected and written after them
+		final AspectStream nodes = new AspectStream(NodesElement.ASPECT_NAME);
+		final List<AspectElement> groups = new ArrayList<>();
 
 		for (final CyNode cy_node : baseNetwork.getNodeList()) {
-			addNodesAndGroupsElements(elementMap, cy_node, baseNetwork);
-		}
-
-		// Iterate through nodes (and groups/edges/attributes) aspects
-		for (String aspect : elementMap.keySet()) {
-			writeAspectElements(elementMap.get(aspect));
+			addNodesAndGroupsElements(nodes, groups, cy_node, baseNetwork);
 		}
+		nodes.end();
+		writeAspectElements(groups);
 	}
 	
 	private void writeCx2Nodes(CXWriter cx2Writer,CySubNetwork subnet) throws IOException, NdexException {
@@ -981,29 +993,15 @@ public final class CxExporter {
 			}
 		}
 			
+		final CyTable table = subnet.getDefaultNodeTable();
+		final Cx2ColumnPlan columns = new Cx2ColumnPlan(table, Settings.IGNORE_NODE_ATTRIBUTES, nodeColumns, nodeDefaults);
+		final Cx2ElementEncoder.Node cx2Node = new Cx2ElementEncoder.Node(columns, z_used);
+		
 		cx2Writer.startAspectFragment(CxNode.ASPECT_NAME);
 		for (final CyNode cyNode : subnet.getNodeList()) {
 			Long nodeId = CxUtil.getElementId(cyNode, subnet, useCxId);
-			LinkedHashMap<String,Object> nodeAttrs = new LinkedHashMap<>();
-			CyRow row = subnet.getRow(cyNode, CyNetwork.DEFAULT_ATTRS);
-			for ( Map.Entry<String, Object> e: row.getAllValues().entrySet()) {
-				Object value = e.getValue();
-				String name = e.getKey();
-				if (isNotNullandFinite(value) && !Settings.isIgnore(name, Settings.IGNORE_NODE_ATTRIBUTES, value) &&
-					   (nodeColumns == null || nodeColumns.contains(name))) {
-					nodeAttrs.put(name, value);	
-				}
-			}
-			CxNode cx2Node = new CxNode(nodeId, nodeAttrs);
-			if (view !=null) {
-					View<CyNode> nodeView = view.getNodeView(cyNode);
-					cx2Node.setX(nodeView.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION));
-					cx2Node.setY(nodeView.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION));
-					if (z_used) {
-						cx2Node.setZ(nodeView.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION));
-					}	
-			}
-			cx2Writer.writeElementInFragment(cx2Node);
+			View<CyNode> nodeView = view != null ? view.getNodeView(cyNode) : null;
+			cx2Writer.writeElementInFragment(cx2Node.set(nodeId, table.getRow(cyNode.getSUID()), nodeView));
 		}	
 		cx2Writer.endAspectFragment();
 		
@@ -1022,41 +1020,29 @@ public final class CxExporter {
 	
 	private final void writeEdges() throws IOException {
 
-		final List<AspectElement> edgeElements = new ArrayList<>();
+		final AspectStream edgeElements = new AspectStream(EdgesElement.ASPECT_NAME);
 		
 		for (CyEdge edge : baseNetwork.getEdgeList()) {
 			edgeElements.add(createEdgeElement(edge, baseNetwork));
 		}
-		writeAspectElements(edgeElements);
+		edgeElements.end();
 	}
 	
 	private void writeCx2Edges(CXWriter cx2Writer) throws IOException, NdexException {
 		for (final CySubNetwork subnet : subnetworks) {
 			if ( subnet.getEdgeCount()==0)
 				return;
+			final CyTable table = subnet.getDefaultEdgeTable();
+			final Cx2ColumnPlan columns = new Cx2ColumnPlan(table, Settings.IGNORE_NODE_ATTRIBUTES, edgeColumns,
+					edgeDefaults, CxUtil.sourceNodeMappingPrefix, CxUtil.targetNodeMappingPrefix);
+			final Cx2ElementEncoder.Edge cxEdge = new Cx2ElementEncoder.Edge(columns);
+			
 			cx2Writer.startAspectFragment(CxEdge.ASPECT_NAME);
 			for (CyEdge cyEdge : subnet.getEdgeList()) {
-
-				CxEdge cxEdge = new CxEdge(CxUtil.getElementId(cyEdge, subnet, useCxId),
+				cx2Writer.writeElementInFragment(cxEdge.set(CxUtil.getElementId(cyEdge, subnet, useCxId),
 						CxUtil.getElementId(cyEdge.getSource(), subnet, useCxId),
-						CxUtil.getElementId(cyEdge.getTarget(), subnet, useCxId));
-				
-				LinkedHashMap<String,Object> edgeAttrs = new LinkedHashMap<>();
-				CyRow row = subnet.getRow(cyEdge, CyNetwork.DEFAULT_ATTRS);
-				for (Map.Entry<String,Object>e: row.getAllValues().entrySet()) {
-					String name = e.getKey();
-					Object value = e.getValue();
-					if (isNotNullandFinite(value) && !Settings.isIgnore(name, Settings.IGNORE_NODE_ATTRIBUTES, value) &&
-						   	(edgeColumns == null || edgeColumns.contains(name)) && 
-						   	!name.startsWith( CxUtil.sourceNodeMappingPrefix) && !name.startsWith(CxUtil.targetNodeMappingPrefix)) {
-							edgeAttrs.put(name, value);	
-						}
-					
-				}
-				if ( !edgeAttrs.isEmpty())
-					cxEdge.setAttributes(edgeAttrs);
-
-				cx2Writer.writeElementInFragment(cxEdge);
+						CxUtil.getElementId(cyEdge.getTarget(), subnet, useCxId),
+						table.getRow(cyEdge.getSUID())));
 			}
 			cx2Writer.endAspectFragment();
 			break;
@@ -1064,7 +1050,7 @@ public final class CxExporter {
 	}
 
 	private void writeNodeAttributes() throws IOException {
-		List<AspectElement> nodeAttributes = new ArrayList<AspectElement>();
+		final AspectStream nodeAttributes = new AspectStream(NodeAttributesElement.ASPECT_NAME);
 		
 		List<String> shared_cols = new ArrayList<String>();
 		//Write shared attributes first
@@ -1076,9 +1062,9 @@ public final class CxExporter {
 			
 			for (CyNode node : baseNetwork.getNodeList()) {
 				CyRow row = baseNetwork.getRow(node, CyRootNetwork.SHARED_ATTRS);
-				row.getAllValues().forEach((name, value) -> {
-					addNodeAttributesElement(nodeAttributes, baseNetwork, node, name, value);
-				});
+				for (Map.Entry<String, Object> e : row.getAllValues().entrySet()) {
+					addNodeAttributesElement(nodeAttributes, baseNetwork, node, e.getKey(), e.getValue());
+				}
 			}
 		}
 		
@@ -1086,18 +1072,18 @@ public final class CxExporter {
 		for (CySubNetwork network : subnetworks) {
 			for (CyNode node : network.getNodeList()) {
 				CyRow row = network.getRow(node, CyNetwork.DEFAULT_ATTRS);
-				row.getAllValues().forEach((name, value) -> {
-					if (!shared_cols.contains(name)) {
-						addNodeAttributesElement(nodeAttributes, network, node, name, value);
+				for (Map.Entry<String, Object> e : row.getAllValues().entrySet()) {
+					if (!shared_cols.contains(e.getKey())) {
+						addNodeAttributesElement(nodeAttributes, network, node, e.getKey(), e.getValue());
 					}
-				});
+				}
 			}
 		}
-		writeAspectElements(nodeAttributes);
+		nodeAttributes.end();
 	}
 		
 	private void writeEdgeAttributes() throws IOException{
-		List<AspectElement> edgeAttributes = new ArrayList<AspectElement>();
+		final AspectStream edgeAttributes = new AspectStream(EdgeAttributesElement.ASPECT_NAME);
 		
 		final List<String> shared_cols = new ArrayList<String>();
 		//Write shared attributes first
@@ -1109,9 +1095,9 @@ public final class CxExporter {
 			
 			for (CyEdge edge : baseNetwork.getEdgeList()) {
 				CyRow row = baseNetwork.getRow(edge, CyRootNetwork.SHARED_ATTRS);
-				row.getAllValues().forEach((name, value) -> {
-					addEdgeAttributesElement(edgeAttributes, baseNetwork, edge, name, value);
-				});
+				for (Map.Entry<String, Object> e : row.getAllValues().entrySet()) {
+					addEdgeAttributesElement(edgeAttributes, baseNetwork, edge, e.getKey(), e.getValue());
+				}
 			}
 		}
 		
@@ -1119,15 +1105,14 @@ public final class CxExporter {
 		for (CySubNetwork network : subnetworks) {
 			for (CyEdge edge : network.getEdgeList()) {
 				CyRow row = network.getRow(edge);//, CyNetwork.DEFAULT_ATTRS);
-				row.getAllValues().entrySet().stream()
-					.filter(entry -> !shared_cols.contains(entry.getKey()))
-					.forEach(e -> {
+				for (Map.Entry<String, Object> e : row.getAllValues().entrySet()) {
+					if (!shared_cols.contains(e.getKey())) {
 						addEdgeAttributesElement(edgeAttributes, network, edge, e.getKey(), e.getValue());
-						}
-					);
+					}
+				}
 			}
 		}
-		writeAspectElements(edgeAttributes);
+		edgeAttributes.end();
 	}
 
 	
@@ -1251,15 +1236,12 @@ public final class CxExporter {
 			
 		}
 	}
-	private void addNodesAndGroupsElements(final Map<String, List<AspectElement>> elementMap, CyNode node,
-			CyNetwork network) throws JsonProcessingException {
-		List<AspectElement> nodes = elementMap.get(NodesElement.ASPECT_NAME);
-
+	private void addNodesAndGroupsElements(final AspectStream nodes, final List<AspectElement> groups, CyNode node,
+			CyNetwork network) throws IOException {
 		if (group_manager.isGroup(node, network)) {
 			Long cxId = CxUtil.getElementId(node, network, useCxId);
 			nodes.add(new NodesElement(cxId, null, null));
 			
-			List<AspectElement> groups = elementMap.get(CyGroupsElement.ASPECT_NAME);
 			CyGroup group = group_manager.getGroup(node, network);
 			addGroupElement(groups, network, group);
 		} else {
@@ -1300,7 +1282,7 @@ public final class CxExporter {
 		elements.add(group_element);
 	}
 
-	private void addNodeAttributesElement(final List<AspectElement> elements, CyNetwork network, CyNode node, String name, Object value) {
+	private void addNodeAttributesElement(final AspectStream elements, CyNetwork network, CyNode node, String name, Object value) throws IOException {
 		if (value == null) {
 			return;
 		}
@@ -1316,23 +1298,15 @@ public final class CxExporter {
 		Long subnetworkId = getAspectSubnetworkId(network);
 		ATTRIBUTE_DATA_TYPE type = AttributesAspectUtils.determineDataType(value);
 		
-		if (!type.isSingleValueType()) {
-			final List<String> attr_values = new ArrayList<>();
-			for (final Object v : (List<?>) value) {
-				attr_values.add(String.valueOf(v));
-			}
-			if (!attr_values.isEmpty()) {
-				elements.add(new NodeAttributesElement(subnetworkId, nodeId, name, attr_values, type));
-			}
-			
-		}else {
-			elements.add(new NodeAttributesElement(subnetworkId, nodeId, name, String.valueOf(value), type));
+		if (!type.isSingleValueType() && ((List<?>) value).isEmpty()) {
+			return;
 		}
+		elements.write(nodeAttribute.set(subnetworkId, nodeId, name, value, type));
 	}
 
 	
 
-	private void addEdgeAttributesElement(final List<AspectElement> elements, CyNetwork network, CyEdge edge, String name, Object value) {
+	private void addEdgeAttributesElement(final AspectStream elements, CyNetwork network, CyEdge edge, String name, Object value) throws IOException {
 		
 		if (value == null || (value instanceof String && ((String) value).length() == 0) ||
 			 name.startsWith(CxUtil.sourceNodeMappingPrefix) || name.startsWith(CxUtil.targetNodeMappingPrefix)) {
@@ -1348,19 +1322,11 @@ public final class CxExporter {
 		}
 		Long edgeId = CxUtil.getElementId(edge, network, useCxId);
 		Long subnetworkId = getAspectSubnetworkId(network);
-		if (value instanceof List) {
-			final List<String> attr_values = new ArrayList<>();
-			for (final Object v : (List<?>) value) {
-				attr_values.add(String.valueOf(v));
-			}
-			if (!attr_values.isEmpty()) {
-				elements.add(new EdgeAttributesElement(subnetworkId, edgeId, name, attr_values,
-						AttributesAspectUtils.determineDataType(value)));
-			}
-		} else {
-			elements.add(new EdgeAttributesElement(subnetworkId, edgeId, name, String.valueOf(value),
-					AttributesAspectUtils.determineDataType(value)));
+		if (value instanceof List && ((List<?>) value).isEmpty()) {
+			return;
 		}
+		ATTRIBUTE_DATA_TYPE type = AttributesAspectUtils.determineDataType(value);
+		elements.write(edgeAttribute.set(subnetworkId, edgeId, name, value, type));
 	}
 	
 	// Collection Opaques
@@ -1466,7 +1432,7 @@ public final class CxExporter {
 	private final void writeCartesianLayout(final CyNetworkView view) throws IOException {
 
 		final CyNetwork network = view.getModel();
-		final List<AspectElement> elements = new ArrayList<>(network.getNodeCount());
+		final AspectStream elements = new AspectStream(CartesianLayoutElement.ASPECT_NAME);
 
 		
 		boolean z_used = false;
@@ -1494,7 +1460,7 @@ public final class CxExporter {
 			}
 		}
 
-		writeAspectElements(elements);
+		elements.end();
 	}
 
 	private final void writeVisualProperties(final CyNetworkView view, final VisualLexicon lexicon) throws IOException {
@@ -1702,23 +1668,92 @@ public final class CxExporter {
 		if (elements == null || elements.isEmpty()) {
 			return;
 		}
-		Gson gson = new Gson();
+		updateIdCounters(elements);
+		final long t0 = System.currentTimeMillis();
+		writer.writeAspectElements(elements);
+		if (Settings.INSTANCE.isTiming()) {
+			TimingUtil.reportTimeDifference(t0, elements.get(0).getAspectName(), elements.size());
+		}
+	}
+	
+	private void updateIdCounters(List<AspectElement> elements) {
 		for (AspectElement el : elements) {
-			JsonElement json_el = gson.toJsonTree(el);
-			JsonObject obj = json_el.getAsJsonObject();
-			
-			if (!obj.has(ID_STRING)) {
+			final Function<AspectElement, Long> getId = ID_GETTERS.get(el.getAspectName());
+			final Long id = getId == null ? null : getId.apply(el);
+			if (id == null) {
 				break;
 			}
-			Long id = obj.get(ID_STRING).getAsLong();
-			
 			Long max = Math.max(id, idCounters.getOrDefault(el.getAspectName(), 0l));
 			idCounters.put(el.getAspectName(), max);
 		}
-		final long t0 = System.currentTimeMillis();
-		writer.writeAspectElements(elements);
-		if (Settings.INSTANCE.isTiming()) {
-			TimingUtil.reportTimeDifference(t0, elements.get(0).getAspectName(), elements.size());
+	}
+	
+	/**
+	 * Writes the elements of one aspect to a single fragment while they are created from the network,
+	 * so only a batch of them is held at a time instead of the whole aspect. Like writeAspectElements,
+	 * no fragment is written for an aspect without elements.
+	 */
+	private final class AspectStream {
+		private final String aspect;
+		private final List<AspectElement> batch = new ArrayList<>(STREAM_BATCH_SIZE);
+		private boolean started = false;
+		private int count = 0;
+		private long t0;
+		
+		AspectStream(String aspect) {
+			this.aspect = aspect;
+		}
+		
+		void add(AspectElement element) throws IOException {
+			batch.add(element);
+			if (batch.size() == STREAM_BATCH_SIZE) {
+				flush();
+			}
+		}
+		
+		/**
+		 * Write an element right away, for elements that are reused once written
+		 */
+		void write(AspectElement element) throws IOException {
+			flush();
+			start();
+			writer.writeAspectElement(element);
+			count++;
+		}
+		
+		private void start() throws IOException {
+			if (!started) {
+				t0 = System.currentTimeMillis();
+				writer.startAspectFragment(aspect);
+				started = true;
+			}
+		}
+		
+		private void flush() throws IOException {
+			if (batch.isEmpty()) {
+				return;
+			}
+			start();
+			updateIdCounters(batch);
+			for (AspectElement el : batch) {
+				writer.writeAspectElement(el);
+			}
+			count += batch.size();
+			batch.clear();
+		}
+		
+		/**
+		 * Write the last batch and close the fragment
+		 */
+		void end() throws IOException {
+			flush();
+			if (!started) {
+				return;
+			}
+			writer.endAspectFragment();
+			if (Settings.INSTANCE.isTiming()) {
+				TimingUtil.reportTimeDifference(t0, aspect, count);
+			}
 		}
 	}
 	/**
@@ -1825,6 +1860,37 @@ public final class CxExporter {
 			this.networkColumns = selectedValues;
 		}
 	}
+
+	/**
+	 * Declare the column defaults in CX2 and leave out the node and edge values equal to them,
+	 * see CxPreferences.getOmitDefaultValues()
+	 */
+	public void setOmitDefaultValues(boolean omitDefaultValues) {
+		this.omitDefaultValues = omitDefaultValues;
+	}
+	
+	/**
+	 * Declare the default value of the exported columns that have one, except for Cytoscape's own
+	 * columns, so the elements can leave it out.
+	 * @return the declared defaults by column name
+	 */
+	private static Map<String, Object> declareDefaults(CyTable table, Map<String, DeclarationEntry> declarations,
+			List<String> columnFilter, Set<String> builtins) {
+		Map<String, Object> result = new HashMap<>();
+		for (Map.Entry<String, DeclarationEntry> e : declarations.entrySet()) {
+			String name = e.getKey();
+			if (builtins.contains(name) || (columnFilter != null && !columnFilter.contains(name))) {
+				continue;
+			}
+			CyColumn col = table.getColumn(name);
+			Object defaultValue = col == null ? null : col.getDefaultValue();
+			if (isNotNullandFinite(defaultValue)) {
+				e.getValue().setDefaultValue(defaultValue);
+				result.put(name, defaultValue);
+			}
+		}
+		return result;
+	}
 	
 	private CxAttributeDeclaration getAttributeDeclarations() {
 		
@@ -1837,10 +1903,18 @@ public final class CxExporter {
 					result.add(CxNetworkAttribute.ASPECT_NAME, networkAttributes);
 
 				Map<String, DeclarationEntry> edgeAttributes = getTableAttributes(subnet, "edge_table");
+				if (omitDefaultValues) {
+					edgeDefaults = declareDefaults(subnet.getDefaultEdgeTable(), edgeAttributes, edgeColumns,
+							Settings.cytoscapeBuiltinEdgeTableAttributes);
+				}
 				if (!edgeAttributes.isEmpty())
 					result.add(CxEdge.ASPECT_NAME, edgeAttributes);
 
 				Map<String, DeclarationEntry> nodeAttributes = getTableAttributes(subnet, "node_table");
+				if (omitDefaultValues) {
+					nodeDefaults = declareDefaults(subnet.getDefaultNodeTable(), nodeAttributes, nodeColumns,
+							Settings.cytoscapeBuiltinTableAttributes);
+				}
 
 				if (!nodeAttributes.isEmpty())
 					result.add(CxNode.ASPECT_NAME, nodeAttributes);
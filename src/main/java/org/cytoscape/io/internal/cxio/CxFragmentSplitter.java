@@ -0,0 +1,356 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits a CX document into chunks of aspect elements that can be decoded independently.
+ *
+ * The scan only tracks strings and bracket depth, like {@link CxAspectFilterInputStream}. Each
+ * aspect fragment is cut at element boundaries into chunks of about the given size, and every
+ * chunk is wrapped into a small CX document of its own:
+ * <pre>
+ * [ {"numberVerification": [...]}, {"nodes": [ element, element, ... ]} ]
+ * </pre>
+ * CX writers put a whole aspect in one fragment, so chunks are cut inside fragments to spread a
+ * large nodes or edges aspect over several decoders. The chunks come out in document order.
+ *
+ * The header fragment makes the chunk a document its reader accepts, e.g. the number
+ * verification for CX or the version for CX2. Fragment members that are not arrays, like the
+ * version header of the CX2 document itself, are skipped.
+ */
+public final class CxFragmentSplitter {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/** First fragment of the chunks of a CX document */
+	public static final String CX_HEADER = "{\"numberVerification\":[{\"longNumber\":281474976710655}]}";
+	/** First fragment of the chunks of a CX2 document */
+	public static final String CX2_HEADER = "{\"CXVersion\":\"2.0\",\"hasFragments\":false}";
+
+	private static final byte[] SUFFIX = "]}]".getBytes(StandardCharsets.UTF_8);
+
+	/**
+	 * A run of elements of one aspect, as a complete CX document
+	 */
+	public static final class Chunk {
+		private final String aspectName;
+		private final byte[] document;
+		private final int length;
+		private final int elements;
+
+		Chunk(String aspectName, byte[] document, int length, int elements) {
+			this.aspectName = aspectName;
+			this.document = document;
+			this.length = length;
+			this.elements = elements;
+		}
+
+		public String getAspectName() {
+			return aspectName;
+		}
+
+		public InputStream getInputStream() {
+			return new ByteArrayInputStream(document, 0, length);
+		}
+
+		public int getElementCount() {
+			return elements;
+		}
+	}
+
+	private final InputStream in;
+	private final int chunkSize;
+	// Start of every chunk, up to the aspect name
+	private final byte[] prefix;
+
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int pos = 0;
+	private int len = 0;
+
+	private boolean started = false;
+	private boolean finished = false;
+	// Inside an object of the top level array
+	private boolean inFragment = false;
+	// Inside the element array of the current aspect
+	private boolean inAspect = false;
+
+	// The aspect being chunked, its raw key with the quotes
+	private String aspectName;
+	private byte[] aspectKey;
+
+	// The chunk being filled
+	private byte[] chunk;
+	private int chunkLength = 0;
+	private int chunkElements = 0;
+
+	/**
+	 * @param in a CX document
+	 * @param chunkSize bytes of elements after which a chunk is cut
+	 */
+	public CxFragmentSplitter(InputStream in, int chunkSize) {
+		this(in, chunkSize, CX_HEADER);
+	}
+
+	/**
+	 * @param in a CX or CX2 document
+	 * @param chunkSize bytes of elements after which a chunk is cut
+	 * @param header the fragment each chunk starts with
+	 */
+	public CxFragmentSplitter(InputStream in, int chunkSize, String header) {
+		this.in = in;
+		this.chunkSize = chunkSize;
+		this.prefix = ("[" + header + ",{").getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return the next chunk, or null at the end of the document
+	 * @throws IOException if the document is not a CX document
+	 */
+	public Chunk next() throws IOException {
+		if (!started) {
+			if (skipWhitespace() != '[') {
+				throw new IOException("CX document does not start with an array.");
+			}
+			pos++;
+			started = true;
+		}
+		while (!finished) {
+			if (inAspect) {
+				final Chunk next = readElements();
+				if (next != null) {
+					return next;
+				}
+			} else if (inFragment) {
+				readMember();
+			} else {
+				readFragmentStart();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Between the fragments of the top level array
+	 */
+	private void readFragmentStart() throws IOException {
+		final int c = skipWhitespace();
+		if (c == ']') {
+			pos++;
+			finished = true;
+		} else if (c == ',') {
+			pos++;
+		} else if (c == '{') {
+			pos++;
+			inFragment = true;
+		} else {
+			throw error("Expected an aspect fragment");
+		}
+	}
+
+	/**
+	 * Between the members of a fragment, up to the start of an aspect's elements
+	 */
+	private void readMember() throws IOException {
+		int c = skipWhitespace();
+		if (c == '}') {
+			pos++;
+			inFragment = false;
+			return;
+		} else if (c == ',') {
+			pos++;
+			return;
+		} else if (c != '"') {
+			throw error("Expected an aspect name");
+		}
+		chunk = new byte[256];
+		chunkLength = 0;
+		copyString();
+		aspectKey = Arrays.copyOf(chunk, chunkLength);
+		aspectName = new String(aspectKey, 1, aspectKey.length - 2, StandardCharsets.UTF_8);
+		chunkLength = 0;
+		if (skipWhitespace() != ':') {
+			throw error("Expected ':' after aspect " + aspectName);
+		}
+		pos++;
+		if (skipWhitespace() != '[') {
+			// Not an aspect, copied into a scratch chunk and dropped
+			copyValue();
+			chunk = null;
+			chunkLength = 0;
+			return;
+		}
+		pos++;
+		inAspect = true;
+		startChunk();
+	}
+
+	/**
+	 * Copy elements of the current aspect until the chunk is full or the aspect ends
+	 * @return the chunk if one is complete
+	 */
+	private Chunk readElements() throws IOException {
+		while (true) {
+			final int c = skipWhitespace();
+			if (c == ']') {
+				pos++;
+				inAspect = false;
+				return chunkElements > 0 ? endChunk() : null;
+			} else if (c == ',') {
+				pos++;
+				continue;
+			} else if (c < 0) {
+				throw error("Unterminated aspect " + aspectName);
+			}
+			if (chunkElements > 0) {
+				append((byte) ',');
+			}
+			copyValue();
+			chunkElements++;
+			if (chunkLength >= chunkSize) {
+				final Chunk full = endChunk();
+				startChunk();
+				return full;
+			}
+		}
+	}
+
+	private void startChunk() {
+		chunk = new byte[BUFFER_SIZE];
+		chunkLength = 0;
+		chunkElements = 0;
+		append(prefix, prefix.length);
+		append(aspectKey, aspectKey.length);
+		append((byte) ':');
+		append((byte) '[');
+	}
+
+	private Chunk endChunk() {
+		append(SUFFIX, SUFFIX.length);
+		final Chunk done = new Chunk(aspectName, chunk, chunkLength, chunkElements);
+		chunk = null;
+		chunkLength = 0;
+		chunkElements = 0;
+		return done;
+	}
+
+	/**
+	 * Copy one JSON value, tracking only strings and bracket depth
+	 */
+	private void copyValue() throws IOException {
+		int c = peek();
+		if (c == '"') {
+			copyString();
+			return;
+		}
+		if (c != '{' && c != '[') {
+			// Number or literal
+			while ((c = peek()) >= 0 && c != ',' && c != ']' && c != '}' && !isWhitespace(c)) {
+				append((byte) c);
+				pos++;
+			}
+			return;
+		}
+		int depth = 0;
+		do {
+			c = peek();
+			if (c < 0) {
+				throw error("Unterminated element in aspect " + aspectName);
+			}
+			if (c == '"') {
+				copyString();
+				continue;
+			}
+			if (c == '{' || c == '[') {
+				depth++;
+			} else if (c == '}' || c == ']') {
+				depth--;
+			}
+			append((byte) c);
+			pos++;
+		} while (depth > 0);
+	}
+
+	/**
+	 * Copy a string with its quotes, the reader is on the opening quote
+	 */
+	private void copyString() throws IOException {
+		append((byte) '"');
+		pos++;
+		boolean escape = false;
+		while (true) {
+			if (pos == len && !fill()) {
+				throw error("Unterminated string");
+			}
+			// Copy up to the closing quote in one go
+			int start = pos;
+			while (pos < len) {
+				final byte b = buffer[pos++];
+				if (escape) {
+					escape = false;
+				} else if (b == '\\') {
+					escape = true;
+				} else if (b == '"') {
+					append(buffer, start, pos - start);
+					return;
+				}
+			}
+			append(buffer, start, pos - start);
+		}
+	}
+
+	private int skipWhitespace() throws IOException {
+		int c;
+		while ((c = peek()) >= 0 && isWhitespace(c)) {
+			pos++;
+		}
+		return c;
+	}
+
+	private int peek() throws IOException {
+		if (pos == len && !fill()) {
+			return -1;
+		}
+		return buffer[pos] & 0xff;
+	}
+
+	private boolean fill() throws IOException {
+		len = in.read(buffer, 0, buffer.length);
+		pos = 0;
+		if (len <= 0) {
+			len = 0;
+			return false;
+		}
+		return true;
+	}
+
+	private void append(byte b) {
+		if (chunkLength == chunk.length) {
+			chunk = Arrays.copyOf(chunk, chunk.length * 2);
+		}
+		chunk[chunkLength++] = b;
+	}
+
+	private void append(byte[] bytes, int length) {
+		append(bytes, 0, length);
+	}
+
+	private void append(byte[] bytes, int offset, int length) {
+		if (chunkLength + length > chunk.length) {
+			chunk = Arrays.copyOf(chunk, Math.max(chunk.length * 2, chunkLength + length));
+		}
+		System.arraycopy(bytes, offset, chunk, chunkLength, length);
+		chunkLength += length;
+	}
+
+	private static boolean isWhitespace(int c) {
+		return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+	}
+
+	private IOException error(String message) {
+		return new IOException(message + " in CX document.");
+	}
+}
@@ -2,24 +2,43 @@ package org.cytoscape.io.internal.cxio;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
+import org.apache.commons.lang3.ArrayUtils;
 import org.cytoscape.io.internal.AspectSet;
+import org.cytoscape.io.internal.cxio.CxAspectFilterInputStream.Action;
+import org.cytoscape.io.internal.nicecy.NiceCyRootNetwork;
 import org.ndexbio.cxio.aspects.datamodels.CartesianLayoutElement;
 import org.ndexbio.cxio.aspects.datamodels.EdgeAttributesElement;
 import org.ndexbio.cxio.aspects.datamodels.EdgesElement;
 import org.ndexbio.cxio.aspects.datamodels.NetworkAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NetworkRelationsElement;
 import org.ndexbio.cxio.aspects.datamodels.NodeAttributesElement;
 import org.ndexbio.cxio.aspects.datamodels.NodesElement;
+import org.ndexbio.cxio.aspects.datamodels.SubNetworkElement;
 import org.ndexbio.cxio.core.CxElementReader2;
 import org.ndexbio.cxio.core.interfaces.AspectElement;
 import org.ndexbio.cxio.core.interfaces.AspectFragmentReader;
 import org.ndexbio.cxio.metadata.MetaDataCollection;
 import org.ndexbio.cxio.metadata.MetaDataElement;
+import org.ndexbio.cxio.misc.NumberVerification;
+import org.ndexbio.model.cx.NamespacesElement;
 import org.ndexbio.model.cx.NdexNetworkStatus;
 import org.ndexbio.model.cx.NiceCXNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * This class is for de-serializing CX formatted networks, views, and attribute
@@ -85,17 +104,53 @@ import org.ndexbio.model.cx.NiceCXNetwork;
  */
 public final class CxImporter {
 
+    private static final Logger logger = LoggerFactory.getLogger(CxImporter.class);
+
+    // Read whatever the selection: the element reader needs its bookkeeping fragments, nothing
+    // can be built without the network structure, and the NiceCy conversion interprets the
+    // CX ID mapping, namespaces and the old name of the visual properties aspect
+    private static final Set<String> REQUIRED_ASPECTS = new HashSet<>(Arrays.asList(
+    		MetaDataCollection.NAME,
+    		NumberVerification.NAME,
+    		"status",
+    		NodesElement.ASPECT_NAME,
+    		EdgesElement.ASPECT_NAME,
+    		SubNetworkElement.ASPECT_NAME,
+    		NetworkRelationsElement.ASPECT_NAME,
+    		CxUtil.CX_ID_MAPPING,
+    		NamespacesElement.ASPECT_NAME,
+    		"visualProperties"));
+
+    // Bytes of elements decoded by one task in a parallel import
+    private static final int PARALLEL_CHUNK_SIZE = 4 * 1024 * 1024;
+
     private final Set<AspectFragmentReader> all_readers ;
+    private final Set<AspectFragmentReader> additional_readers = new HashSet<>();
+    private final Collection<String> reader_aspects;
+    private final Set<String> selected_aspects;
+    private CxAspectFilterInputStream aspect_filter;
+    private boolean capture_opaque_aspects = true;
 
     public CxImporter() {
-        
-        Collection<String> aspects = AspectSet.getAspectNames();
-        
+        this(AspectSet.getAspectNames());
+    }
+
+    /**
+     * Create an importer that only de-serializes the given aspects. Other aspects known to
+     * {@link AspectSet} or never kept by Cytoscape are skipped without being parsed, and
+     * unknown (opaque) aspects are kept as raw JSON, see {@link #getRawOpaqueAspects()}.
+     *
+     * @param aspects
+     *            names of the aspects to de-serialize, from {@link AspectSet#getAspectNames()}
+     */
+    public CxImporter(final Collection<String> aspects) {
         all_readers = new HashSet<>();
+        reader_aspects = new ArrayList<>(aspects);
+        selected_aspects = new HashSet<>(REQUIRED_ASPECTS);
+        selected_aspects.addAll(aspects);
         for (final AspectFragmentReader reader : AspectSet.getAspectFragmentReaders(aspects)) {
             all_readers.add(reader);
         }
-        
     }
 
     /*
@@ -116,7 +171,9 @@ public final class CxImporter {
      *            a collection of additional custom readers to add
      */
     public final void addAdditionalReaders(final Collection<AspectFragmentReader> additional_readers) {
-        all_readers.addAll(additional_readers);
+        for (final AspectFragmentReader reader : additional_readers) {
+            addAdditionalReader(reader);
+        }
     } 
 
     /**
@@ -129,6 +186,19 @@ public final class CxImporter {
      */
     public final void addAdditionalReader(final AspectFragmentReader additional_reader) {
         all_readers.add(additional_reader);
+        additional_readers.add(additional_reader);
+        selected_aspects.add(additional_reader.getAspectName());
+    }
+
+    /**
+     * Whether unknown (opaque) aspects are kept as raw JSON, see {@link #getRawOpaqueAspects()}.
+     * When false they are read into the NiceCX as opaque elements, like any other aspect.
+     *
+     * @param capture
+     *            true by default
+     */
+    public final void setCaptureOpaqueAspects(final boolean capture) {
+        capture_opaque_aspects = capture;
     }
 
     /**
@@ -175,16 +245,207 @@ public final class CxImporter {
      */
   
     public NiceCXNetwork getCXNetworkFromStream( final InputStream in) throws IOException {
-    	CxElementReader2 r = new CxElementReader2(in, all_readers, true);
+    	CxElementReader2 r = getCxElementReader(in);
+        return getCXNetwork(r, r.getPreMetaData());
+    }
+
+    /**
+     * Open an element reader over a CX stream using all the aspect readers of this importer.
+     * Aspects outside the selection never reach the reader.
+     * The caller is expected to read the pre-metadata before iterating the elements.
+     */
+    public CxElementReader2 getCxElementReader(final InputStream in) throws IOException {
+    	aspect_filter = new CxAspectFilterInputStream(in, this::getAspectAction);
+    	return new CxElementReader2(aspect_filter, all_readers, true);
+    }
+
+    /**
+     * The opaque aspects of the last stream opened with {@link #getCxElementReader(InputStream)},
+     * complete once its elements have been read. The captured JSON is written again the way the
+     * parsed opaque aspects are serialized, without the whitespace and formatting of the document.
+     *
+     * @return aspect name to the aspect as a JSON array string
+     */
+    public Map<String, String> getRawOpaqueAspects() {
+    	if (aspect_filter == null) {
+    		return Collections.emptyMap();
+    	}
+    	final ObjectMapper mapper = new ObjectMapper();
+    	final Map<String, String> aspects = new LinkedHashMap<>();
+    	aspect_filter.getCapturedAspects().forEach((name, json) -> {
+    		try {
+    			aspects.put(name, mapper.writeValueAsString(mapper.readTree(json)));
+    		} catch (IOException e) {
+    			logger.warn("Failed to serialize opaque aspect: " + name);
+    		}
+    	});
+    	return aspects;
+    }
+
+    private Action getAspectAction(final String aspect) {
+    	if (selected_aspects.contains(aspect)) {
+    		return Action.PASS;
+    	}
+    	if (AspectSet.getAspectNames().contains(aspect)
+    			|| ArrayUtils.contains(NiceCyRootNetwork.UNSERIALIZED_OPAQUE_ASPECTS, aspect)) {
+    		return Action.SKIP;
+    	}
+    	return capture_opaque_aspects ? Action.CAPTURE : Action.PASS;
+    }
+
+    /**
+     * Read the remaining elements of an opened reader into a NiceCXNetwork.
+     *
+     * @param r reader positioned after the pre-metadata
+     * @param metadata the pre-metadata already read from r, may be null
+     */
+    public NiceCXNetwork getCXNetwork(final CxElementReader2 r, MetaDataCollection metadata) throws IOException {
+        return getCXNetwork(r, metadata, null);
+    }
+
+    /**
+     * Read the remaining elements of an opened reader into a NiceCXNetwork, checking for
+     * cancellation between elements.
+     *
+     * @param r reader positioned after the pre-metadata
+     * @param metadata the pre-metadata already read from r, may be null
+     * @param cancelled checked before each element, may be null
+     * @return the network, or null if the import was cancelled
+     */
+    public NiceCXNetwork getCXNetwork(final CxElementReader2 r, MetaDataCollection metadata,
+    		final BooleanSupplier cancelled) throws IOException {
         long t0 = System.currentTimeMillis();
-        MetaDataCollection metadata = r.getPreMetaData();
-		
-        long nodeIdCounter = 0;
-        long edgeIdCounter = 0;
         
-        NiceCXNetwork niceCX = new NiceCXNetwork ();
+        NiceCXBuilder builder = new NiceCXBuilder(null);
         
      	for ( AspectElement elmt : r ) {
+     		if (cancelled != null && cancelled.getAsBoolean()) {
+     			// Drop the partially staged network
+     			return null;
+     		}
+     		builder.add(elmt);
+     	} 
+     	
+     	NiceCXNetwork niceCX = builder.build(metadata, r.getPostMetaData());
+  	    if (Settings.INSTANCE.isTiming()) {
+			TimingUtil.reportTimeDifference(t0, "niceCX", niceCX.getMetadata().size());
+			reportSkippedAspects();
+		}
+        return niceCX;
+    }
+
+    /**
+     * Read a CX stream into a NiceCXNetwork, decoding the aspect elements on the common fork/join
+     * pool. A sequential pass cuts the aspect fragments into chunks (see {@link CxFragmentSplitter}),
+     * each chunk is decoded with its own aspect readers, and the decoded chunks are added to the
+     * network in document order while the following ones are still being decoded.
+     *
+     * Importers with additional readers read the stream sequentially, their readers may not be
+     * shared between threads.
+     *
+     * @param in a CX formatted input stream
+     * @param cancelled checked between chunks, may be null
+     * @return the network, or null if the import was cancelled
+     */
+    public NiceCXNetwork getCXNetworkParallel(final InputStream in, final BooleanSupplier cancelled) throws IOException {
+    	return getCXNetworkParallel(in, cancelled, null);
+    }
+
+    /**
+     * @see #getCXNetworkParallel(InputStream, BooleanSupplier)
+     * @param preMetadataConsumer given the pre-metadata as soon as its chunk is decoded, before
+     * the elements are added, may be null
+     */
+    public NiceCXNetwork getCXNetworkParallel(final InputStream in, final BooleanSupplier cancelled,
+    		final Consumer<MetaDataCollection> preMetadataConsumer) throws IOException {
+    	if (!additional_readers.isEmpty()) {
+    		CxElementReader2 r = getCxElementReader(in);
+    		MetaDataCollection metadata = r.getPreMetaData();
+    		if (preMetadataConsumer != null) {
+    			preMetadataConsumer.accept(metadata);
+    		}
+    		return getCXNetwork(r, metadata, cancelled);
+    	}
+        long t0 = System.currentTimeMillis();
+    	aspect_filter = new CxAspectFilterInputStream(in, this::getAspectAction);
+    	final ParallelChunkReader<DecodedChunk> reader = new ParallelChunkReader<>(
+    			new CxFragmentSplitter(aspect_filter, PARALLEL_CHUNK_SIZE), this::decode);
+    	final NiceCXBuilder builder = new NiceCXBuilder(preMetadataConsumer);
+    	if (!reader.read(builder::addChunk, cancelled)) {
+    		return null;
+    	}
+
+    	NiceCXNetwork niceCX = builder.build(null, null);
+    	if (Settings.INSTANCE.isTiming()) {
+    		TimingUtil.reportTimeDifference(t0, "niceCX from " + reader.getChunkCount() + " chunks", niceCX.getMetadata().size());
+    		reportSkippedAspects();
+    	}
+    	return niceCX;
+    }
+
+    /**
+     * Decode a chunk with readers of its own, dropping the number verification it was wrapped with
+     */
+    private DecodedChunk decode(final CxFragmentSplitter.Chunk chunk) throws IOException {
+    	final CxElementReader2 r = new CxElementReader2(chunk.getInputStream(),
+    			AspectSet.getAspectFragmentReaders(reader_aspects), true);
+    	final MetaDataCollection metadata = r.getPreMetaData();
+    	final List<AspectElement> elements = new ArrayList<>(chunk.getElementCount());
+    	for (AspectElement elmt : r) {
+    		if (chunk.getAspectName().equals(elmt.getAspectName())) {
+    			elements.add(elmt);
+    		}
+    	}
+    	return new DecodedChunk(metadata, r.getPostMetaData(), elements);
+    }
+
+    private static final class DecodedChunk {
+    	final MetaDataCollection preMetadata;
+    	final MetaDataCollection postMetadata;
+    	final List<AspectElement> elements;
+
+    	DecodedChunk(MetaDataCollection preMetadata, MetaDataCollection postMetadata, List<AspectElement> elements) {
+    		this.preMetadata = preMetadata;
+    		this.postMetadata = postMetadata;
+    		this.elements = elements;
+    	}
+    }
+
+    /**
+     * Adds aspect elements to a NiceCXNetwork and keeps the highest node and edge IDs for the
+     * metadata
+     */
+    private static final class NiceCXBuilder {
+    	private final NiceCXNetwork niceCX = new NiceCXNetwork();
+    	private long nodeIdCounter = 0;
+    	private long edgeIdCounter = 0;
+    	// From the chunks decoded in parallel, the first metadata fragment and the ones after it
+    	private MetaDataCollection preMetadata;
+    	private MetaDataCollection postMetadata;
+    	private final Consumer<MetaDataCollection> preMetadataConsumer;
+
+    	NiceCXBuilder(final Consumer<MetaDataCollection> preMetadataConsumer) {
+    		this.preMetadataConsumer = preMetadataConsumer;
+    	}
+
+    	void addChunk(final DecodedChunk chunk) {
+    		if (chunk.preMetadata != null) {
+    			if (preMetadata == null) {
+    				preMetadata = chunk.preMetadata;
+    				if (preMetadataConsumer != null) {
+    					preMetadataConsumer.accept(preMetadata);
+    				}
+    			} else {
+    				postMetadata = merge(postMetadata, chunk.preMetadata);
+    			}
+    		}
+    		if (chunk.postMetadata != null) {
+    			postMetadata = merge(postMetadata, chunk.postMetadata);
+    		}
+    		chunk.elements.forEach(this::add);
+    	}
+
+    	void add(final AspectElement elmt) {
      		switch ( elmt.getAspectName() ) {
      			case NodesElement.ASPECT_NAME :       //Node
      				    NodesElement n = (NodesElement) elmt;
@@ -216,24 +477,24 @@ public final class CxImporter {
      				default:    // opaque aspect
      					niceCX.addOpaqueAspect(elmt);
      			}
-     	} 
-     	
-     	MetaDataCollection postmetadata = r.getPostMetaData();
-     	
+    	}
+
+    	/**
+    	 * @param metadata the pre-metadata read outside of the builder, or null
+    	 * @param postmetadata the post-metadata read outside of the builder, or null
+    	 */
+    	NiceCXNetwork build(MetaDataCollection metadata, MetaDataCollection postmetadata) {
+    		if (metadata == null) {
+    			metadata = preMetadata;
+    		}
+    		if (postmetadata == null) {
+    			postmetadata = postMetadata;
+    		}
   	    if ( postmetadata !=null) {
 		  if( metadata == null) {
 			  metadata = postmetadata;
 		  } else {
-			  for (MetaDataElement e : postmetadata) {
-				  Long cnt = e.getIdCounter();
-				  if ( cnt !=null) {
-					 metadata.setIdCounter(e.getName(),cnt);
-				  }
-				  cnt = e.getElementCount() ;
-				  if ( cnt !=null) {
-					  metadata.setElementCount(e.getName(),cnt);
-				  }
-			  }
+			  merge(metadata, postmetadata);
 		  }
 	    }
   	    
@@ -246,10 +507,36 @@ public final class CxImporter {
   	        metadata.setIdCounter(EdgesElement.ASPECT_NAME, Long.valueOf(edgeIdCounter));
   	
   	    niceCX.setMetadata(metadata);
-  	    if (Settings.INSTANCE.isTiming()) {
-			TimingUtil.reportTimeDifference(t0, "niceCX", niceCX.getMetadata().size());
-		}
-        return niceCX;
+  	    return niceCX;
+    	}
+
+    	/**
+    	 * Copy the ID counters and element counts of later metadata over earlier metadata
+    	 * @return the earlier metadata, or the later one if there is none
+    	 */
+    	private static MetaDataCollection merge(MetaDataCollection metadata, MetaDataCollection postmetadata) {
+    		if (metadata == null) {
+    			return postmetadata;
+    		}
+			  for (MetaDataElement e : postmetadata) {
+				  Long cnt = e.getIdCounter();
+				  if ( cnt !=null) {
+					 metadata.setIdCounter(e.getName(),cnt);
+				  }
+				  cnt = e.getElementCount() ;
+				  if ( cnt !=null) {
+					  metadata.setElementCount(e.getName(),cnt);
+				  }
+			  }
+			  return metadata;
+    	}
+    }
+
+    private void reportSkippedAspects() {
+    	if (aspect_filter != null) {
+    		aspect_filter.getSkippedAspects().forEach((name, bytes) ->
+    				logger.debug("Skipped aspect " + name + ": " + bytes + " bytes"));
+    	}
     }
 
     public NiceCXNetwork getCX2NetworkFromStream( final InputStream in) throws IOException {
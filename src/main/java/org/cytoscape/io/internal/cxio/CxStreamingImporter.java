@@ -0,0 +1,640 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.cytoscape.io.internal.CxPreferences;
+import org.cytoscape.io.internal.CyServiceModule;
+import org.cytoscape.io.internal.cx_reader.ViewMaker;
+import org.cytoscape.io.internal.nicecy.NiceCyRootNetwork;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNetworkFactory;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.model.subnetwork.CyRootNetwork;
+import org.cytoscape.model.subnetwork.CySubNetwork;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.CyNetworkViewFactory;
+import org.cytoscape.view.model.CyNetworkViewManager;
+import org.ndexbio.cx2.aspect.element.core.TableColumnVisualStyle;
+import org.ndexbio.cx2.aspect.element.cytoscape.AbstractTableVisualProperty;
+import org.ndexbio.cx2.aspect.element.cytoscape.DefaultTableType;
+import org.ndexbio.cxio.aspects.datamodels.AbstractAttributesAspectElement;
+import org.ndexbio.cxio.aspects.datamodels.CartesianLayoutElement;
+import org.ndexbio.cxio.aspects.datamodels.CyGroupsElement;
+import org.ndexbio.cxio.aspects.datamodels.CyTableColumnElement;
+import org.ndexbio.cxio.aspects.datamodels.CyTableVisualPropertiesElement;
+import org.ndexbio.cxio.aspects.datamodels.CyVisualPropertiesElement;
+import org.ndexbio.cxio.aspects.datamodels.EdgeAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.EdgesElement;
+import org.ndexbio.cxio.aspects.datamodels.HiddenAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NetworkAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NetworkRelationsElement;
+import org.ndexbio.cxio.aspects.datamodels.NodeAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodesElement;
+import org.ndexbio.cxio.aspects.datamodels.SubNetworkElement;
+import org.ndexbio.cxio.core.CxElementReader2;
+import org.ndexbio.cxio.core.interfaces.AspectElement;
+import org.ndexbio.cxio.metadata.MetaDataCollection;
+import org.ndexbio.cxio.metadata.MetaDataElement;
+import org.ndexbio.cxio.misc.OpaqueElement;
+import org.ndexbio.model.cx.NamespacesElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Single pass importer for CX networks that describe one network.
+ *
+ * Nodes, edges and their attributes are written to the CyNetwork as they come out of the
+ * {@link CxElementReader2}, without building the NiceCXNetwork and NiceCyRootNetwork copies
+ * first. Only the aspects whose order forces it are kept until the end of the stream:
+ * edge attributes that arrive before their edge, the view aspects (layout and visual
+ * properties) and the opaque aspects that are serialized into the network table.
+ *
+ * Collections need the subNetworks/networkRelations/cxIdMapping aspects to place elements,
+ * and these usually come after the nodes and edges. Use {@link #isStreamable(MetaDataCollection)}
+ * on the pre-metadata to decide whether a document can be imported in a single pass. Pre-metadata
+ * that does not list the collection aspects can not rule them out: the import then fails with a
+ * {@link CollectionAspectException} if one of them comes up, and the caller has to read the
+ * document again with the staged import.
+ */
+public final class CxStreamingImporter {
+
+	private static final Logger logger = LoggerFactory.getLogger("CX Streaming Importer");
+
+	// Aspects that only the staged NiceCyRootNetwork import can handle
+	private static final String[] COLLECTION_ASPECTS = new String[] {
+			SubNetworkElement.ASPECT_NAME,
+			NetworkRelationsElement.ASPECT_NAME,
+			CyGroupsElement.ASPECT_NAME,
+			CxUtil.CX_ID_MAPPING
+	};
+
+	private final CxElementReader2 reader;
+
+	private CySubNetwork base;
+
+	private CyTable nodeTable;
+	private CyTable nodeLocalTable;
+	private CyTable edgeTable;
+	private CyTable edgeLocalTable;
+
+	// CX ID to CyNode/CyEdge
+	private final LongObjectMap<CyNode> nodes;
+	private final LongObjectMap<CyEdge> edges;
+
+	// CX IDs of nodes created for edges or attributes before their nodes element was read
+	private final Set<Long> undeclaredNodes;
+
+	// Edges that could not be named when they were created because their nodes were not read yet
+	private final List<CyEdge> unnamedEdges;
+
+	// Edge attributes read before their edge
+	private final Map<Long, List<EdgeAttributesElement>> pendingEdgeAttributes;
+
+	// View aspects, applied when the view is created
+	private final Map<Long, CartesianLayoutElement> cartesianLayout;
+	private final Map<String, CyVisualPropertiesElement> visualProperties;
+	private final Map<Long, List<CyVisualPropertiesElement>> nodeBypass;
+	private final Map<Long, List<CyVisualPropertiesElement>> edgeBypass;
+	private Map<DefaultTableType, Map<String, Map<String, TableColumnVisualStyle>>> tableVisualStyles;
+
+	private final Map<String, Collection<AspectElement>> opaqueAspects;
+	private final Supplier<Map<String, String>> rawOpaqueAspects;
+	// Repeated names and values of this import
+	private final StringPool strings;
+	private final List<AspectElement> namespaces;
+	private boolean hasContextAttribute;
+
+	private String name;
+
+	/**
+	 * @param reader CX element reader, positioned after the pre-metadata
+	 */
+	public CxStreamingImporter(CxElementReader2 reader) {
+		this(reader, Collections::emptyMap);
+	}
+
+	/**
+	 * @param reader CX element reader, positioned after the pre-metadata
+	 * @param rawOpaqueAspects opaque aspects the reader passed over as raw JSON, queried once the
+	 * elements have been read
+	 */
+	public CxStreamingImporter(CxElementReader2 reader, Supplier<Map<String, String>> rawOpaqueAspects) {
+		this.reader = reader;
+		this.rawOpaqueAspects = rawOpaqueAspects;
+		strings = new StringPool();
+		// Presized from the declared counts, when the pre-metadata has them
+		final MetaDataCollection metadata = reader.getPreMetaData();
+		nodes = new LongObjectMap<>(getExpectedSize(metadata, NodesElement.ASPECT_NAME), getIdCounter(metadata, NodesElement.ASPECT_NAME));
+		edges = new LongObjectMap<>(getExpectedSize(metadata, EdgesElement.ASPECT_NAME), getIdCounter(metadata, EdgesElement.ASPECT_NAME));
+		undeclaredNodes = new HashSet<>();
+		unnamedEdges = new ArrayList<>();
+		pendingEdgeAttributes = new HashMap<>();
+		cartesianLayout = new HashMap<>();
+		visualProperties = new HashMap<>();
+		nodeBypass = new HashMap<>();
+		edgeBypass = new HashMap<>();
+		tableVisualStyles = null;
+		opaqueAspects = new HashMap<>();
+		namespaces = new ArrayList<>();
+		hasContextAttribute = false;
+		name = null;
+	}
+
+	private static int getExpectedSize(MetaDataCollection metadata, String aspect) {
+		return (int) Math.min(Integer.MAX_VALUE - 8, Math.max(0, HeapEstimate.getCount(metadata, aspect)));
+	}
+
+	private static long getIdCounter(MetaDataCollection metadata, String aspect) {
+		final Long idCounter = metadata == null ? null : metadata.getIdCounter(aspect);
+		return idCounter == null ? -1 : idCounter.longValue();
+	}
+
+	/**
+	 * Thrown by {@link CxStreamingImporter#importNetwork(BooleanSupplier)} when the document turns
+	 * out to describe a collection. The network read until then is dropped.
+	 */
+	public static final class CollectionAspectException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		CollectionAspectException(String aspect) {
+			super("Aspect " + aspect
+					+ " is not declared in the CX pre-metadata and can not be imported in a single pass. Set "
+					+ CxPreferences.STREAMING_IMPORT_PROPERTY + " to false to import this network.");
+		}
+	}
+
+	/**
+	 * A document may be streamed unless its pre-metadata lists one of the collection aspects with
+	 * elements, or without an element count. Missing pre-metadata means the staged import has to
+	 * be used. Collection aspects that are not listed may still come up, see
+	 * {@link #isDeclaredSingleNetwork(MetaDataCollection)}.
+	 * @param metadata
+	 * @return
+	 */
+	public static boolean isStreamable(MetaDataCollection metadata) {
+		if (metadata == null) {
+			return false;
+		}
+		for (MetaDataElement e : metadata) {
+			if (ArrayUtils.contains(COLLECTION_ASPECTS, e.getName())) {
+				Long count = e.getElementCount();
+				if (count == null || count.longValue() > 0) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param metadata
+	 * @return true if the pre-metadata lists all of the collection aspects with an element count
+	 * of 0, so that the document is known to be streamable
+	 */
+	public static boolean isDeclaredSingleNetwork(MetaDataCollection metadata) {
+		if (metadata == null) {
+			return false;
+		}
+		for (String aspect : COLLECTION_ASPECTS) {
+			final MetaDataElement e = metadata.getMetaDataElement(aspect);
+			if (e == null || e.getElementCount() == null || e.getElementCount().longValue() != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public CyNetwork importNetwork() throws IOException {
+		return importNetwork(null);
+	}
+
+	/**
+	 * @param cancelled checked before each element, may be null
+	 * @return the imported network, or null if the import was cancelled
+	 * @throws CollectionAspectException if the document describes a collection
+	 * @throws IOException
+	 */
+	public CyNetwork importNetwork(BooleanSupplier cancelled) throws IOException {
+		final long t0 = System.currentTimeMillis();
+
+		CyNetworkFactory network_factory = CyServiceModule.getService(CyNetworkFactory.class);
+		base = (CySubNetwork) network_factory.createNetwork();
+
+		nodeTable = base.getTable(CyNode.class, CyNetwork.DEFAULT_ATTRS);
+		nodeLocalTable = base.getTable(CyNode.class, CyNetwork.LOCAL_ATTRS);
+		edgeTable = base.getTable(CyEdge.class, CyNetwork.DEFAULT_ATTRS);
+		edgeLocalTable = base.getTable(CyEdge.class, CyNetwork.LOCAL_ATTRS);
+
+		// Nobody listens to the unregistered network yet, its row events are dropped
+		try (TableEventScope events = new TableEventScope()) {
+			events.silence(base);
+			try {
+				if (!readElements(cancelled)) {
+					release();
+					return null;
+				}
+			} catch (CollectionAspectException e) {
+				release();
+				throw e;
+			}
+			finish();
+		}
+
+		if (Settings.INSTANCE.isTiming()) {
+			TimingUtil.reportTimeDifference(t0, "streamed CX import", nodes.size());
+			TimingUtil.reportStringPool("strings", strings);
+		}
+		return base;
+	}
+
+	/**
+	 * The elements are parsed on a thread of their own while they are added to the network here.
+	 * Leaving this method, by cancellation or by an error on either side, stops the parser.
+	 * @return false if the import was cancelled
+	 */
+	private boolean readElements(BooleanSupplier cancelled) throws IOException {
+		try (PipelinedReader<AspectElement> pipeline = new PipelinedReader<>(reader, "CX parser")) {
+			List<AspectElement> batch;
+			while ((batch = pipeline.nextBatch()) != null) {
+				for (AspectElement elmt : batch) {
+					if (cancelled != null && cancelled.getAsBoolean()) {
+						return false;
+					}
+					readElement(elmt);
+				}
+			}
+		}
+		return true;
+	}
+
+	private void readElement(AspectElement elmt) throws IOException {
+		switch (elmt.getAspectName()) {
+		case NodesElement.ASPECT_NAME:
+			addNode((NodesElement) elmt);
+			break;
+		case EdgesElement.ASPECT_NAME:
+			addEdge((EdgesElement) elmt);
+			break;
+		case NodeAttributesElement.ASPECT_NAME:
+			addNodeAttribute((NodeAttributesElement) elmt);
+			break;
+		case EdgeAttributesElement.ASPECT_NAME:
+			addEdgeAttribute((EdgeAttributesElement) elmt);
+			break;
+		case NetworkAttributesElement.ASPECT_NAME:
+			addNetworkAttribute((NetworkAttributesElement) elmt);
+			break;
+		case HiddenAttributesElement.ASPECT_NAME:
+			addHiddenAttribute((HiddenAttributesElement) elmt);
+			break;
+		case CyTableColumnElement.ASPECT_NAME:
+			addTableColumn((CyTableColumnElement) elmt);
+			break;
+		case CartesianLayoutElement.ASPECT_NAME:
+			CartesianLayoutElement cl = (CartesianLayoutElement) elmt;
+			cartesianLayout.put(cl.getNode(), cl);
+			break;
+		case CyVisualPropertiesElement.ASPECT_NAME:
+			addVisualProperties((CyVisualPropertiesElement) elmt);
+			break;
+		case AbstractTableVisualProperty.ASPECT_NAME:
+			tableVisualStyles = ((CyTableVisualPropertiesElement) elmt).getTableStyles();
+			break;
+		case NamespacesElement.ASPECT_NAME:
+			namespaces.add(elmt);
+			break;
+		case SubNetworkElement.ASPECT_NAME:
+		case NetworkRelationsElement.ASPECT_NAME:
+		case CyGroupsElement.ASPECT_NAME:
+		case CxUtil.CX_ID_MAPPING:
+			throw new CollectionAspectException(elmt.getAspectName());
+		default: // opaque aspect
+			addOpaqueAspectElement(elmt);
+		}
+	}
+
+	private CyNode createCyNodeByCXId(Long cxNodeId) {
+		CyNode cyNode = base.addNode();
+		CxUtil.saveCxId(cyNode, base, cxNodeId);
+		nodes.put(cxNodeId, cyNode);
+		return cyNode;
+	}
+
+	/**
+	 * Get the node with this CX ID, creating a placeholder if its nodes element was not read yet
+	 */
+	private CyNode getOrCreateNode(Long cxNodeId) {
+		CyNode node = nodes.get(cxNodeId);
+		if (node == null) {
+			node = createCyNodeByCXId(cxNodeId);
+			undeclaredNodes.add(cxNodeId);
+		}
+		return node;
+	}
+
+	private void addNode(NodesElement element) {
+		final Long id = element.getId();
+		CyNode node = nodes.get(id);
+		final boolean wasUndeclared = node != null && undeclaredNodes.remove(id);
+		if (node == null) {
+			node = createCyNodeByCXId(id);
+		}
+
+		final CyRow row = nodeTable.getRow(node.getSUID());
+		final String nodeName = element.getNodeName();
+		final String represents = element.getNodeRepresents();
+
+		// Attributes read before the node take precedence, as they do in the staged import
+		if (nodeName != null && !(wasUndeclared && row.get(CyNetwork.NAME, String.class) != null)) {
+			row.set(CyNetwork.NAME, nodeName);
+			row.set(CyRootNetwork.SHARED_NAME, nodeName);
+		}
+		if (represents != null) {
+			CxUtil.createColumn(nodeTable, CxUtil.REPRESENTS, String.class, true);
+			if (!(wasUndeclared && row.get(CxUtil.REPRESENTS, String.class) != null)) {
+				row.set(CxUtil.REPRESENTS, represents);
+			}
+		}
+	}
+
+	private void addEdge(EdgesElement element) {
+		final CyNode source = getOrCreateNode(element.getSource());
+		final CyNode target = getOrCreateNode(element.getTarget());
+
+		final CyEdge edge = base.addEdge(source, target, true);
+		CxUtil.saveCxId(edge, base, element.getId());
+		edges.put(element.getId(), edge);
+
+		final String interaction = strings.intern(element.getInteraction());
+		if (interaction != null) {
+			final CyRow row = edgeTable.getRow(edge.getSUID());
+			row.set(CyEdge.INTERACTION, interaction);
+			row.set(CyRootNetwork.SHARED_INTERACTION, interaction);
+
+			if (undeclaredNodes.contains(element.getSource()) || undeclaredNodes.contains(element.getTarget())) {
+				unnamedEdges.add(edge);
+			} else {
+				setEdgeName(edge, interaction);
+			}
+		}
+
+		final List<EdgeAttributesElement> pending = pendingEdgeAttributes.remove(element.getId());
+		if (pending != null) {
+			pending.forEach(attr -> setAttribute(edgeTable, edgeLocalTable, edge.getSUID(), attr));
+		}
+	}
+
+	private void setEdgeName(CyEdge edge, String interaction) {
+		String sourceName = nodeTable.getRow(edge.getSource().getSUID()).get(CyNetwork.NAME, String.class);
+		String targetName = nodeTable.getRow(edge.getTarget().getSUID()).get(CyNetwork.NAME, String.class);
+		String edgeName = String.format("%s (%s) %s", sourceName, interaction, targetName);
+
+		final CyRow row = edgeTable.getRow(edge.getSUID());
+		row.set(CyNetwork.NAME, edgeName);
+		row.set(CyRootNetwork.SHARED_NAME, edgeName);
+	}
+
+	private void addNodeAttribute(NodeAttributesElement attr) {
+		final CyNode node = getOrCreateNode(attr.getPropertyOf());
+		setAttribute(nodeTable, nodeLocalTable, node.getSUID(), attr);
+	}
+
+	private void addEdgeAttribute(EdgeAttributesElement attr) {
+		final CyEdge edge = edges.get(attr.getPropertyOf());
+		if (edge == null) {
+			List<EdgeAttributesElement> pending = pendingEdgeAttributes.get(attr.getPropertyOf());
+			if (pending == null) {
+				pending = new ArrayList<>();
+				pendingEdgeAttributes.put(attr.getPropertyOf(), pending);
+			}
+			pending.add(attr);
+			return;
+		}
+		setAttribute(edgeTable, edgeLocalTable, edge.getSUID(), attr);
+	}
+
+	private void setAttribute(CyTable sharedTable, CyTable localTable, Long suid,
+			AbstractAttributesAspectElement attr) {
+		final CyTable table = attr.getSubnetwork() != null ? localTable : sharedTable;
+		CxUtil.setAttributeValue(table, table.getRow(suid), attr, strings);
+	}
+
+	private void addNetworkAttribute(NetworkAttributesElement attr) {
+		if (attr.getSubnetwork() == null) {
+			if (attr.getName().equals(CyNetwork.NAME)) {
+				name = attr.getValue();
+			} else if (attr.getName().equals(NamespacesElement.ASPECT_NAME)) {
+				hasContextAttribute = true;
+			}
+		}
+		setAttribute(base.getTable(CyNetwork.class, CyNetwork.DEFAULT_ATTRS),
+				base.getTable(CyNetwork.class, CyNetwork.LOCAL_ATTRS), base.getSUID(), attr);
+	}
+
+	private void addHiddenAttribute(HiddenAttributesElement attr) {
+		final String attrName = attr.getName();
+		if (attrName.equals(CxUtil.UUID_COLUMN) || attrName.equals(CxUtil.MODIFICATION_COLUMN)
+				|| attrName.equals(CxUtil.PARENT_NETWORK_COLUMN)) {
+			return;
+		}
+		final CyTable hiddenTable = base.getTable(CyNetwork.class, CyNetwork.HIDDEN_ATTRS);
+		CxUtil.setAttributeValue(hiddenTable, hiddenTable.getRow(base.getSUID()), attr);
+	}
+
+	private void addTableColumn(CyTableColumnElement column) {
+		final boolean isLocal = column.getSubnetwork() != null;
+		final String namespace = isLocal ? CyNetwork.LOCAL_ATTRS : CyNetwork.DEFAULT_ATTRS;
+		final CyTable table;
+
+		switch (column.getAppliesTo()) {
+		case "node_table":
+			table = base.getTable(CyNode.class, namespace);
+			break;
+		case "edge_table":
+			table = base.getTable(CyEdge.class, namespace);
+			break;
+		case "network_table":
+			table = base.getTable(CyNetwork.class, namespace);
+			break;
+		default:
+			throw new IllegalArgumentException("Unrecognized CyTableColumn applies_to: " + column.getAppliesTo());
+		}
+		CxUtil.createColumn(table, column.getName(), CxUtil.getDataType(column.getDataType()), column.isSingleValue());
+	}
+
+	private void addVisualProperties(CyVisualPropertiesElement cvpe) {
+		switch (cvpe.getProperties_of()) {
+		case "network":
+		case "nodes:default":
+		case "edges:default":
+			CyVisualPropertiesElement existing = visualProperties.get(cvpe.getProperties_of());
+			if (existing == null) {
+				visualProperties.put(cvpe.getProperties_of(), cvpe);
+			} else {
+				cvpe.getDependencies().forEach(existing::putDependency);
+				cvpe.getMappings().forEach(existing::putMapping);
+				cvpe.getProperties().forEach(existing::putProperty);
+			}
+			break;
+		case "nodes":
+			nodeBypass.computeIfAbsent(cvpe.getApplies_to(), k -> new ArrayList<>()).add(cvpe);
+			break;
+		case "edges":
+			edgeBypass.computeIfAbsent(cvpe.getApplies_to(), k -> new ArrayList<>()).add(cvpe);
+			break;
+		}
+	}
+
+	private void addOpaqueAspectElement(AspectElement e) {
+		if (ArrayUtils.contains(NiceCyRootNetwork.UNSERIALIZED_OPAQUE_ASPECTS, e.getAspectName())) {
+			return;
+		}
+		opaqueAspects.computeIfAbsent(e.getAspectName(), k -> new ArrayList<>()).add(e);
+	}
+
+	private void finish() throws IOException {
+		if (!undeclaredNodes.isEmpty()) {
+			throw new IOException("Nodes " + undeclaredNodes + " are referenced in the CX but not declared in the "
+					+ NodesElement.ASPECT_NAME + " aspect.");
+		}
+		if (!pendingEdgeAttributes.isEmpty()) {
+			throw new IOException("Edges " + pendingEdgeAttributes.keySet() + " have attributes in the CX but are not declared in the "
+					+ EdgesElement.ASPECT_NAME + " aspect.");
+		}
+
+		// Edges are named from their nodes, which were not available when the edge was read.
+		// An explicit name attribute wins.
+		for (CyEdge edge : unnamedEdges) {
+			final CyRow row = edgeTable.getRow(edge.getSUID());
+			if (row.get(CyNetwork.NAME, String.class) == null) {
+				setEdgeName(edge, row.get(CyEdge.INTERACTION, String.class));
+			}
+		}
+		unnamedEdges.clear();
+
+		if (!namespaces.isEmpty() && !hasContextAttribute) {
+			addNetworkAttribute(new NetworkAttributesElement(null, NamespacesElement.ASPECT_NAME,
+					NiceCyRootNetwork.serializeNamespaces(namespaces)));
+		}
+
+		serializeOpaqueAspects();
+	}
+
+	private void serializeOpaqueAspects() {
+		final long t0 = System.currentTimeMillis();
+		final ObjectMapper mapper = new ObjectMapper();
+		final CyTable table = base.getTable(CyNetwork.class, CyNetwork.DEFAULT_ATTRS);
+
+		opaqueAspects.forEach((aspectName, opaque) -> {
+			List<JsonNode> data = new ArrayList<>(opaque.size());
+			for (AspectElement el : opaque) {
+				data.add(((OpaqueElement) el).getData());
+			}
+			String column = CxUtil.OPAQUE_ASPECT_PREFIX + aspectName;
+			try {
+				String aspectStr = mapper.writeValueAsString(data);
+				CxUtil.createColumn(table, column, String.class, true);
+				table.getRow(base.getSUID()).set(column, aspectStr);
+			} catch (IOException e) {
+				logger.warn("Failed to serialize opaque aspect: " + aspectName);
+			}
+		});
+		rawOpaqueAspects.get().forEach((aspectName, aspectStr) -> {
+			String column = CxUtil.OPAQUE_ASPECT_PREFIX + aspectName;
+			CxUtil.createColumn(table, column, String.class, true);
+			table.getRow(base.getSUID()).set(column, aspectStr);
+		});
+		TimingUtil.reportTimeDifference(t0, "Opaque Elements", -1);
+	}
+
+	/**
+	 * Release everything staged, once the views are built or when the import was cancelled
+	 */
+	public void release() {
+		nodes.clear();
+		edges.clear();
+		undeclaredNodes.clear();
+		unnamedEdges.clear();
+		pendingEdgeAttributes.clear();
+		cartesianLayout.clear();
+		visualProperties.clear();
+		nodeBypass.clear();
+		edgeBypass.clear();
+		opaqueAspects.clear();
+		namespaces.clear();
+		strings.clear();
+		tableVisualStyles = null;
+		nodeTable = null;
+		nodeLocalTable = null;
+		edgeTable = null;
+		edgeLocalTable = null;
+		base = null;
+	}
+
+	public String getNetworkName() {
+		return name;
+	}
+
+	/**
+	 * Name the collection (and the network, through its shared name) when the CX has no name
+	 * @param networkName
+	 */
+	public void setNetworkName(String networkName) {
+		final CyRootNetwork root = base.getRootNetwork();
+		root.getRow(root).set(CyNetwork.NAME, networkName);
+		base.getRow(base).set(CyRootNetwork.SHARED_NAME, networkName);
+		name = networkName;
+	}
+
+	public List<CyNetworkView> createViews(Boolean explicitCreateView) {
+		List<CyNetworkView> views = new ArrayList<>();
+		final long networkSize = base.getNodeCount() + base.getEdgeCount();
+
+		if (CxPreferences.shouldCreateView(explicitCreateView, networkSize)) {
+			CyNetworkViewFactory view_factory = CyServiceModule.getService(CyNetworkViewFactory.class);
+			CyNetworkViewManager view_manager = CyServiceModule.getService(CyNetworkViewManager.class);
+
+			CyNetworkView view = view_factory.createNetworkView(base);
+			ViewMaker.makeView(view, nodes::get, edges::get, cartesianLayout, visualProperties, nodeBypass, edgeBypass);
+			view_manager.addNetworkView(view);
+			views.add(view);
+		}
+		return views;
+	}
+
+	public void addTableVisualStyles(CyNetwork network) throws Exception {
+		if (tableVisualStyles == null) {
+			return;
+		}
+		Map<String, Map<String, TableColumnVisualStyle>> tableStyles = tableVisualStyles.get(DefaultTableType.Network);
+		if (tableStyles != null) {
+			NiceCyRootNetwork.addStyleToTable(network.getDefaultNetworkTable(), tableStyles);
+		}
+		tableStyles = tableVisualStyles.get(DefaultTableType.Node);
+		if (tableStyles != null) {
+			NiceCyRootNetwork.addStyleToTable(network.getDefaultNodeTable(), tableStyles);
+		}
+		tableStyles = tableVisualStyles.get(DefaultTableType.Edge);
+		if (tableStyles != null) {
+			NiceCyRootNetwork.addStyleToTable(network.getDefaultEdgeTable(), tableStyles);
+		}
+	}
+}
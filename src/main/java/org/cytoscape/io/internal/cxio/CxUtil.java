@@ -8,7 +8,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.apache.log4j.Logger;
 import org.cytoscape.application.CyApplicationManager;
@@ -391,15 +390,29 @@ public final class CxUtil {
     		final String name,
     		final Class<?> data_type,
     		final boolean is_single) {
+		return createColumn(table, name, data_type, is_single, null);
+	}
+	
+	/**
+	 * Create a column if it does not exist yet
+	 * @param default_value default value of a new column, a List for list columns, may be null
+	 * @return the column, or null if there is no table
+	 */
+	@SuppressWarnings("unchecked")
+	public static CyColumn createColumn(final CyTable table, 
+    		final String name,
+    		final Class<?> data_type,
+    		final boolean is_single,
+    		final Object default_value) {
 		if (table == null) {
 			return null;
 		}
 			
 		if (table.getColumn(name) == null) {
 			if (is_single) {
-		       table.createColumn(name, data_type, false);
+		       table.createColumn(name, (Class<Object>) data_type, false, default_value);
 		   }else {
-		       table.createListColumn(name, data_type, false);
+		       table.createListColumn(name, (Class<Object>) data_type, false, (List<Object>) default_value);
 		   }
 	    }
 		return table.getColumn(name);
@@ -446,6 +459,53 @@ public final class CxUtil {
 		}
 	}
 	
+	/**
+	 * Set the value of a CX attribute in the given row, creating the column in the table if needed.
+	 * @param table
+	 * @param row
+	 * @param attr
+	 */
+	public final static void setAttributeValue(final CyTable table, final CyRow row, final AbstractAttributesAspectElement attr) {
+		setAttributeValue(table, row, attr, null);
+	}
+
+	/**
+	 * Set the value of a CX attribute in the given row, creating the column in the table if needed.
+	 * @param table
+	 * @param row
+	 * @param attr
+	 * @param strings pool for the column name and string values, may be null
+	 */
+	public final static void setAttributeValue(final CyTable table, final CyRow row, final AbstractAttributesAspectElement attr,
+			final StringPool strings) {
+		final String name = strings == null ? attr.getName() : strings.intern(attr.getName());
+		if (table.getColumn(name) == null) {
+			createColumn(table, name, getDataType(attr.getDataType()), attr.isSingleValue());
+		}
+		final Object value = strings == null ? getValue(attr) : strings.values(name).internValue(getValue(attr));
+		setRowValue(row, name, getDataType(attr.getDataType()), value);
+	}
+
+	/**
+	 * Set a parsed CX attribute value in the given row, explaining failures
+	 * @param row
+	 * @param name column name
+	 * @param type the type declared in CX
+	 * @param value
+	 */
+	public final static void setRowValue(final CyRow row, final String name, final Class<?> type, final Object value) {
+		try {
+			row.set(name, value);
+		} catch (NullPointerException e) {
+			throw new NullPointerException(
+					"NullPointerException setting " + name + " to " + value + ". Is there a null value in a list?");
+		} catch (IllegalArgumentException e) {
+			String message = String.format("Cannot set value in column %s(%s) to %s (type %s). %s", name,
+					type, value, value == null ? null : value.getClass(), e.getMessage());
+			throw new IllegalArgumentException(message, e);
+		}
+	}
+
 	public final static Object getValue(final AbstractAttributesAspectElement e) {
 		Class<?> type = getDataType(e.getDataType());
 		if (e.isSingleValue()) {
@@ -460,16 +520,70 @@ public final class CxUtil {
 			return val;
 		} 
 		
-		List<Object> values = e.getValues().stream()
-				.map(value -> {
-					return parseValue(value, type);	
-				})
-				.collect(Collectors.toList());
-		
+		final List<String> strings = e.getValues();
+		final List<Object> values = new ArrayList<>(strings.size());
+		for (String value : strings) {
+			values.add(parseValue(value, type));
+		}
 		return values;
 		
 	}
 
+	/**
+	 * The strings CX uses for a missing number: null, "", "null" (any case), "NaN" and "nan"
+	 */
+	public final static boolean isNullValue(final String value) {
+		if (value == null) {
+			return true;
+		}
+		switch (value.length()) {
+		case 0:
+			return true;
+		case 3:
+			return value.equals("NaN") || value.equals("nan");
+		case 4:
+			return value.equalsIgnoreCase("null");
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Parse a CX double without boxing. Missing values are NaN.
+	 */
+	public final static double parseDouble(final String value) {
+		if (isNullValue(value)) {
+			return Double.NaN;
+		}
+		try {
+			return Double.parseDouble(value);
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("could not convert '" + value + "' to double");
+		}
+	}
+
+	/**
+	 * Parse a CX long without boxing. Check {@link #isNullValue(String)} first.
+	 */
+	public final static long parseLong(final String value) {
+		try {
+			return Long.parseLong(value);
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("could not convert '" + value + "' to long");
+		}
+	}
+
+	/**
+	 * Parse a CX integer without boxing. Check {@link #isNullValue(String)} first.
+	 */
+	public final static int parseInt(final String value) {
+		try {
+			return Integer.parseInt(value);
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("could not convert '" + value + "' to integer");
+		}
+	}
+
     public final static Object parseValue(String value,
                                            final Class<?> type) {
     	
@@ -477,53 +591,24 @@ public final class CxUtil {
         if (type == String.class || type == null) {
             return value;
         }
-        // nullify str values for number parsers
-        if (value == null || value.equals("") || value.equalsIgnoreCase("null") || value.equals("NaN") || value.equals("nan")){
-    		value = null;
-    	}
-        
         // Double is special because of NaN values
         if (type == Double.class) {
-        	if (value == null) {
-        		return Double.NaN;
-        	}
-            try {
-                return Double.valueOf(value);
-            }
-            catch (final NumberFormatException e) {
-                throw new IllegalArgumentException("could not convert '" + value + "' to double");
-            }
-        }else if (type == Boolean.class) {
+        	return parseDouble(value);
+        } else if (type == Boolean.class) {
         	// Boolean parses null to false
-            try {
-                return Boolean.valueOf(value);
-            }
-            catch (final NumberFormatException e) {
-                throw new IllegalArgumentException("could not convert '" + value + "' to boolean");
-            }
+        	return isNullValue(value) ? Boolean.FALSE : Boolean.valueOf(value);
         }
         
         // Long and Integer cannot be null values
-        if (value == null) {
+        if (isNullValue(value)) {
         	return null;
         }
         
         if (type == Long.class) {
-            try {
-                return Long.valueOf(value);
-            }
-            catch (final NumberFormatException e) {
-                throw new IllegalArgumentException("could not convert '" + value + "' to long");
-            }
+        	return parseLong(value);
         }
         else if (type == Integer.class) {
-        	
-            try {
-                return Integer.valueOf(value);
-            }
-            catch (final NumberFormatException e) {
-                throw new IllegalArgumentException("could not convert '" + value + "' to integer");
-            }
+        	return parseInt(value);
         }
         
         throw new IllegalArgumentException("don't know how to deal with type '" + type +
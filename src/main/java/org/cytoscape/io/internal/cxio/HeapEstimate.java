@@ -0,0 +1,93 @@
+package org.cytoscape.io.internal.cxio;
+
+import org.ndexbio.cxio.aspects.datamodels.CartesianLayoutElement;
+import org.ndexbio.cxio.aspects.datamodels.EdgeAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.EdgesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodeAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodesElement;
+import org.ndexbio.cxio.metadata.MetaDataCollection;
+
+/**
+ * Rough heap estimates for building a network and its view, from the element counts in the CX
+ * metadata or of the built network. They only have to tell a network that will not fit from one
+ * that will, so the per-element costs are deliberately on the high side.
+ */
+public final class HeapEstimate {
+
+	// A node or edge with its rows in the default, shared and local tables
+	private static final long BYTES_PER_ELEMENT = 600;
+	// One boxed attribute value in a row
+	private static final long BYTES_PER_ATTRIBUTE = 80;
+	// A node or edge view with its visual property values
+	private static final long VIEW_BYTES_PER_ELEMENT = 1500;
+
+	private HeapEstimate() {
+	}
+
+	/**
+	 * @param elements number of nodes and edges
+	 * @param attributes number of node and edge attribute values
+	 */
+	public static long forNetwork(long elements, long attributes) {
+		return elements * BYTES_PER_ELEMENT + attributes * BYTES_PER_ATTRIBUTE;
+	}
+
+	/**
+	 * @param elements number of nodes and edges
+	 */
+	public static long forView(long elements) {
+		return elements * VIEW_BYTES_PER_ELEMENT;
+	}
+
+	/**
+	 * @return heap that can still be allocated
+	 */
+	public static long available() {
+		final Runtime runtime = Runtime.getRuntime();
+		return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+	}
+
+	/**
+	 * @param elements number of nodes and edges
+	 * @return true if a view of that size is expected to fit in the heap
+	 */
+	public static boolean fitsView(long elements) {
+		return forView(elements) < available();
+	}
+
+	/**
+	 * @return the number of nodes and edges declared in the metadata, or -1 if it does not have
+	 * both counts
+	 */
+	public static long getElementCount(MetaDataCollection metadata) {
+		final long nodes = getCount(metadata, NodesElement.ASPECT_NAME);
+		final long edges = getCount(metadata, EdgesElement.ASPECT_NAME);
+		return nodes < 0 || edges < 0 ? -1 : nodes + edges;
+	}
+
+	/**
+	 * Estimate the heap needed for the network and its view from the metadata
+	 * @return the estimate in bytes, or -1 if the metadata has no node and edge counts
+	 */
+	public static long forImport(MetaDataCollection metadata) {
+		final long elements = getElementCount(metadata);
+		if (elements < 0) {
+			return -1;
+		}
+		final long attributes = Math.max(0, getCount(metadata, NodeAttributesElement.ASPECT_NAME))
+				+ Math.max(0, getCount(metadata, EdgeAttributesElement.ASPECT_NAME))
+				+ Math.max(0, getCount(metadata, CartesianLayoutElement.ASPECT_NAME));
+		return forNetwork(elements, attributes) + forView(elements);
+	}
+
+	/**
+	 * @return the element count of an aspect in the metadata, or -1 if it is not there
+	 */
+	public static long getCount(MetaDataCollection metadata, String aspect) {
+		if (metadata == null) {
+			return -1;
+		}
+		final Long count = metadata.getElementCount(aspect);
+		return count == null ? -1 : count.longValue();
+	}
+}
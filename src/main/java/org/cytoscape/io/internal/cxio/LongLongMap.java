@@ -0,0 +1,210 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.util.Arrays;
+
+/**
+ * A map from long to long without boxing, used for CX ID and SUID lookups during import.
+ *
+ * CX IDs are usually assigned densely from 0, so the map starts out as a plain array indexed by
+ * the key. It switches to open addressing (linear probing) as soon as a key is negative or too
+ * far beyond the number of entries for an array to pay off.
+ *
+ * {@link #NO_VALUE} marks a missing entry and can not be stored.
+ */
+public final class LongLongMap {
+
+	public static final long NO_VALUE = Long.MIN_VALUE;
+
+	// Keys beyond this many slots per entry (plus the minimum capacity) leave dense mode
+	private static final int DENSE_SLACK = 2;
+	private static final int MIN_CAPACITY = 16;
+	private static final double LOAD_FACTOR = 0.6;
+
+	private int size = 0;
+
+	// Dense mode: values indexed by key, NO_VALUE for unused slots
+	private long[] dense;
+
+	// Hash mode: open addressing, NO_VALUE in values for unused slots
+	private long[] keys;
+	private long[] values;
+	private int mask;
+	private int resizeAt;
+
+	public LongLongMap() {
+		this(MIN_CAPACITY, -1);
+	}
+
+	/**
+	 * @param expectedSize number of entries expected, for presizing
+	 * @param maxKey largest key expected, or a negative value if unknown. When the keys are known
+	 * to be dense (maxKey close to expectedSize) the array is allocated up front.
+	 */
+	public LongLongMap(int expectedSize, long maxKey) {
+		int capacity = Math.max(MIN_CAPACITY, expectedSize);
+		if (maxKey >= 0 && maxKey < denseLimit(capacity)) {
+			capacity = (int) Math.max(capacity, maxKey + 1);
+		}
+		dense = new long[capacity];
+		Arrays.fill(dense, NO_VALUE);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean containsKey(long key) {
+		return get(key) != NO_VALUE;
+	}
+
+	/**
+	 * @return the value for the key, or {@link #NO_VALUE}
+	 */
+	public long get(long key) {
+		if (dense != null) {
+			return key >= 0 && key < dense.length ? dense[(int) key] : NO_VALUE;
+		}
+		int slot = slot(key);
+		while (values[slot] != NO_VALUE) {
+			if (keys[slot] == key) {
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return NO_VALUE;
+	}
+
+	/**
+	 * @return the previous value for the key, or {@link #NO_VALUE}
+	 */
+	public long put(long key, long value) {
+		if (value == NO_VALUE) {
+			throw new IllegalArgumentException("Can not store NO_VALUE in a LongLongMap");
+		}
+		if (dense != null) {
+			// Keys within the array are always stored densely, the limit only decides whether
+			// the array grows for a key beyond it
+			if (key >= 0 && (key < dense.length || key < denseLimit(size + 1))) {
+				if (key >= dense.length) {
+					growDense(key);
+				}
+				long previous = dense[(int) key];
+				dense[(int) key] = value;
+				if (previous == NO_VALUE) {
+					size++;
+				}
+				return previous;
+			}
+			toHash();
+		}
+
+		int slot = slot(key);
+		while (values[slot] != NO_VALUE) {
+			if (keys[slot] == key) {
+				long previous = values[slot];
+				values[slot] = value;
+				return previous;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size > resizeAt) {
+			rehash(keys.length * 2);
+		}
+		return NO_VALUE;
+	}
+
+	public void clear() {
+		size = 0;
+		keys = null;
+		values = null;
+		dense = new long[MIN_CAPACITY];
+		Arrays.fill(dense, NO_VALUE);
+	}
+
+	public interface EntryConsumer {
+		void accept(long key, long value);
+	}
+
+	/**
+	 * Visit all entries. The order is by key in dense mode and unspecified otherwise.
+	 */
+	public void forEach(EntryConsumer consumer) {
+		if (dense != null) {
+			for (int key = 0; key < dense.length; key++) {
+				if (dense[key] != NO_VALUE) {
+					consumer.accept(key, dense[key]);
+				}
+			}
+			return;
+		}
+		for (int slot = 0; slot < values.length; slot++) {
+			if (values[slot] != NO_VALUE) {
+				consumer.accept(keys[slot], values[slot]);
+			}
+		}
+	}
+
+	private static long denseLimit(int entries) {
+		return (long) entries * DENSE_SLACK + MIN_CAPACITY * 64L;
+	}
+
+	private void growDense(long key) {
+		long capacity = Math.max(key + 1, (long) dense.length * 2);
+		capacity = Math.min(capacity, Integer.MAX_VALUE - 8);
+		int oldLength = dense.length;
+		dense = Arrays.copyOf(dense, (int) capacity);
+		Arrays.fill(dense, oldLength, dense.length, NO_VALUE);
+	}
+
+	private void toHash() {
+		long[] old = dense;
+		dense = null;
+		allocate(capacityFor(size + 1));
+		size = 0;
+		for (int key = 0; key < old.length; key++) {
+			if (old[key] != NO_VALUE) {
+				put(key, old[key]);
+			}
+		}
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		long[] oldValues = values;
+		allocate(capacity);
+		size = 0;
+		for (int slot = 0; slot < oldValues.length; slot++) {
+			if (oldValues[slot] != NO_VALUE) {
+				put(oldKeys[slot], oldValues[slot]);
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new long[capacity];
+		Arrays.fill(values, NO_VALUE);
+		mask = capacity - 1;
+		resizeAt = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private static int capacityFor(int entries) {
+		int capacity = MIN_CAPACITY;
+		while (capacity * LOAD_FACTOR <= entries) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private int slot(long key) {
+		// Spread sequential keys across the table
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+}
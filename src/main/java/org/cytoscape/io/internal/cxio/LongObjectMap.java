@@ -0,0 +1,93 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * A map from long keys to objects, kept as a {@link LongLongMap} from key to a position in a
+ * value list. Values are iterated in insertion order.
+ */
+public final class LongObjectMap<V> {
+
+	private final LongLongMap index;
+	private List<V> values;
+	private long[] keys;
+
+	public LongObjectMap() {
+		this(16, -1);
+	}
+
+	/**
+	 * @see LongLongMap#LongLongMap(int, long)
+	 */
+	public LongObjectMap(int expectedSize, long maxKey) {
+		index = new LongLongMap(expectedSize, maxKey);
+		values = new ArrayList<>(Math.max(16, expectedSize));
+		keys = new long[Math.max(16, expectedSize)];
+	}
+
+	public int size() {
+		return values.size();
+	}
+
+	public boolean isEmpty() {
+		return values.isEmpty();
+	}
+
+	public boolean containsKey(long key) {
+		return index.containsKey(key);
+	}
+
+	/**
+	 * @return the value for the key, or null
+	 */
+	public V get(long key) {
+		long i = index.get(key);
+		return i == LongLongMap.NO_VALUE ? null : values.get((int) i);
+	}
+
+	/**
+	 * @return the previous value for the key, or null
+	 */
+	public V put(long key, V value) {
+		long i = index.get(key);
+		if (i != LongLongMap.NO_VALUE) {
+			return values.set((int) i, value);
+		}
+		int position = values.size();
+		index.put(key, position);
+		values.add(value);
+		if (position == keys.length) {
+			long[] larger = new long[keys.length * 2];
+			System.arraycopy(keys, 0, larger, 0, position);
+			keys = larger;
+		}
+		keys[position] = key;
+		return null;
+	}
+
+	public void clear() {
+		index.clear();
+		values = new ArrayList<>(16);
+		keys = new long[16];
+	}
+
+	/**
+	 * @return the values in insertion order
+	 */
+	public Collection<V> values() {
+		return Collections.unmodifiableList(values);
+	}
+
+	/**
+	 * Visit all keys in insertion order
+	 */
+	public void forEachKey(LongConsumer consumer) {
+		for (int i = 0; i < values.size(); i++) {
+			consumer.accept(keys[i]);
+		}
+	}
+}
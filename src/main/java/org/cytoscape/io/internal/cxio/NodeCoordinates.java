@@ -0,0 +1,89 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.util.Arrays;
+
+/**
+ * Node positions read during an import, kept until the view is created. The coordinates are
+ * stored in parallel primitive arrays indexed by the order the nodes were added, and the z array
+ * is only allocated once a node has a z coordinate.
+ */
+public final class NodeCoordinates {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private long[] suids = new long[INITIAL_CAPACITY];
+	private double[] x = new double[INITIAL_CAPACITY];
+	private double[] y = new double[INITIAL_CAPACITY];
+	// NaN for nodes without z
+	private double[] z = null;
+	private int size = 0;
+
+	/**
+	 * @param suid SUID of the node
+	 * @param z z coordinate, or null
+	 */
+	public void add(long suid, double x, double y, Double z) {
+		if (size == suids.length) {
+			grow();
+		}
+		suids[size] = suid;
+		this.x[size] = x;
+		this.y[size] = y;
+		if (z != null) {
+			if (this.z == null) {
+				this.z = new double[suids.length];
+				Arrays.fill(this.z, Double.NaN);
+			}
+			this.z[size] = z;
+		}
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public long getSuid(int i) {
+		return suids[i];
+	}
+
+	public double getX(int i) {
+		return x[i];
+	}
+
+	public double getY(int i) {
+		return y[i];
+	}
+
+	public boolean hasZ(int i) {
+		return z != null && !Double.isNaN(z[i]);
+	}
+
+	public double getZ(int i) {
+		return z[i];
+	}
+
+	public void clear() {
+		suids = new long[INITIAL_CAPACITY];
+		x = new double[INITIAL_CAPACITY];
+		y = new double[INITIAL_CAPACITY];
+		z = null;
+		size = 0;
+	}
+
+	private void grow() {
+		final int capacity = suids.length * 2;
+		suids = Arrays.copyOf(suids, capacity);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		if (z != null) {
+			final int length = z.length;
+			z = Arrays.copyOf(z, capacity);
+			Arrays.fill(z, length, capacity, Double.NaN);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Decodes the chunks of a {@link CxFragmentSplitter} on the common fork/join pool and hands the
+ * results to a single consumer on the calling thread, in document order.
+ *
+ * The splitter runs on the calling thread too. Decoded chunks are consumed as soon as the ones
+ * before them are, and the splitter waits for the oldest chunk once two chunks per worker are in
+ * flight, so the raw and decoded chunks held at any time stay bounded.
+ *
+ * @param <T> what a chunk decodes to
+ */
+public final class ParallelChunkReader<T> {
+
+	@FunctionalInterface
+	public interface Decoder<T> {
+		T decode(CxFragmentSplitter.Chunk chunk) throws Exception;
+	}
+
+	@FunctionalInterface
+	public interface Consumer<T, E extends Exception> {
+		void accept(T decoded) throws E;
+	}
+
+	private final CxFragmentSplitter splitter;
+	private final Decoder<T> decoder;
+	private int chunks = 0;
+
+	public ParallelChunkReader(CxFragmentSplitter splitter, Decoder<T> decoder) {
+		this.splitter = splitter;
+		this.decoder = decoder;
+	}
+
+	/**
+	 * Decode all chunks and consume them in document order
+	 * @param consumer called on the calling thread
+	 * @param cancelled checked between chunks, may be null
+	 * @return false if the read was cancelled
+	 * @throws IOException if the document can not be split or a chunk can not be decoded
+	 * @throws E if the consumer fails
+	 */
+	public <E extends Exception> boolean read(Consumer<T, E> consumer, BooleanSupplier cancelled) throws IOException, E {
+		final ForkJoinPool pool = ForkJoinPool.commonPool();
+		final int maxPending = 2 * pool.getParallelism() + 1;
+		final Deque<ForkJoinTask<T>> pending = new ArrayDeque<>();
+		try {
+			CxFragmentSplitter.Chunk chunk;
+			while ((chunk = splitter.next()) != null) {
+				final CxFragmentSplitter.Chunk toDecode = chunk;
+				pending.add(pool.submit(() -> decode(toDecode)));
+				chunks++;
+				// Consume what is decoded, and wait for the oldest chunk when enough are in flight
+				while (!pending.isEmpty() && (pending.peek().isDone() || pending.size() > maxPending)) {
+					consumer.accept(join(pending.poll()));
+				}
+				if (cancelled != null && cancelled.getAsBoolean()) {
+					return false;
+				}
+			}
+			while (!pending.isEmpty()) {
+				consumer.accept(join(pending.poll()));
+				if (cancelled != null && cancelled.getAsBoolean()) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			pending.forEach(task -> task.cancel(true));
+		}
+	}
+
+	/**
+	 * @return number of chunks read so far
+	 */
+	public int getChunkCount() {
+		return chunks;
+	}
+
+	private T decode(CxFragmentSplitter.Chunk chunk) {
+		try {
+			return decoder.decode(chunk);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new ChunkException(chunk, e);
+		}
+	}
+
+	private static <T> T join(ForkJoinTask<T> task) throws IOException {
+		try {
+			return task.join();
+		} catch (RuntimeException e) {
+			// The pool may wrap the exception of another thread again
+			for (Throwable t = e; t != null; t = t.getCause()) {
+				if (t instanceof ChunkException) {
+					final Throwable cause = t.getCause();
+					if (cause instanceof IOException) {
+						throw (IOException) cause;
+					}
+					throw new IOException(cause.getMessage(), cause);
+				}
+			}
+			throw e;
+		}
+	}
+
+	private static final class ChunkException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		ChunkException(CxFragmentSplitter.Chunk chunk, Exception cause) {
+			super("Failed to decode " + chunk.getAspectName() + " chunk", cause);
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Iterates a source on a parser thread of its own and hands the elements over in batches, so
+ * that parsing overlaps with what the consuming thread does with them.
+ *
+ * The queue between the threads holds a fixed number of batches: the parser waits when the
+ * consumer falls behind. An exception of the parser is thrown to the consumer by
+ * {@link #nextBatch()} once the batches before it are consumed. Closing the reader stops the
+ * parser, e.g. when the consumer is cancelled or fails.
+ *
+ * <pre>
+ * try (PipelinedReader&lt;AspectElement&gt; pipeline = new PipelinedReader&lt;&gt;(reader, "CX parser")) {
+ *     List&lt;AspectElement&gt; batch;
+ *     while ((batch = pipeline.nextBatch()) != null) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @param <T> the elements
+ */
+public final class PipelinedReader<T> implements AutoCloseable {
+
+	private static final int BATCH_SIZE = 512;
+	private static final int QUEUE_CAPACITY = 64;
+
+	// Put after the last batch
+	private static final List<Object> END = Collections.emptyList();
+
+	private final int batchSize;
+	private final BlockingQueue<List<T>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+	private final Thread parser;
+
+	private volatile boolean closed = false;
+	private volatile Throwable failure = null;
+	private boolean ended = false;
+
+	/**
+	 * Start parsing the source
+	 * @param source iterated on the parser thread only
+	 * @param threadName name of the parser thread
+	 */
+	public PipelinedReader(Iterable<T> source, String threadName) {
+		this(source, threadName, BATCH_SIZE);
+	}
+
+	/**
+	 * Start parsing the source
+	 * @param source iterated on the parser thread only
+	 * @param threadName name of the parser thread
+	 * @param batchSize elements per batch, the queue holds 64 batches
+	 */
+	public PipelinedReader(Iterable<T> source, String threadName, int batchSize) {
+		this.batchSize = batchSize;
+		parser = new Thread(() -> parse(source), threadName);
+		parser.setDaemon(true);
+		parser.start();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void parse(Iterable<T> source) {
+		try {
+			final Iterator<T> it = source.iterator();
+			List<T> batch = new ArrayList<>(batchSize);
+			while (!closed && it.hasNext()) {
+				batch.add(it.next());
+				if (batch.size() == batchSize) {
+					queue.put(batch);
+					batch = new ArrayList<>(batchSize);
+				}
+			}
+			if (!batch.isEmpty() && !closed) {
+				queue.put(batch);
+			}
+		} catch (InterruptedException e) {
+			// Closed by the consumer
+			return;
+		} catch (Throwable t) {
+			failure = t;
+		}
+		try {
+			queue.put((List<T>) END);
+		} catch (InterruptedException e) {
+			// Closed by the consumer
+		}
+	}
+
+	/**
+	 * Wait for the next batch of elements
+	 * @return the batch, or null once the source is exhausted
+	 * @throws IOException if the source failed, or the wait was interrupted
+	 */
+	public List<T> nextBatch() throws IOException {
+		if (ended) {
+			return null;
+		}
+		final List<T> batch;
+		try {
+			batch = queue.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the parser", e);
+		}
+		if (batch != END) {
+			return batch;
+		}
+		ended = true;
+		final Throwable t = failure;
+		if (t == null) {
+			return null;
+		} else if (t instanceof IOException) {
+			throw (IOException) t;
+		} else if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		} else if (t instanceof Error) {
+			throw (Error) t;
+		}
+		throw new IOException(t.getMessage(), t);
+	}
+
+	/**
+	 * Stop the parser and drop the batches that were not consumed
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		parser.interrupt();
+		queue.clear();
+	}
+}
@@ -93,28 +93,42 @@ public final class Settings {
     }
     
     public final static boolean isIgnore(final String column_name, final Set<String> additional_to_ignore, Object value) {
-    	
-    	if (value instanceof String && ((String) value).isEmpty()) {
-    		return true;
-    	}
-    	if (value instanceof List<?> && ((List<?>) value).isEmpty()) {
-    		return true;
-    	}
-    	
+    	return isIgnoreValue(column_name, value) || isIgnoreColumn(column_name, additional_to_ignore);
+	}
+    
+    /**
+     * The part of {@link #isIgnore} that only depends on the column, e.g. to decide once per table
+     */
+    public final static boolean isIgnoreColumn(final String column_name, final Set<String> additional_to_ignore) {
     	switch (column_name) {
 		case CyNetwork.SUID:
 			return Settings.INSTANCE.isIgnoreSuidColumn();
 		case CyNetwork.SELECTED:
-			Boolean boolVal = value == null ? false : Boolean.valueOf(value.toString());
-			return Settings.INSTANCE.isIgnoreSelectedColumn()
-					|| (boolVal != true && Settings.INSTANCE.isWriteSelectedOnlyIfTrue());
+			return Settings.INSTANCE.isIgnoreSelectedColumn();
 		case CxUtil.CX_ID_MAPPING:
 		case CxUtil.CX_METADATA:
 			return true;
 		default:
 			return ((additional_to_ignore != null) && additional_to_ignore.contains(column_name));
 		}
-	}
+    }
+    
+    /**
+     * The part of {@link #isIgnore} that depends on the value of a column that is not ignored
+     */
+    public final static boolean isIgnoreValue(final String column_name, Object value) {
+    	if (value instanceof String && ((String) value).isEmpty()) {
+    		return true;
+    	}
+    	if (value instanceof List<?> && ((List<?>) value).isEmpty()) {
+    		return true;
+    	}
+    	if (CyNetwork.SELECTED.equals(column_name)) {
+    		Boolean boolVal = value == null ? false : Boolean.valueOf(value.toString());
+    		return boolVal != true && Settings.INSTANCE.isWriteSelectedOnlyIfTrue();
+    	}
+    	return false;
+    }
 	
 
     private Settings() {
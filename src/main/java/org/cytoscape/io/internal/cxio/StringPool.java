@@ -0,0 +1,147 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A per-import dictionary of repeated strings: column names, categorical attribute values and
+ * interaction types. Every equal string read during one import resolves to a single instance,
+ * which is also the one handed to the CyTables.
+ *
+ * Column names and interactions are pooled directly. Attribute values go through the
+ * {@link Values} of their column, which stops pooling once a sample of the column shows mostly
+ * distinct values, such as names or identifiers, so the pool does not end up holding them all.
+ *
+ * Strings can also be referred to by an int code, for compact staging.
+ */
+public final class StringPool {
+
+	// Values of a column are pooled until this many show more than the ratio to be distinct
+	private static final int SAMPLE_SIZE = 1024;
+	private static final double MAX_DISTINCT_RATIO = 0.5;
+
+	private final Map<String, Integer> codes = new HashMap<>();
+	private final List<String> strings = new ArrayList<>();
+	private final Map<String, Values> columns = new HashMap<>();
+
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * @return the pooled instance equal to s, or null
+	 */
+	public String intern(String s) {
+		return s == null ? null : strings.get(code(s));
+	}
+
+	/**
+	 * @return the values of the columns with the given name
+	 */
+	public Values values(String column) {
+		return columns.computeIfAbsent(column, k -> new Values());
+	}
+
+	/**
+	 * @return the code of a non-null string, adding it to the pool if needed
+	 */
+	public int code(String s) {
+		Integer code = codes.get(s);
+		if (code != null) {
+			hits++;
+			return code;
+		}
+		misses++;
+		code = strings.size();
+		strings.add(s);
+		codes.put(s, code);
+		return code;
+	}
+
+	/**
+	 * @return the string for a code returned by {@link #code(String)}
+	 */
+	public String get(int code) {
+		return strings.get(code);
+	}
+
+	public int size() {
+		return strings.size();
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return number of columns whose values are no longer pooled
+	 */
+	public int getUnpooledColumns() {
+		return (int) columns.values().stream().filter(v -> !v.pooling).count();
+	}
+
+	public void clear() {
+		codes.clear();
+		strings.clear();
+		columns.clear();
+	}
+
+	/**
+	 * The string values of a column, pooled while they repeat enough to pay off
+	 */
+	public final class Values {
+		private long seen = 0;
+		private long added = 0;
+		private boolean pooling = true;
+
+		private Values() {
+		}
+
+		/**
+		 * @return the pooled instance equal to s, or s itself once the column is not pooled
+		 */
+		public String intern(String s) {
+			return s == null || !pooling ? s : strings.get(code(s));
+		}
+
+		/**
+		 * Pool the value if it is a string
+		 */
+		public Object internValue(Object value) {
+			return value instanceof String ? intern((String) value) : value;
+		}
+
+		/**
+		 * @return the code of a non-null string, adding it to the pool. Check {@link #isPooling()}
+		 * afterwards, later values should not be coded once it is false.
+		 */
+		public int code(String s) {
+			final long before = misses;
+			final int code = StringPool.this.code(s);
+			seen++;
+			if (misses > before) {
+				added++;
+			}
+			if (seen >= SAMPLE_SIZE && added > seen * MAX_DISTINCT_RATIO) {
+				pooling = false;
+			}
+			return code;
+		}
+
+		/**
+		 * @return the string for a code returned by {@link #code(String)}
+		 */
+		public String get(int code) {
+			return strings.get(code);
+		}
+
+		public boolean isPooling() {
+			return pooling;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cytoscape.event.CyEventHelper;
+import org.cytoscape.io.internal.CyServiceModule;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyIdentifiable;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.model.subnetwork.CyRootNetwork;
+import org.cytoscape.model.subnetwork.CySubNetwork;
+
+/**
+ * Silences the row events of the tables being loaded during an import.
+ *
+ * The events fired while a table is silenced are dropped, not deferred: no RowsSetEvent is fired
+ * for the loaded rows, even after the scope is closed. The networks are not registered while
+ * they are imported, so no listener needs the per-row events, and collecting one payload per row
+ * set only slows wide tables down. Listeners learn about the loaded tables when the networks are
+ * registered. Closing the scope unsilences the tables and flushes the payload events fired by
+ * other sources in the meantime.
+ *
+ * <pre>
+ * try (TableEventScope scope = new TableEventScope()) {
+ *     scope.silence(network);
+ *     ...
+ * }
+ * </pre>
+ */
+public final class TableEventScope implements AutoCloseable {
+
+	@SuppressWarnings("unchecked")
+	private static final Class<? extends CyIdentifiable>[] TABLE_TYPES = new Class[] { CyNetwork.class, CyNode.class, CyEdge.class };
+
+	private static final String[] NETWORK_NAMESPACES = { CyNetwork.DEFAULT_ATTRS, CyNetwork.LOCAL_ATTRS, CyNetwork.HIDDEN_ATTRS };
+	private static final String[] ROOT_NAMESPACES = { CyRootNetwork.SHARED_ATTRS, CyRootNetwork.SHARED_DEFAULT_ATTRS,
+			CyNetwork.DEFAULT_ATTRS, CyNetwork.LOCAL_ATTRS, CyNetwork.HIDDEN_ATTRS };
+
+	private final CyEventHelper eventHelper;
+	private final List<CyTable> silenced = new ArrayList<>();
+
+	public TableEventScope() {
+		eventHelper = CyServiceModule.getService(CyEventHelper.class);
+	}
+
+	/**
+	 * Silence the node, edge and network tables of a network and of its root network
+	 */
+	public void silence(CyNetwork network) {
+		for (Class<? extends CyIdentifiable> type : TABLE_TYPES) {
+			for (String namespace : NETWORK_NAMESPACES) {
+				silence(network.getTable(type, namespace));
+			}
+		}
+		if (network instanceof CySubNetwork) {
+			CyRootNetwork root = ((CySubNetwork) network).getRootNetwork();
+			for (Class<? extends CyIdentifiable> type : TABLE_TYPES) {
+				for (String namespace : ROOT_NAMESPACES) {
+					silence(root.getTable(type, namespace));
+				}
+			}
+		}
+	}
+
+	public void silence(CyTable table) {
+		if (eventHelper == null || table == null || silenced.contains(table)) {
+			return;
+		}
+		eventHelper.silenceEventSource(table);
+		silenced.add(table);
+	}
+
+	@Override
+	public void close() {
+		if (eventHelper == null) {
+			return;
+		}
+		silenced.forEach(eventHelper::unsilenceEventSource);
+		silenced.clear();
+		eventHelper.flushPayloadEvents();
+	}
+}
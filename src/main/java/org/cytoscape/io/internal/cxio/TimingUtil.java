@@ -1,7 +1,12 @@
 package org.cytoscape.io.internal.cxio;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 public final class TimingUtil {
 
+    private static final Logger logger = LoggerFactory.getLogger(TimingUtil.class);
+
     public final static boolean WRITE_TO_BYTE_ARRAY_OUTPUTSTREAM = false;
     public static final boolean WRITE_TO_DEV_NULL                = false;
 
@@ -24,4 +29,14 @@ public final class TimingUtil {
         }
     }
 
+    public final static void reportStagedData(final String label, final long staged) {
+        final Runtime runtime = Runtime.getRuntime();
+        logger.debug(String.format("%-20s%-8s: %s MB heap in use", label, staged, (runtime.totalMemory() - runtime.freeMemory()) >> 20));
+    }
+
+    public final static void reportStringPool(final String label, final StringPool pool) {
+        logger.debug(String.format("%-20s%-8s: %s hits, %s misses, %s columns not pooled", label, pool.size(),
+                pool.getHits(), pool.getMisses(), pool.getUnpooledColumns()));
+    }
+
 }
@@ -24,10 +24,8 @@ import org.cytoscape.view.model.CyNetworkViewFactory;
 import org.cytoscape.view.model.CyNetworkViewManager;
 import org.ndexbio.cxio.aspects.datamodels.AbstractAttributesAspectElement;
 import org.ndexbio.cxio.aspects.datamodels.CyTableColumnElement;
-import org.ndexbio.cxio.aspects.datamodels.EdgeAttributesElement;
 import org.ndexbio.cxio.aspects.datamodels.HiddenAttributesElement;
 import org.ndexbio.cxio.aspects.datamodels.NetworkAttributesElement;
-import org.ndexbio.cxio.aspects.datamodels.NodeAttributesElement;
 import org.ndexbio.cxio.core.interfaces.AspectElement;
 import org.ndexbio.cxio.misc.OpaqueElement;
 
@@ -39,8 +37,8 @@ public abstract class NiceCyNetwork extends Identifiable {
 	protected final List<CyTableColumnElement> tableColumns = new ArrayList<>();
 	protected List<NetworkAttributesElement> attributes = new ArrayList<>();
 	protected List<HiddenAttributesElement> hiddenAttributes = new ArrayList<>();
-	protected Map<Long, List<NodeAttributesElement>> nodeAttributes = new HashMap<>();
-	protected Map<Long, List<EdgeAttributesElement>> edgeAttributes = new HashMap<>();
+	protected final StagedAttributes nodeAttributes = new StagedAttributes();
+	protected final StagedAttributes edgeAttributes = new StagedAttributes();
 
 	protected CyNetwork network;
 
@@ -58,15 +56,15 @@ public abstract class NiceCyNetwork extends Identifiable {
 		return hiddenAttributes;
 	}
 
-	public Map<Long, List<NodeAttributesElement>> getNodeAttributes() {
+	public StagedAttributes getNodeAttributes() {
 		return nodeAttributes;
 	}
 
 	public class NiceCySubNetwork extends NiceCyNetwork {
 
 		protected final NiceCyRootNetwork parent;
-		protected final List<Long> nodes;
-		protected final List<Long> edges;
+		protected final ArrayList<Long> nodes;
+		protected final ArrayList<Long> edges;
 		protected final List<Long> groups;
 		protected final Map<Long, NiceCyView> views;
 
@@ -93,8 +91,10 @@ public abstract class NiceCyNetwork extends Identifiable {
 		private void addElements() {
 			// If the parent was created from a singleton, add all nodes to the network
 			if (!parent.isCollection) {
-				nodes.addAll(parent.root_nodes.keySet());
-				edges.addAll(parent.root_edges.keySet());
+				nodes.ensureCapacity(parent.root_nodes.size());
+				edges.ensureCapacity(parent.root_edges.size());
+				parent.root_nodes.forEachKey(nodes::add);
+				parent.root_edges.forEachKey(edges::add);
 				groups.addAll(parent.root_groups.keySet());
 			}
 			// MUST add nodes to subnetworks first so shared node attrs work
@@ -130,26 +130,8 @@ public abstract class NiceCyNetwork extends Identifiable {
 						|| !view.isEdgeBypassEmpty(); */
 				
 				final long networkSize = network.getEdgeCount() + network.getNodeCount();
-				
-				final long viewThreshold = CxPreferences.getViewThreshold();
-				final CxPreferences.CreateViewEnum createViewPreference = CxPreferences.getCreateView();
-				System.out.println("View Preference: " + createViewPreference);
-				System.out.println("Explicit Create View: " + explicitCreateView);
-				final boolean createView;
-				
-				if (explicitCreateView != null) {
-					createView = explicitCreateView.booleanValue();
-				} else {
-					if(CxPreferences.getCreateView() == CxPreferences.CreateViewEnum.NEVER) { 
-						createView = false;
-					} else if (createViewPreference.equals(CxPreferences.CreateViewEnum.ALWAYS) || networkSize < viewThreshold){
-						createView = true;
-					} else {
-						createView = false;
-					}
-				}
-				
-				if (createView) {
+
+				if (CxPreferences.shouldCreateView(explicitCreateView, networkSize)) {
 					CyNetworkView v = view_factory.createNetworkView(network);
 					
 					view.apply(v);
@@ -157,6 +139,8 @@ public abstract class NiceCyNetwork extends Identifiable {
 					cy_views.add(v);
 				}
 			});
+			// Views that were not created keep nothing either
+			views.values().forEach(NiceCyView::release);
 			return cy_views;
 		}
 
@@ -203,6 +187,24 @@ public abstract class NiceCyNetwork extends Identifiable {
 		public List<Long> getGroups() {
 			return groups;
 		}
+
+		/**
+		 * @return number of staged elements still held for this subnetwork
+		 */
+		protected long getStagedSize() {
+			long size = nodes.size() + edges.size() + nodeAttributes.size() + edgeAttributes.size();
+			for (NiceCyView view : views.values()) {
+				size += view.getStagedSize();
+			}
+			return size;
+		}
+
+		protected void release() {
+			nodes.clear();
+			edges.clear();
+			groups.clear();
+			views.values().forEach(NiceCyView::release);
+		}
 	}
 
 	public String getNetworkName() {
@@ -221,13 +223,14 @@ public abstract class NiceCyNetwork extends Identifiable {
 			OpaqueElement op = (OpaqueElement) el;
 			nodes.add(op.getData());
 		}
-		CyTable table = network.getTable(CyNetwork.class, getNamespace());
+		serializeRawAspect(column, mapper.writeValueAsString(nodes));
+	}
 
-		String aspectStr = mapper.writeValueAsString(nodes);
+	protected void serializeRawAspect(String column, String aspectStr) {
+		CyTable table = network.getTable(CyNetwork.class, getNamespace());
 		CxUtil.createColumn(table, column, String.class, true);
 
 		table.getRow(network.getSUID()).set(column, aspectStr);
-
 	}
 
 	protected void addAttributes() {
@@ -247,14 +250,11 @@ public abstract class NiceCyNetwork extends Identifiable {
 		long t0 = System.currentTimeMillis();
 		addNetworkAttributesHelper(network, attributes, hiddenAttributes);
 		// addNetworkAttributesHelper(hidden_table, network, hiddenAttributes);
-		nodeAttributes.forEach((suid, attrs) -> {
-			CyNode node = root.getNode(suid);
-			addAttributesHelper(node_table, node_local_table, node, attrs);
-		});
-		edgeAttributes.forEach((suid, attrs) -> {
-			CyEdge edge = root.getEdge(suid);
-			addAttributesHelper(edge_table, edge_local_table, edge, attrs);
-		});
+		nodeAttributes.load(node_table, node_local_table, root::getNode);
+		edgeAttributes.load(edge_table, edge_local_table, root::getEdge);
+		// The values are in the tables now
+		nodeAttributes.clear();
+		edgeAttributes.clear();
 		TimingUtil.reportTimeDifference(t0, "attributes of " + getNetworkName(), -1);
 	}
 
@@ -351,40 +351,6 @@ public abstract class NiceCyNetwork extends Identifiable {
 		});
 	}
 
-	private static void addAttributesHelper(CyTable sharedTable, CyTable localTable, CyIdentifiable ele,
-			List<? extends AbstractAttributesAspectElement> attrs) {
-		// System.out.println(" Adding attributes to row for SUID: " + ele.getSUID() + "
-		// into shared table " + sharedTable.getTitle() + " and local table " +
-		// localTable.getTitle());
-
-		final CyRow sharedRow = sharedTable.getRow(ele.getSUID());
-		final CyRow localRow = localTable.getRow(ele.getSUID());
-
-		attrs.forEach(attr -> {
-			final String name = attr.getName();
-			final boolean isLocal = attr.getSubnetwork() != null;
-
-			final CyTable table = isLocal ? localTable : sharedTable;
-			final CyRow row = isLocal ? localRow : sharedRow;
-
-			if (table.getColumn(name) == null) {
-				CxUtil.createColumn(table, name, CxUtil.getDataType(attr.getDataType()), attr.isSingleValue());
-			}
-			Object value = CxUtil.getValue(attr);
-
-			try {
-				row.set(name, value);
-			} catch (NullPointerException e) {
-				throw new NullPointerException(
-						"NullPointerException setting " + name + " to " + value + ". Is there a null value in a list?");
-			} catch (IllegalArgumentException e) {
-				String message = String.format("Cannot set value in column %s(%s) to %s (type %s). %s", name,
-						CxUtil.getDataType(attr.getDataType()), value, value.getClass(), e.getMessage());
-				throw new IllegalArgumentException(message, e);
-			}
-		});
-	}
-
 	protected void addTableColumns() {
 
 		tableColumns.forEach(column -> {
@@ -3,6 +3,7 @@ package org.cytoscape.io.internal.nicecy;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -15,6 +16,10 @@ import org.cytoscape.application.CyApplicationManager;
 import org.cytoscape.application.TableViewRenderer;
 import org.cytoscape.io.internal.CyServiceModule;
 import org.cytoscape.io.internal.cxio.CxUtil;
+import org.cytoscape.io.internal.cxio.LongLongMap;
+import org.cytoscape.io.internal.cxio.LongObjectMap;
+import org.cytoscape.io.internal.cxio.StringPool;
+import org.cytoscape.io.internal.cxio.TableEventScope;
 import org.cytoscape.io.internal.cxio.TimingUtil;
 import org.cytoscape.model.CyColumn;
 import org.cytoscape.model.CyEdge;
@@ -101,13 +106,18 @@ public class NiceCyRootNetwork extends NiceCyNetwork{
 			AbstractTableVisualProperty.ASPECT_NAME
 	};
 	
-	private Map<Long, Long> suid_to_cxid_map;
+	private LongLongMap suid_to_cxid_map;
 	
-	protected final Map<String, Collection<AspectElement>> opaqueAspects;
+	// Dropped once serialized by apply()
+	protected Map<String, Collection<AspectElement>> opaqueAspects;
+	// Opaque aspects kept as raw JSON arrays by the importer
+	private Map<String, String> rawOpaqueAspects;
 	private final Map<Long, NiceCySubNetwork> subnetworks;
 	protected final boolean isCollection;
-	protected final Map<Long, NiceCyNode> root_nodes;
-	protected final Map<Long, NiceCyEdge> root_edges;
+	protected final LongObjectMap<NiceCyNode> root_nodes;
+	protected final LongObjectMap<NiceCyEdge> root_edges;
+	// Repeated names and values of this import
+	protected final StringPool strings = new StringPool();
 	protected final Map<Long, NiceCyGroup> root_groups;
 	
 	//table styles
@@ -116,10 +126,15 @@ public class NiceCyRootNetwork extends NiceCyNetwork{
 	
 	
 	public NiceCyRootNetwork(NiceCXNetwork niceCX) {
+		this(niceCX, Collections.emptyMap());
+	}
+	
+	public NiceCyRootNetwork(NiceCXNetwork niceCX, Map<String, String> rawOpaqueAspects) {
 		super(CxUtil.DEFAULT_SUBNET);
+		this.rawOpaqueAspects = rawOpaqueAspects;
 		subnetworks = new HashMap<>();
-		root_nodes = new HashMap<>();
-		root_edges = new HashMap<>();
+		root_nodes = new LongObjectMap<>(niceCX.getNodes().size(), getMaxId(niceCX, NodesElement.ASPECT_NAME));
+		root_edges = new LongObjectMap<>(niceCX.getEdges() == null ? 0 : niceCX.getEdges().size(), getMaxId(niceCX, EdgesElement.ASPECT_NAME));
 		root_groups = new HashMap<>();
 		tableVisualStyles = new HashMap<>();
 
@@ -145,6 +160,7 @@ public class NiceCyRootNetwork extends NiceCyNetwork{
 			throw new RuntimeException("Failed to process JSON in CX: " + e.getMessage());
 		}
 		TimingUtil.reportTimeDifference(t0, "Convert to NiceCY", -1);
+		TimingUtil.reportStringPool("strings", strings);
 		
 	}
 	
@@ -207,6 +223,8 @@ public class NiceCyRootNetwork extends NiceCyNetwork{
 		aspects.forEach(aspect -> {
 			SubNetworkElement sne = (SubNetworkElement) aspect;
 			NiceCySubNetwork network = subnetworks.get(sne.getId());
+			network.nodes.ensureCapacity(network.nodes.size() + sne.getNodes().size());
+			network.edges.ensureCapacity(network.edges.size() + sne.getEdges().size());
 			
 			sne.getNodes().forEach(nodeId -> {
 				long id = getCxId(nodeId);
@@ -313,10 +331,7 @@ public class NiceCyRootNetwork extends NiceCyNetwork{
 					if (net == null) {
 						throw new RuntimeException("No network found for SUID " + attr.getSubnetwork() + ". Check your CX attribute " + attr);
 					}
-					if (!net.nodeAttributes.containsKey(id)) {
-						net.nodeAttributes.put(id, new ArrayList<NodeAttributesElement>());
-					}
-					net.nodeAttributes.get(id).add(attr);
+					net.nodeAttributes.add(id, attr, strings);
 				}catch (NullPointerException e) {
 					throw new RuntimeException("Error processing attribute: " + attr);
 				}
@@ -332,10 +347,7 @@ public class NiceCyRootNetwork extends NiceCyNetwork{
 //				attr.setPropertyOf(id); 
 				NiceCyNetwork net = getNetwork(attr.getSubnetwork());
 				
-				if (!net.edgeAttributes.containsKey(id)) {
-					net.edgeAttributes.put(id, new ArrayList<EdgeAttributesElement>());
-				}
-				net.edgeAttributes.get(id).add(attr);
+				net.edgeAttributes.add(id, attr, strings);
 			});
 		});
 	}
@@ -363,14 +375,13 @@ public class NiceCyRootNetwork extends NiceCyNetwork{
 			return;
 		}
 		Long t0 = System.currentTimeMillis();
-		suid_to_cxid_map = new HashMap<Long, Long>();
+		suid_to_cxid_map = new LongLongMap();
 		cxMapping.forEach(aspect -> {
 			OpaqueElement oe = (OpaqueElement) aspect;
 			JsonNode node = oe.getData();
 			node.fields().forEachRemaining(entry -> {
-				String suid_str = entry.getKey();
-				Long suid = Long.valueOf(suid_str);
-				Long cxid = entry.getValue().asLong();
+				long suid = Long.parseLong(entry.getKey());
+				long cxid = entry.getValue().asLong();
 				suid_to_cxid_map.put(suid, cxid);
 			});
 		});
@@ -397,7 +408,7 @@ public class NiceCyRootNetwork extends NiceCyNetwork{
 			Long source = getCxId(edge.getSource());
 			Long target = getCxId(edge.getTarget());
 			
-			root_edges.put(id, new NiceCyEdge(id, this, source, target, edge.getInteraction()));
+			root_edges.put(id, new NiceCyEdge(id, this, source, target, strings.intern(edge.getInteraction())));
 		});
 		TimingUtil.reportTimeDifference(t0, EdgesElement.ASPECT_NAME, -1);
 	}
@@ -487,10 +498,21 @@ public class NiceCyRootNetwork extends NiceCyNetwork{
 		if (suid_to_cxid_map == null) {
 			return suid;
 		}
-		if (!suid_to_cxid_map.containsKey(suid)) {
+		long cxid = suid_to_cxid_map.get(suid);
+		if (cxid == LongLongMap.NO_VALUE) {
 			throw new IllegalArgumentException("Unable to find suid " + suid + " in CX ID Mapping.");
 		}
-		return suid_to_cxid_map.get(suid);
+		return cxid;
+	}
+	
+	/**
+	 * The largest ID of an aspect according to the metadata, or -1 if unknown. Used to size the
+	 * ID maps, which stay plain arrays when the IDs are dense.
+	 */
+	private static long getMaxId(NiceCXNetwork niceCX, String aspect) {
+		MetaDataCollection metadata = niceCX.getMetadata();
+		Long idCounter = metadata == null ? null : metadata.getIdCounter(aspect);
+		return idCounter == null ? -1 : idCounter.longValue();
 	}
 	
 	private NiceCyView getViewWithId(Long view) {
@@ -533,31 +555,37 @@ public class NiceCyRootNetwork extends NiceCyNetwork{
 		CyRootNetwork root = ((CySubNetwork)base).getRootNetwork();
 		networks.add(base);
 		
-		// Build Root network information
-		this.network = root;
-		
-		//Add root network columns here, otherwise, subnetworks will have nowhere to put their network table attributes.
-		addRootNetworkColumns();
-		
-		// Build subnetworks (this builds all nodes and edges)
-		Iterator<NiceCySubNetwork> nice_subs = subnetworks.values().iterator();
-		NiceCySubNetwork nice_sub = nice_subs.next();
-		nice_sub.apply((CySubNetwork) root.getBaseNetwork());
-		
-		
-		
-		while (nice_subs.hasNext()) {
-			nice_sub = nice_subs.next();
-			CyNetwork currentNetwork = root.addSubNetwork();
-			nice_sub.apply((CySubNetwork) currentNetwork);
-			networks.add(currentNetwork);
+		// Nobody listens to the unregistered networks yet, their row events are dropped
+		try (TableEventScope events = new TableEventScope()) {
+			events.silence(base);
+			
+			// Build Root network information
+			this.network = root;
+			
+			//Add root network columns here, otherwise, subnetworks will have nowhere to put their network table attributes.
+			addRootNetworkColumns();
+			
+			// Build subnetworks (this builds all nodes and edges)
+			Iterator<NiceCySubNetwork> nice_subs = subnetworks.values().iterator();
+			NiceCySubNetwork nice_sub = nice_subs.next();
+			nice_sub.apply((CySubNetwork) root.getBaseNetwork());
+			
+			while (nice_subs.hasNext()) {
+				nice_sub = nice_subs.next();
+				CyNetwork currentNetwork = root.addSubNetwork();
+				events.silence(currentNetwork);
+				nice_sub.apply((CySubNetwork) currentNetwork);
+				networks.add(currentNetwork);
+			}
+			
+			//add collection level attributes (must be done after nodes/edges are created)
+			addTableColumns();
+			addAttributes();
+					
+			serializeOpaqueAspects();
 		}
-		
-		//add collection level attributes (must be done after nodes/edges are created)
-		addTableColumns();
-		addAttributes();
-				
-		serializeOpaqueAspects();
+		opaqueAspects = Collections.emptyMap();
+		rawOpaqueAspects = Collections.emptyMap();
 		TimingUtil.reportTimeDifference(t0, "time to build cynetwork(s)", -1);
 		
 		return networks;
@@ -789,6 +817,7 @@ protected void addTableColumns() {
 				logger.warn("Failed to serialize opaque aspect: " + name);
 			}
 		});
+		rawOpaqueAspects.forEach((name, json) -> subnet.serializeRawAspect(CxUtil.OPAQUE_ASPECT_PREFIX + name, json));
 		TimingUtil.reportTimeDifference(t0, "Opaque Elements", -1);
 	}
 
@@ -810,6 +839,34 @@ protected void addTableColumns() {
 		return views;
 	}
 	
+	/**
+	 * @return number of staged elements still held: nodes, edges, attribute values, layout and
+	 * bypass entries
+	 */
+	public long getStagedSize() {
+		long size = root_nodes.size() + root_edges.size() + nodeAttributes.size() + edgeAttributes.size();
+		for (NiceCySubNetwork subnet : subnetworks.values()) {
+			size += subnet.getStagedSize();
+		}
+		return size;
+	}
+
+	/**
+	 * Drop the staged elements once the networks and their views are built. The network names
+	 * stay available.
+	 */
+	public void release() {
+		root_nodes.clear();
+		root_edges.clear();
+		root_groups.clear();
+		nodeAttributes.clear();
+		edgeAttributes.clear();
+		subnetworks.values().forEach(NiceCySubNetwork::release);
+		tableVisualStyles.clear();
+		suid_to_cxid_map = null;
+		strings.clear();
+	}
+	
 	public Collection<NiceCyEdge> getRootEdges() {
 		return root_edges.values();
 	}
@@ -96,6 +96,23 @@ public class NiceCyView extends Identifiable {
 			NiceCyGroup group = subnet.parent.root_groups.get(suid);
 			group.updateInView((CySubNetwork)subnet.network);
 		});
+		release();
+	}
+
+	/**
+	 * Drop the staged layout and bypasses, once they are applied or when no view is created
+	 */
+	public void release() {
+		cartesianLayout = new HashMap<Long, CartesianLayoutElement>();
+		nodeBypass = new HashMap<Long, List<CyVisualPropertiesElement>>();
+		edgeBypass = new HashMap<Long, List<CyVisualPropertiesElement>>();
+	}
+
+	/**
+	 * @return number of staged layout and bypass entries
+	 */
+	public int getStagedSize() {
+		return cartesianLayout.size() + nodeBypass.size() + edgeBypass.size();
 	}
 
 	public void updateIds(NiceCyView otherView) {
@@ -0,0 +1,323 @@
+package org.cytoscape.io.internal.nicecy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+import org.cytoscape.io.internal.cxio.CxUtil;
+import org.cytoscape.io.internal.cxio.StringPool;
+import org.cytoscape.model.CyIdentifiable;
+import org.cytoscape.model.CyTable;
+import org.ndexbio.cxio.aspects.datamodels.ATTRIBUTE_DATA_TYPE;
+import org.ndexbio.cxio.aspects.datamodels.AbstractAttributesAspectElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Node or edge attributes of a NiceCy network, staged column by column until they are loaded
+ * into the Cytoscape tables.
+ *
+ * There is one buffer per (table, column, CX data type) holding the element IDs and the parsed
+ * values: long[] for longs and integers, double[] for doubles, a BitSet for booleans and
+ * codes from the import's {@link StringPool} for strings, or the strings themselves once the
+ * pool stops pooling the column.
+ *
+ * Single values are decoded from the CX string straight into the buffer. List values are kept
+ * as the CX strings.
+ *
+ * Loading converts the buffers to the typed values of the rows, boxing the single values and
+ * parsing the lists, one task per column on the fork/join pool for large networks. The rows are
+ * written on the loading thread, a column as soon as its values are converted.
+ */
+public class StagedAttributes {
+
+	private static final Logger logger = LoggerFactory.getLogger(StagedAttributes.class);
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	// Fewer staged values are converted on the loading thread
+	private static final int PARALLEL_THRESHOLD = 50000;
+
+	// Columns by name, usually one per name unless the table or CX data type differs
+	private final Map<String, List<Column>> columns = new LinkedHashMap<>();
+	private int size = 0;
+
+	/**
+	 * Stage an attribute value
+	 * @param id CX ID of the node or edge
+	 * @param attr the attribute, local to a subnetwork if it has one
+	 * @param strings the import's string pool, for names and string values
+	 */
+	public void add(long id, AbstractAttributesAspectElement attr, StringPool strings) {
+		final boolean isLocal = attr.getSubnetwork() != null;
+		final List<Column> named = columns.computeIfAbsent(attr.getName(), k -> new ArrayList<>(1));
+		Column column = null;
+		for (Column c : named) {
+			if (c.isLocal == isLocal && c.isSingleValue == attr.isSingleValue() && c.dataType == attr.getDataType()) {
+				column = c;
+				break;
+			}
+		}
+		if (column == null) {
+			column = new Column(strings.intern(attr.getName()), isLocal, attr.getDataType(), attr.isSingleValue(), strings);
+			named.add(column);
+		}
+		if (attr.isSingleValue()) {
+			column.add(id, attr.getValue(), attr);
+		} else {
+			column.add(id, attr.getValues());
+		}
+		size++;
+	}
+
+	/**
+	 * @return number of staged values
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Load the staged values one column at a time. The missing columns are all created first,
+	 * with the CX data type.
+	 * @param sharedTable table for attributes without a subnetwork
+	 * @param localTable table for subnetwork attributes
+	 * @param elements the node or edge for a CX ID
+	 */
+	public void load(CyTable sharedTable, CyTable localTable, LongFunction<? extends CyIdentifiable> elements) {
+		final List<Column> all = columns.values().stream().flatMap(List::stream).collect(Collectors.toList());
+		for (Column column : all) {
+			final CyTable table = column.isLocal ? localTable : sharedTable;
+			if (table.getColumn(column.name) == null) {
+				CxUtil.createColumn(table, column.name, column.type, column.isSingleValue);
+			}
+		}
+		if (size < PARALLEL_THRESHOLD) {
+			for (Column column : all) {
+				commit(column, column.convert(), sharedTable, localTable, elements);
+			}
+			return;
+		}
+
+		// Convert ahead of the commits, with a bounded number of converted columns waiting
+		final ForkJoinPool pool = ForkJoinPool.commonPool();
+		final int window = 2 * pool.getParallelism();
+		final List<ForkJoinTask<Object[]>> tasks = new ArrayList<>(all.size());
+		for (int i = 0; i < all.size(); i++) {
+			tasks.add(i < window ? pool.submit(all.get(i)::convert) : null);
+		}
+		try {
+			for (int i = 0; i < all.size(); i++) {
+				final Object[] values = tasks.get(i).join();
+				tasks.set(i, null);
+				if (i + window < all.size()) {
+					tasks.set(i + window, pool.submit(all.get(i + window)::convert));
+				}
+				commit(all.get(i), values, sharedTable, localTable, elements);
+			}
+		} finally {
+			tasks.stream().filter(t -> t != null).forEach(t -> t.cancel(true));
+		}
+	}
+
+	private static void commit(Column column, Object[] values, CyTable sharedTable, CyTable localTable,
+			LongFunction<? extends CyIdentifiable> elements) {
+		final CyTable table = column.isLocal ? localTable : sharedTable;
+		for (int i = 0; i < column.size; i++) {
+			final CyIdentifiable element = elements.apply(column.ids[i]);
+			CxUtil.setRowValue(table.getRow(element.getSUID()), column.name, column.type, values[i]);
+		}
+	}
+
+	public void clear() {
+		columns.clear();
+		size = 0;
+	}
+
+	private static final class Column {
+		final String name;
+		final boolean isLocal;
+		final boolean isSingleValue;
+		final ATTRIBUTE_DATA_TYPE dataType;
+		final Class<?> type;
+		final StringPool.Values values;
+
+		long[] ids = new long[INITIAL_CAPACITY];
+		int size = 0;
+
+		// Only the buffer for the type is allocated
+		long[] longs;
+		double[] doubles;
+		BitSet booleans;
+		// String values as pool codes, until the pool stops pooling the column
+		int[] codes;
+		Object[] objects;
+
+		// Values that parsed to null
+		final BitSet nulls = new BitSet();
+
+		Column(String name, boolean isLocal, ATTRIBUTE_DATA_TYPE dataType, boolean isSingleValue, StringPool strings) {
+			this.name = name;
+			this.isLocal = isLocal;
+			this.isSingleValue = isSingleValue;
+			this.dataType = dataType;
+			this.type = CxUtil.getDataType(dataType);
+			this.values = strings.values(name);
+
+			if (!isSingleValue) {
+				objects = new Object[INITIAL_CAPACITY];
+			} else if (type == Long.class || type == Integer.class) {
+				longs = new long[INITIAL_CAPACITY];
+			} else if (type == Double.class) {
+				doubles = new double[INITIAL_CAPACITY];
+			} else if (type == Boolean.class) {
+				booleans = new BitSet();
+			} else if (type == String.class) {
+				codes = new int[INITIAL_CAPACITY];
+			} else {
+				objects = new Object[INITIAL_CAPACITY];
+			}
+		}
+
+		void add(long id, Object value) {
+			if (size == ids.length) {
+				grow();
+			}
+			ids[size] = id;
+			if (value == null) {
+				nulls.set(size);
+			} else if (longs != null) {
+				longs[size] = ((Number) value).longValue();
+			} else if (doubles != null) {
+				doubles[size] = (Double) value;
+			} else if (booleans != null) {
+				booleans.set(size, (Boolean) value);
+			} else if (codes != null) {
+				codes[size] = values.code((String) value);
+			} else {
+				objects[size] = value;
+			}
+			size++;
+			unpoolIfNeeded();
+		}
+
+		/**
+		 * Decode a single CX value into the buffer. Like CxUtil.getValue(), a value that can not
+		 * be parsed is logged and staged as null.
+		 */
+		void add(long id, String value, AbstractAttributesAspectElement attr) {
+			if (objects != null) {
+				add(id, CxUtil.getValue(attr));
+				return;
+			}
+			if (size == ids.length) {
+				grow();
+			}
+			ids[size] = id;
+			try {
+				if (codes != null) {
+					if (value == null) {
+						nulls.set(size);
+					} else {
+						codes[size] = values.code(value);
+					}
+				} else if (doubles != null) {
+					doubles[size] = CxUtil.parseDouble(value);
+				} else if (booleans != null) {
+					booleans.set(size, !CxUtil.isNullValue(value) && Boolean.parseBoolean(value));
+				} else if (CxUtil.isNullValue(value)) {
+					nulls.set(size);
+				} else {
+					longs[size] = type == Integer.class ? CxUtil.parseInt(value) : CxUtil.parseLong(value);
+				}
+			} catch (IllegalArgumentException e) {
+				logger.warn("Could not process element: " + attr, e);
+				nulls.set(size);
+			}
+			size++;
+			unpoolIfNeeded();
+		}
+
+		/**
+		 * Keep the strings themselves once their values are too distinct to be pooled
+		 */
+		private void unpoolIfNeeded() {
+			if (codes == null || values.isPooling()) {
+				return;
+			}
+			objects = new Object[ids.length];
+			for (int i = 0; i < size; i++) {
+				if (!nulls.get(i)) {
+					objects[i] = values.get(codes[i]);
+				}
+			}
+			codes = null;
+		}
+
+		/**
+		 * Convert the staged values to what is set in the rows. Only reads the column, so the
+		 * columns can be converted concurrently.
+		 */
+		Object[] convert() {
+			final Object[] values = new Object[size];
+			for (int i = 0; i < size; i++) {
+				values[i] = get(i);
+			}
+			return values;
+		}
+
+		Object get(int i) {
+			if (!isSingleValue) {
+				return nulls.get(i) ? null : parseList((List<?>) objects[i]);
+			}
+			if (nulls.get(i)) {
+				return null;
+			} else if (longs != null) {
+				return type == Integer.class ? Integer.valueOf((int) longs[i]) : Long.valueOf(longs[i]);
+			} else if (doubles != null) {
+				return doubles[i];
+			} else if (booleans != null) {
+				return booleans.get(i);
+			} else if (codes != null) {
+				return values.get(codes[i]);
+			}
+			return objects[i];
+		}
+
+		/**
+		 * Like CxUtil.getValue() for a list attribute
+		 */
+		private List<Object> parseList(List<?> strings) {
+			final List<Object> values = new ArrayList<>(strings.size());
+			for (Object value : strings) {
+				values.add(CxUtil.parseValue((String) value, type));
+			}
+			return values;
+		}
+
+		private void grow() {
+			final int capacity = ids.length * 2;
+			ids = Arrays.copyOf(ids, capacity);
+			if (longs != null) {
+				longs = Arrays.copyOf(longs, capacity);
+			} else if (doubles != null) {
+				doubles = Arrays.copyOf(doubles, capacity);
+			} else if (codes != null) {
+				codes = Arrays.copyOf(codes, capacity);
+			} else if (objects != null) {
+				objects = Arrays.copyOf(objects, capacity);
+			}
+		}
+	}
+}
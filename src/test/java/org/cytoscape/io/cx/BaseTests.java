@@ -2,12 +2,19 @@ package org.cytoscape.io.cx;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import org.cytoscape.io.cx.helpers.TestUtil;
 import org.cytoscape.io.cx.helpers.TestUtil.CxReaderWrapper;
+import org.cytoscape.io.cx.helpers.TestUtil.ImportMode;
 import org.cytoscape.model.CyNetwork;
+import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
 import org.ndexbio.cxio.aspects.datamodels.ATTRIBUTE_DATA_TYPE;
 import org.ndexbio.cxio.aspects.datamodels.CartesianLayoutElement;
 import org.ndexbio.cxio.aspects.datamodels.EdgeAttributesElement;
@@ -21,14 +28,31 @@ import org.ndexbio.model.cx.CitationElement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+@RunWith(Parameterized.class)
 public class BaseTests {
 	Logger logger = LoggerFactory.getLogger(this.getClass());
 	
+	@Parameters(name = "{0}")
+	public static ImportMode[] importModes() {
+		return ImportMode.values();
+	}
+	
+	private final ImportMode importMode;
+	
+	public BaseTests(ImportMode importMode) {
+		this.importMode = importMode;
+	}
+	
 	@BeforeClass
 	public static void init() {
 		TestUtil.init();
 	}
 	
+	@Before
+	public void setImportMode() {
+		TestUtil.INSTANCE.setImportMode(importMode);
+	}
+	
 	private CxReaderWrapper getBaseSubNetwork(NodesElement...nodes) {
 		return TestUtil.getSubNetwork(TestUtil.getResource("base", "subnetwork.cx"), nodes);
 	}
@@ -230,6 +254,28 @@ public class BaseTests {
 		
 		TestUtil.withAspects(reader, c1, c2);
 	}	
+	
+	@Test
+	public void testLargeNetwork() throws IOException {
+		// More elements per aspect than the export writes at a time
+		int count = 2500;
+		NodesElement[] nodes = new NodesElement[count];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = new NodesElement(i + 1, "node " + (i + 1), null);
+		}
+		CxReaderWrapper reader = getBaseSubNetwork(nodes);
+		
+		List<AspectElement> aspects = new ArrayList<>(Arrays.asList(nodes));
+		for (long i = 0; i <= count; i++) {
+			aspects.add(new NodeAttributesElement(i, "rank", String.valueOf(i % 7), ATTRIBUTE_DATA_TYPE.INTEGER));
+			aspects.add(new CartesianLayoutElement(i, String.valueOf(i), String.valueOf(-i)));
+			if (i < count) {
+				aspects.add(new EdgesElement(i, i, i + 1, "pp"));
+				aspects.add(new EdgeAttributesElement(i, "weight", String.valueOf(i / 2.0), ATTRIBUTE_DATA_TYPE.DOUBLE));
+			}
+		}
+		TestUtil.withAspects(reader, aspects.toArray(new AspectElement[aspects.size()]));
+	}
 
 	/* Whole CX file tests */
 /*	@Test
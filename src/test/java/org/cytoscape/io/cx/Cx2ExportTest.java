@@ -0,0 +1,265 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cytoscape.application.CyApplicationManager;
+import org.cytoscape.io.cx.helpers.TestUtil;
+import org.cytoscape.io.internal.CxPreferences;
+import org.cytoscape.io.internal.CyServiceModule;
+import org.cytoscape.io.internal.cx_reader.CytoscapeCxFileFilter;
+import org.cytoscape.io.internal.cx_writer.CxNetworkWriter;
+import org.cytoscape.io.internal.cx_writer.CxNetworkWriterFactory;
+import org.cytoscape.io.internal.cxio.CxUtil;
+import org.cytoscape.io.internal.cxio.Settings;
+import org.cytoscape.io.util.StreamUtil;
+import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyIdentifiable;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNetworkFactory;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.view.model.table.CyTableViewManager;
+import org.cytoscape.view.vizmap.TableVisualMappingManager;
+import org.cytoscape.work.TaskMonitor;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.ndexbio.cx2.aspect.element.core.CxEdge;
+import org.ndexbio.cx2.aspect.element.core.CxNode;
+import org.ndexbio.model.exceptions.NdexException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class Cx2ExportTest {
+
+	@Before
+	public void init() {
+		TestUtil.init();
+		CyServiceModule.setService(CyApplicationManager.class, mock(CyApplicationManager.class));
+		CyServiceModule.setService(CyTableViewManager.class, mock(CyTableViewManager.class));
+		CyServiceModule.setService(TableVisualMappingManager.class, mock(TableVisualMappingManager.class));
+	}
+
+	/**
+	 * A network with an integer node column defaulting to 7, with one node at the default
+	 */
+	private static CyNetwork createNetwork() {
+		CyNetwork network = CyServiceModule.getService(CyNetworkFactory.class).createNetwork();
+		CyTable table = network.getDefaultNodeTable();
+		table.createColumn("rank", Integer.class, false, 7);
+		CyNode atDefault = network.addNode();
+		network.getRow(atDefault).set("rank", 7);
+		CyNode other = network.addNode();
+		network.getRow(other).set("rank", 3);
+		network.addEdge(atDefault, other, true);
+		return network;
+	}
+
+	/**
+	 * @return the aspects of the exported CX2 document by name, with the fragments merged
+	 */
+	private static JsonObject export(CyNetwork network) throws IOException, NdexException {
+		StreamUtil streamUtil = CyServiceModule.getService(StreamUtil.class);
+		CytoscapeCxFileFilter filter = new CytoscapeCxFileFilter(streamUtil);
+		CxNetworkWriterFactory writerFactory = new CxNetworkWriterFactory(filter, true);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CxNetworkWriter writer = (CxNetworkWriter) writerFactory.createWriter(out, network);
+		writer.run(mock(TaskMonitor.class));
+
+		JsonElement cx = new JsonParser().parse(new InputStreamReader(TestUtil.pipe(out)));
+		JsonObject aspects = new JsonObject();
+		cx.getAsJsonArray().forEach(fragment -> fragment.getAsJsonObject().entrySet().forEach(entry -> {
+			if (!entry.getValue().isJsonArray()) {
+				return;
+			}
+			if (aspects.has(entry.getKey())) {
+				aspects.get(entry.getKey()).getAsJsonArray().addAll(entry.getValue().getAsJsonArray());
+			} else {
+				aspects.add(entry.getKey(), entry.getValue());
+			}
+		}));
+		return aspects;
+	}
+
+	private static List<Integer> getRanks(JsonObject aspects) {
+		List<Integer> ranks = new ArrayList<>();
+		for (JsonElement node : aspects.getAsJsonArray("nodes")) {
+			JsonObject values = node.getAsJsonObject().getAsJsonObject("v");
+			if (values != null && values.has("rank")) {
+				ranks.add(values.get("rank").getAsInt());
+			}
+		}
+		Collections.sort(ranks);
+		return ranks;
+	}
+
+	private static JsonObject getRankDeclaration(JsonObject aspects) {
+		JsonArray declarations = aspects.getAsJsonArray("attributeDeclarations");
+		return declarations.get(0).getAsJsonObject().getAsJsonObject("nodes").getAsJsonObject("rank");
+	}
+
+	/**
+	 * A network with defaults on columns of several types, and values at, off and without them
+	 */
+	private static CyNetwork createNetworkWithDefaults() {
+		CyNetwork network = CyServiceModule.getService(CyNetworkFactory.class).createNetwork();
+		CyTable nodes = network.getDefaultNodeTable();
+		nodes.createColumn("rank", Integer.class, false, 7);
+		nodes.createColumn("label", String.class, false, "none");
+		nodes.createColumn("flag", Boolean.class, false, false);
+		nodes.createColumn("score", Double.class, false);
+		CyTable edges = network.getDefaultEdgeTable();
+		edges.createColumn("weight", Double.class, false, 1.0);
+		edges.createColumn(CxUtil.sourceNodeMappingPrefix + "x", String.class, false);
+
+		CyNode previous = null;
+		for (int i = 0; i < 20; i++) {
+			CyNode node = network.addNode();
+			CyRow row = network.getRow(node);
+			row.set(CyNetwork.NAME, "node " + i);
+			row.set("rank", i % 3 == 0 ? 7 : i);
+			row.set("label", i % 4 == 0 ? "none" : "label " + i);
+			row.set("flag", i % 2 == 0);
+			row.set("score", i % 5 == 0 ? Double.NaN : i / 3.0);
+			if (previous != null) {
+				CyEdge edge = network.addEdge(previous, node, true);
+				CyRow edgeRow = network.getRow(edge);
+				edgeRow.set(CyNetwork.NAME, "edge " + i);
+				edgeRow.set("weight", i % 3 == 0 ? 1.0 : i * 0.5);
+				edgeRow.set(CxUtil.sourceNodeMappingPrefix + "x", "left out");
+			}
+			previous = node;
+		}
+		return network;
+	}
+
+	/**
+	 * The attributes the exporter used to collect for a row, before the columns were planned
+	 */
+	private static LinkedHashMap<String, Object> getBaselineAttributes(CyRow row, Map<String, Object> defaults,
+			boolean isEdge) {
+		LinkedHashMap<String, Object> attrs = new LinkedHashMap<>();
+		for (Map.Entry<String, Object> e : row.getAllValues().entrySet()) {
+			String name = e.getKey();
+			Object value = e.getValue();
+			if (value == null || (value instanceof Double && !Double.isFinite((Double) value))) {
+				continue;
+			}
+			if (!Settings.isIgnore(name, Settings.IGNORE_NODE_ATTRIBUTES, value)
+					&& !(isEdge && (name.startsWith(CxUtil.sourceNodeMappingPrefix)
+							|| name.startsWith(CxUtil.targetNodeMappingPrefix)))
+					&& !value.equals(defaults.get(name))) {
+				attrs.put(name, value);
+			}
+		}
+		return attrs;
+	}
+
+	private static Map<String, Object> getDeclaredDefaults(CyTable table, boolean omitDefaultValues) {
+		Map<String, Object> defaults = new HashMap<>();
+		if (omitDefaultValues) {
+			for (CyColumn column : table.getColumns()) {
+				if (column.getDefaultValue() != null) {
+					defaults.put(column.getName(), column.getDefaultValue());
+				}
+			}
+		}
+		return defaults;
+	}
+
+	private static JsonElement toJson(Object element) throws IOException {
+		return new JsonParser().parse(new ObjectMapper().writeValueAsString(element));
+	}
+
+	private static <T extends CyIdentifiable> Map<String, T> getByName(CyNetwork network, List<T> elements) {
+		Map<String, T> byName = new HashMap<>();
+		for (T element : elements) {
+			byName.put(network.getRow(element).get(CyNetwork.NAME, String.class), element);
+		}
+		return byName;
+	}
+
+	private static void assertBaselineElements(boolean omitDefaultValues) throws IOException, NdexException {
+		when(TestUtil.INSTANCE.getPropertiesMock().getProperty(Mockito.eq(CxPreferences.OMIT_DEFAULT_VALUES_PROPERTY)))
+				.thenReturn(String.valueOf(omitDefaultValues));
+		CyNetwork network = createNetworkWithDefaults();
+		JsonObject aspects = export(network);
+
+		Map<String, Object> nodeDefaults = getDeclaredDefaults(network.getDefaultNodeTable(), omitDefaultValues);
+		Map<String, CyNode> nodes = getByName(network, network.getNodeList());
+		JsonArray exportedNodes = aspects.getAsJsonArray("nodes");
+		assertEquals(nodes.size(), exportedNodes.size());
+		for (JsonElement exported : exportedNodes) {
+			long id = exported.getAsJsonObject().get("id").getAsLong();
+			String name = exported.getAsJsonObject().getAsJsonObject("v").get(CyNetwork.NAME).getAsString();
+			CxNode expected = new CxNode(id, getBaselineAttributes(network.getRow(nodes.get(name)), nodeDefaults, false));
+			assertEquals(toJson(expected), exported);
+		}
+
+		Map<String, Object> edgeDefaults = getDeclaredDefaults(network.getDefaultEdgeTable(), omitDefaultValues);
+		Map<String, CyEdge> edges = getByName(network, network.getEdgeList());
+		JsonArray exportedEdges = aspects.getAsJsonArray("edges");
+		assertEquals(edges.size(), exportedEdges.size());
+		for (JsonElement exported : exportedEdges) {
+			JsonObject edge = exported.getAsJsonObject();
+			String name = edge.getAsJsonObject("v").get(CyNetwork.NAME).getAsString();
+			CxEdge expected = new CxEdge(edge.get("id").getAsLong(), edge.get("s").getAsLong(), edge.get("t").getAsLong());
+			LinkedHashMap<String, Object> attrs = getBaselineAttributes(network.getRow(edges.get(name)), edgeDefaults, true);
+			if (!attrs.isEmpty()) {
+				expected.setAttributes(attrs);
+			}
+			assertEquals(toJson(expected), exported);
+		}
+	}
+
+	@Test
+	public void testElementsMatchBaseline() throws IOException, NdexException {
+		assertBaselineElements(false);
+	}
+
+	@Test
+	public void testElementsWithDeclaredDefaultsMatchBaseline() throws IOException, NdexException {
+		assertBaselineElements(true);
+	}
+
+	@Test
+	public void testDefaultValuesWrittenByDefault() throws IOException, NdexException {
+		JsonObject aspects = export(createNetwork());
+
+		assertEquals(Arrays.asList(3, 7), getRanks(aspects));
+		assertFalse(getRankDeclaration(aspects).has("v"));
+	}
+
+	@Test
+	public void testOmitDefaultValues() throws IOException, NdexException {
+		when(TestUtil.INSTANCE.getPropertiesMock().getProperty(Mockito.eq(CxPreferences.OMIT_DEFAULT_VALUES_PROPERTY)))
+				.thenReturn("true");
+		JsonObject aspects = export(createNetwork());
+
+		assertEquals(Arrays.asList(3), getRanks(aspects));
+		JsonObject declaration = getRankDeclaration(aspects);
+		assertTrue(declaration.has("v"));
+		assertEquals(7, declaration.get("v").getAsInt());
+	}
+}
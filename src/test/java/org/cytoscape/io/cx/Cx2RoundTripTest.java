@@ -0,0 +1,211 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cytoscape.application.CyApplicationManager;
+import org.cytoscape.io.cx.helpers.TestUtil;
+import org.cytoscape.io.internal.CxPreferences;
+import org.cytoscape.io.internal.CyServiceModule;
+import org.cytoscape.io.internal.cx_reader.CytoscapeCx2NetworkReader;
+import org.cytoscape.io.internal.cx_reader.CytoscapeCxFileFilter;
+import org.cytoscape.io.internal.cx_reader.InflatingInputStream;
+import org.cytoscape.io.internal.cx_writer.CxNetworkWriter;
+import org.cytoscape.io.internal.cx_writer.CxNetworkWriterFactory;
+import org.cytoscape.io.util.StreamUtil;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyIdentifiable;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNetworkFactory;
+import org.cytoscape.model.CyNetworkManager;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.model.subnetwork.CyRootNetworkManager;
+import org.cytoscape.view.model.CyNetworkViewFactory;
+import org.cytoscape.view.model.table.CyTableViewManager;
+import org.cytoscape.view.vizmap.TableVisualMappingManager;
+import org.cytoscape.work.TaskMonitor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.mockito.Mockito;
+import org.ndexbio.model.exceptions.NdexException;
+
+/**
+ * Exports a network as CX2 and imports it again, with each way of importing CX2
+ */
+@RunWith(Parameterized.class)
+public class Cx2RoundTripTest {
+
+	private static final String[] NODE_COLUMNS = { CyNetwork.NAME, "rank", "score", "flag", "big", "tags", "counts" };
+	private static final String[] EDGE_COLUMNS = { CyNetwork.NAME, "interaction", "weight" };
+
+	@Parameters(name = "{0}")
+	public static Object[][] importModes() {
+		return new Object[][] {
+			{ "default", null },
+			{ "parallel", CxPreferences.PARALLEL_IMPORT_PROPERTY },
+			{ "trusted", CxPreferences.TRUSTED_IMPORT_PROPERTY },
+		};
+	}
+
+	private final String property;
+
+	public Cx2RoundTripTest(String mode, String property) {
+		this.property = property;
+	}
+
+	@Before
+	public void init() {
+		TestUtil.init();
+		CyServiceModule.setService(CyApplicationManager.class, mock(CyApplicationManager.class));
+		CyServiceModule.setService(CyTableViewManager.class, mock(CyTableViewManager.class));
+		CyServiceModule.setService(TableVisualMappingManager.class, mock(TableVisualMappingManager.class));
+		if (property != null) {
+			when(TestUtil.INSTANCE.getPropertiesMock().getProperty(Mockito.eq(property))).thenReturn("true");
+		}
+	}
+
+	private static CyNetwork createNetwork() {
+		CyNetwork network = CyServiceModule.getService(CyNetworkFactory.class).createNetwork();
+		CyTable nodes = network.getDefaultNodeTable();
+		nodes.createColumn("rank", Integer.class, false);
+		nodes.createColumn("score", Double.class, false);
+		nodes.createColumn("flag", Boolean.class, false);
+		nodes.createColumn("big", Long.class, false);
+		nodes.createListColumn("tags", String.class, false);
+		nodes.createListColumn("counts", Integer.class, false);
+		network.getDefaultEdgeTable().createColumn("weight", Double.class, false);
+
+		CyNode previous = null;
+		for (int i = 0; i < 300; i++) {
+			CyNode node = network.addNode();
+			CyRow row = network.getRow(node);
+			row.set(CyNetwork.NAME, "node \"" + i + "\"");
+			row.set("rank", i % 7);
+			row.set("score", i / 3.0);
+			row.set("flag", i % 2 == 0);
+			if (i % 5 != 0) {
+				// Some values are missing
+				row.set("big", (1L << 40) + i);
+				row.set("tags", Arrays.asList("t" + (i % 3), "u"));
+				row.set("counts", Arrays.asList(i, -i));
+			}
+			if (previous != null) {
+				CyEdge edge = network.addEdge(previous, node, true);
+				network.getRow(edge).set(CyNetwork.NAME, "edge " + i);
+				network.getRow(edge).set("interaction", i % 2 == 0 ? "pp" : "pd");
+				network.getRow(edge).set("weight", i * 0.5);
+			}
+			previous = node;
+		}
+		return network;
+	}
+
+	private static byte[] export(CyNetwork network, boolean compressed) throws IOException {
+		StreamUtil streamUtil = CyServiceModule.getService(StreamUtil.class);
+		CytoscapeCxFileFilter filter = new CytoscapeCxFileFilter(streamUtil);
+		CxNetworkWriterFactory writerFactory = new CxNetworkWriterFactory(filter, true, compressed);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CxNetworkWriter writer = (CxNetworkWriter) writerFactory.createWriter(out, network);
+		writer.run(mock(TaskMonitor.class));
+		return out.toByteArray();
+	}
+
+	private static CyNetwork load(byte[] cx2) throws IOException, NdexException {
+		CytoscapeCx2NetworkReader reader = new CytoscapeCx2NetworkReader(new ByteArrayInputStream(cx2), null,
+				CyServiceModule.getService(CyNetworkViewFactory.class),
+				CyServiceModule.getService(CyNetworkFactory.class),
+				CyServiceModule.getService(CyNetworkManager.class),
+				CyServiceModule.getService(CyRootNetworkManager.class));
+		reader.setCreateView(false);
+		reader.run(mock(TaskMonitor.class));
+		return reader.getNetworks()[0];
+	}
+
+	private static Map<String, CyRow> rowsByName(CyNetwork network, List<? extends CyIdentifiable> elements) {
+		Map<String, CyRow> rows = new HashMap<>();
+		for (CyIdentifiable element : elements) {
+			CyRow row = network.getRow(element);
+			rows.put(row.get(CyNetwork.NAME, String.class), row);
+		}
+		return rows;
+	}
+
+	private static void assertRowsEqual(Map<String, CyRow> expected, Map<String, CyRow> actual, String[] columns) {
+		assertEquals(expected.keySet(), actual.keySet());
+		expected.forEach((name, row) -> {
+			for (String column : columns) {
+				assertEquals(name + "." + column, row.getRaw(column), actual.get(name).getRaw(column));
+			}
+		});
+	}
+
+	private static void assertRoundTrip(CyNetwork network, CyNetwork imported) {
+		assertNotNull(imported);
+		assertEquals(network.getNodeCount(), imported.getNodeCount());
+		assertEquals(network.getEdgeCount(), imported.getEdgeCount());
+		assertRowsEqual(rowsByName(network, network.getNodeList()), rowsByName(imported, imported.getNodeList()),
+				NODE_COLUMNS);
+		assertRowsEqual(rowsByName(network, network.getEdgeList()), rowsByName(imported, imported.getEdgeList()),
+				EDGE_COLUMNS);
+
+		// Edges keep their ends, each edge goes from the previous node to its own
+		for (CyEdge edge : imported.getEdgeList()) {
+			String source = imported.getRow(edge.getSource()).get(CyNetwork.NAME, String.class);
+			String target = imported.getRow(edge.getTarget()).get(CyNetwork.NAME, String.class);
+			assertEquals("edge " + target.replaceAll("\\D", ""), imported.getRow(edge).get(CyNetwork.NAME, String.class));
+			assertEquals(Integer.parseInt(target.replaceAll("\\D", "")) - 1, Integer.parseInt(source.replaceAll("\\D", "")));
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException, NdexException {
+		CyNetwork network = createNetwork();
+		assertRoundTrip(network, load(export(network, false)));
+	}
+
+	@Test
+	public void testCompressedRoundTrip() throws IOException, NdexException {
+		CyNetwork network = createNetwork();
+		byte[] cx2 = export(network, false);
+		for (String level : new String[] { "1", "9" }) {
+			when(TestUtil.INSTANCE.getPropertiesMock().getProperty(Mockito.eq(CxPreferences.COMPRESSION_LEVEL_PROPERTY)))
+					.thenReturn(level);
+			byte[] compressed = export(network, true);
+			assertTrue(InflatingInputStream.isGzip(compressed, compressed.length));
+			assertTrue(compressed.length < cx2.length);
+			assertRoundTrip(network, load(compressed));
+		}
+	}
+
+	@Test
+	public void testFailedStatus() throws IOException {
+		String cx2 = new String(export(createNetwork(), false), StandardCharsets.UTF_8);
+		int status = cx2.lastIndexOf("{\"status\"");
+		assertTrue(status > 0);
+		cx2 = cx2.substring(0, status) + "{\"status\":[{\"error\":\"Export failed\",\"success\":false}]}]";
+		try {
+			load(cx2.getBytes(StandardCharsets.UTF_8));
+			fail("The document with a failed status was imported");
+		} catch (Exception e) {
+			// Expected
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.cytoscape.io.internal.cxio.CxAspectFilterInputStream;
+import org.cytoscape.io.internal.cxio.CxAspectFilterInputStream.Action;
+import org.junit.Test;
+
+public class CxAspectFilterTest {
+
+	private static CxAspectFilterInputStream filter(String json, Function<String, Action> actions) {
+		return new CxAspectFilterInputStream(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), actions);
+	}
+
+	private static Function<String, Action> actions(Action action, String... aspects) {
+		List<String> names = Arrays.asList(aspects);
+		return aspect -> names.contains(aspect) ? action : Action.PASS;
+	}
+
+	private static String read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[7];
+		int n;
+		while ((n = in.read(buffer)) != -1) {
+			out.write(buffer, 0, n);
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testPassAll() throws IOException {
+		String json = "[{\"metaData\":[{\"name\":\"nodes\"}]},{\"nodes\":[{\"@id\":1}]},{\"edges\":[]}]";
+		CxAspectFilterInputStream in = filter(json, aspect -> Action.PASS);
+
+		assertEquals(json, read(in));
+		assertTrue(in.getCapturedAspects().isEmpty());
+		assertTrue(in.getSkippedAspects().isEmpty());
+	}
+
+	@Test
+	public void testSkip() throws IOException {
+		String json = "[{\"nodes\":[{\"@id\":1}]},{\"provenanceHistory\":[{\"x\":\"y\"}]},{\"edges\":[]}]";
+		CxAspectFilterInputStream in = filter(json, actions(Action.SKIP, "provenanceHistory"));
+
+		assertEquals("[{\"nodes\":[{\"@id\":1}]},{\"edges\":[]}]", read(in));
+		assertEquals(Long.valueOf(11), in.getSkippedAspects().get("provenanceHistory"));
+		assertTrue(in.getCapturedAspects().isEmpty());
+	}
+
+	@Test
+	public void testScalarMembers() throws IOException {
+		String json = "[{\"s\":\"a,b}\",\"b\":true,\"n\":5}]";
+		CxAspectFilterInputStream in = filter(json, actions(Action.SKIP, "s", "b"));
+
+		assertEquals("[{\"n\":5}]", read(in));
+		Map<String, Long> skipped = new HashMap<>();
+		skipped.put("s", 6L);
+		skipped.put("b", 4L);
+		assertEquals(skipped, in.getSkippedAspects());
+	}
+
+	@Test
+	public void testCaptureBracketsAndEscapedQuotes() throws IOException {
+		String opaque = "[{\"t\":\"a]b}[\\\"{\"}]";
+		String json = "[{\"nodes\":[]},{\"opaque\":" + opaque + "},{\"edges\":[]}]";
+		CxAspectFilterInputStream in = filter(json, actions(Action.CAPTURE, "opaque"));
+
+		assertEquals("[{\"nodes\":[]},{\"edges\":[]}]", read(in));
+		assertEquals(opaque, in.getCapturedAspects().get("opaque"));
+	}
+
+	@Test
+	public void testCaptureAcrossFragments() throws IOException {
+		String json = "[{\"o\":[1,2]},{\"o\":[]},{\"o\":[3]}]";
+		CxAspectFilterInputStream in = filter(json, actions(Action.CAPTURE, "o"));
+
+		// All fragments are captured, none is left for the parser
+		assertEquals("[]", read(in));
+		assertEquals("[1,2,3]", in.getCapturedAspects().get("o"));
+	}
+
+	@Test
+	public void testFragmentWithMembersSkipped() throws IOException {
+		String json = "[{\"a\":[1],\"b\":[2]},{\"b\":[3],\"a\":[4]},{\"b\":[5]}]";
+		CxAspectFilterInputStream in = filter(json, actions(Action.SKIP, "b"));
+
+		assertEquals("[{\"a\":[1]},{\"a\":[4]}]", read(in));
+		assertEquals(Long.valueOf(9), in.getSkippedAspects().get("b"));
+	}
+
+	@Test
+	public void testWhitespace() throws IOException {
+		String json = "[ {\"a\" : [1, 2]} ,\n {\"b\": [3]}\n]";
+		CxAspectFilterInputStream in = filter(json, actions(Action.SKIP, "b"));
+
+		// Whitespace between fragments and members is dropped, inside values it is kept
+		assertEquals("[{\"a\":[1, 2]}]", read(in));
+	}
+
+	@Test
+	public void testSingleByteReads() throws IOException {
+		String opaque = "[{\"t\":\"a]b}[\\\"{\"}]";
+		String json = "[{\"nodes\":[{\"@id\":1}]},{\"opaque\":" + opaque + ",\"skipped\":[\"]\"]},{\"edges\":[]}]";
+		InputStream slow = new FilterInputStream(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))) {
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return super.read(b, off, Math.min(len, 1));
+			}
+		};
+		Function<String, Action> actions = aspect -> "opaque".equals(aspect) ? Action.CAPTURE
+				: "skipped".equals(aspect) ? Action.SKIP : Action.PASS;
+		CxAspectFilterInputStream in = new CxAspectFilterInputStream(slow, actions);
+
+		assertEquals("[{\"nodes\":[{\"@id\":1}]},{\"edges\":[]}]", read(in));
+		assertEquals(opaque, in.getCapturedAspects().get("opaque"));
+		assertEquals(Long.valueOf(5), in.getSkippedAspects().get("skipped"));
+	}
+}
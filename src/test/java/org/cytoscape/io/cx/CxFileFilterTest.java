@@ -7,14 +7,21 @@ import org.cytoscape.io.util.StreamUtil;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
 
 
 public class CxFileFilterTest {
@@ -38,6 +45,29 @@ public class CxFileFilterTest {
 		
 	}
 	
+	@Test
+	public void MarkableStreamTest() throws IOException {
+		File f = TestUtil.getResource("specialCases", "all_aspects.cx");
+		byte[] expected = Files.readAllBytes(f.toPath());
+		try (InputStream stream = CytoscapeCxFileFilter.markable(new FileInputStream(f))) {
+			assertTrue(filter.accepts(stream, DataCategory.NETWORK));
+			// The header was only peeked at, the reader gets the whole document
+			byte[] actual = stream.readAllBytes();
+			assertArrayEquals(expected, actual);
+		}
+	}
+	
+	@Test
+	public void GzipFileFilterTest() throws IOException {
+		File f = TestUtil.getResource("specialCases", "all_aspects.cx");
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+			Files.copy(f.toPath(), gzip);
+		}
+		InputStream stream = new ByteArrayInputStream(compressed.toByteArray());
+		assertTrue(f.getName() + ".gz not read by CxFileFilter", filter.accepts(stream, DataCategory.NETWORK));
+	}
+	
 	public void checkFile(File f, boolean valid) throws FileNotFoundException {
 		InputStream stream = new FileInputStream(f);
 		assertEquals(f.getName() + " incorrectly read by CxFileFilter", valid, filter.accepts(stream, DataCategory.NETWORK));
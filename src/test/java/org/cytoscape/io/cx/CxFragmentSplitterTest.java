@@ -0,0 +1,149 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cytoscape.io.internal.cxio.CxFragmentSplitter;
+import org.cytoscape.io.internal.cxio.CxFragmentSplitter.Chunk;
+import org.junit.Test;
+
+public class CxFragmentSplitterTest {
+
+	private static CxFragmentSplitter splitter(String json, int chunkSize) {
+		return new CxFragmentSplitter(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), chunkSize);
+	}
+
+	private static String read(Chunk chunk) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		InputStream in = chunk.getInputStream();
+		int b;
+		while ((b = in.read()) != -1) {
+			out.write(b);
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static String document(String aspect, String elements) {
+		return "[" + CxFragmentSplitter.CX_HEADER + ",{\"" + aspect + "\":[" + elements + "]}]";
+	}
+
+	private static List<Chunk> split(CxFragmentSplitter splitter) throws IOException {
+		List<Chunk> chunks = new ArrayList<>();
+		Chunk chunk;
+		while ((chunk = splitter.next()) != null) {
+			chunks.add(chunk);
+		}
+		return chunks;
+	}
+
+	@Test
+	public void testOneChunkPerAspect() throws IOException {
+		String json = "[{\"metaData\":[{\"name\":\"nodes\"}]},{\"nodes\":[{\"@id\":1},{\"@id\":2}]},"
+				+ "{\"edges\":[{\"@id\":3,\"s\":1,\"t\":2}]},{\"status\":[{\"success\":true}]}]";
+		List<Chunk> chunks = split(splitter(json, 1 << 20));
+
+		assertEquals(4, chunks.size());
+		assertEquals("metaData", chunks.get(0).getAspectName());
+		assertEquals("nodes", chunks.get(1).getAspectName());
+		assertEquals(2, chunks.get(1).getElementCount());
+		assertEquals(document("nodes", "{\"@id\":1},{\"@id\":2}"), read(chunks.get(1)));
+		assertEquals(document("edges", "{\"@id\":3,\"s\":1,\"t\":2}"), read(chunks.get(2)));
+		assertEquals("status", chunks.get(3).getAspectName());
+	}
+
+	@Test
+	public void testCutInsideFragment() throws IOException {
+		StringBuilder json = new StringBuilder("[{\"nodes\":[");
+		for (int i = 0; i < 1000; i++) {
+			json.append(i == 0 ? "" : ",").append("{\"@id\":").append(i).append("}");
+		}
+		json.append("]}]");
+		List<Chunk> chunks = split(splitter(json.toString(), 100));
+
+		int elements = 0;
+		StringBuilder joined = new StringBuilder();
+		for (Chunk chunk : chunks) {
+			assertEquals("nodes", chunk.getAspectName());
+			String doc = read(chunk);
+			String prefix = "[" + CxFragmentSplitter.CX_HEADER + ",{\"nodes\":[";
+			assertEquals(prefix, doc.substring(0, prefix.length()));
+			joined.append(elements == 0 ? "" : ",").append(doc, prefix.length(), doc.length() - 3);
+			elements += chunk.getElementCount();
+			if (chunk != chunks.get(chunks.size() - 1)) {
+				// Cut by the first element that reaches the size, with the closing brackets after it
+				assertTrue(doc.length() >= 100 + 3);
+				assertTrue(doc.length() < 100 + 3 + ",{\"@id\":999}".length());
+			}
+		}
+		assertTrue(chunks.size() > 1);
+		assertEquals(1000, elements);
+		assertEquals(json.toString(), "[{\"nodes\":[" + joined + "]}]");
+	}
+
+	@Test
+	public void testStringsWithBracketsAndEscapedQuotes() throws IOException {
+		String element = "{\"n\":\"a]}\\\"[{\",\"v\":[\"]\",\"\\\\\"]}";
+		String json = "[{\"nodeAttributes\":[" + element + "," + element + "]}]";
+		List<Chunk> chunks = split(splitter(json, 1));
+
+		assertEquals(2, chunks.size());
+		assertEquals(document("nodeAttributes", element), read(chunks.get(0)));
+		assertEquals(document("nodeAttributes", element), read(chunks.get(1)));
+	}
+
+	@Test
+	public void testScalarsAndWhitespace() throws IOException {
+		String json = "[ {\"CXVersion\" : \"2.0\", \"hasFragments\": false} ,\n"
+				+ " {\"nodes\" : [ {\"id\" : 1} , {\"id\":2} ] , \"x\": 5 } ,{\"empty\":[]}\n]";
+		CxFragmentSplitter splitter = new CxFragmentSplitter(
+				new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), 1 << 20, CxFragmentSplitter.CX2_HEADER);
+		List<Chunk> chunks = split(splitter);
+
+		// Members that are not arrays and aspects without elements make no chunk
+		assertEquals(1, chunks.size());
+		assertEquals("[" + CxFragmentSplitter.CX2_HEADER + ",{\"nodes\":[{\"id\" : 1},{\"id\":2}]}]", read(chunks.get(0)));
+		assertNull(splitter.next());
+	}
+
+	@Test
+	public void testSingleByteReads() throws IOException {
+		String element = "{\"n\":\"a]}\\\"[{\",\"v\":[1.5,true,null]}";
+		String json = "[{\"a\":[" + element + "]},{\"b\":[" + element + "," + element + "]}]";
+		InputStream slow = new FilterInputStream(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))) {
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return super.read(b, off, Math.min(len, 1));
+			}
+		};
+		List<Chunk> chunks = split(new CxFragmentSplitter(slow, 1 << 20));
+
+		assertEquals(2, chunks.size());
+		assertEquals(document("a", element), read(chunks.get(0)));
+		assertEquals(document("b", element + "," + element), read(chunks.get(1)));
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotAnArray() throws IOException {
+		split(splitter("{\"nodes\":[]}", 100));
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnterminatedString() throws IOException {
+		split(splitter("[{\"nodes\":[{\"n\":\"abc}]}]", 100));
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnterminatedAspect() throws IOException {
+		split(splitter("[{\"nodes\":[{\"@id\":1}", 100));
+	}
+}
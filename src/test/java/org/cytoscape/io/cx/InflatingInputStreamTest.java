@@ -0,0 +1,141 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.cytoscape.io.internal.cx_reader.InflatingInputStream;
+import org.junit.Test;
+
+public class InflatingInputStreamTest {
+
+	private static byte[] gzip(byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(data);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * A CX-like document of the given size, compressible but not trivially
+	 */
+	private static byte[] document(int size) {
+		Random random = new Random(17);
+		StringBuilder json = new StringBuilder("[{\"nodes\":[");
+		while (json.length() < size) {
+			json.append("{\"@id\":").append(random.nextInt(100000)).append("},");
+		}
+		return Arrays.copyOf(json.toString().getBytes(StandardCharsets.UTF_8), size);
+	}
+
+	private static byte[] readAll(InputStream in, int bufferSize) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[bufferSize];
+		int n;
+		while ((n = in.read(buffer, 0, buffer.length)) != -1) {
+			out.write(buffer, 0, n);
+		}
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testIsGzip() throws IOException {
+		byte[] compressed = gzip(new byte[0]);
+		assertTrue(InflatingInputStream.isGzip(compressed, compressed.length));
+		assertFalse(InflatingInputStream.isGzip(compressed, 1));
+		assertFalse(InflatingInputStream.isGzip("[{".getBytes(StandardCharsets.UTF_8), 2));
+	}
+
+	@Test
+	public void testPlainPassedThrough() throws IOException {
+		for (int size : new int[] { 0, 1, 2, 3, 1000 }) {
+			byte[] data = document(size);
+			try (InflatingInputStream in = new InflatingInputStream(new ByteArrayInputStream(data))) {
+				assertArrayEquals(data, readAll(in, 100));
+			}
+		}
+	}
+
+	@Test
+	public void testPlainSingleBytes() throws IOException {
+		byte[] data = document(300);
+		try (InflatingInputStream in = new InflatingInputStream(new ByteArrayInputStream(data))) {
+			for (byte b : data) {
+				assertEquals(b & 0xff, in.read());
+			}
+			assertEquals(-1, in.read());
+		}
+	}
+
+	@Test
+	public void testInflate() throws IOException {
+		// Empty, less than a chunk, and many batches of chunks
+		for (int size : new int[] { 0, 1000, 3 * 1024 * 1024 + 17 }) {
+			byte[] data = document(size);
+			for (int bufferSize : new int[] { 1000, 100000 }) {
+				try (InflatingInputStream in = new InflatingInputStream(new ByteArrayInputStream(gzip(data)))) {
+					assertArrayEquals(data, readAll(in, bufferSize));
+					assertEquals(-1, in.read());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testInflateSingleBytes() throws IOException {
+		byte[] data = document(200000);
+		try (InflatingInputStream in = new InflatingInputStream(new ByteArrayInputStream(gzip(data)))) {
+			for (byte b : data) {
+				assertEquals(b & 0xff, in.read());
+			}
+			assertEquals(-1, in.read());
+		}
+	}
+
+	@Test
+	public void testTruncated() throws IOException {
+		byte[] compressed = gzip(document(500000));
+		byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+		try (InflatingInputStream in = new InflatingInputStream(new ByteArrayInputStream(truncated))) {
+			readAll(in, 4096);
+			fail("The truncated document was read");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testCorrupt() throws IOException {
+		byte[] compressed = gzip(document(500000));
+		for (int i = 20; i < compressed.length - 8; i += 7) {
+			compressed[i] ^= 0x5a;
+		}
+		try (InflatingInputStream in = new InflatingInputStream(new ByteArrayInputStream(compressed))) {
+			readAll(in, 4096);
+			fail("The corrupt document was read");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testCloseBeforeEnd() throws IOException {
+		InflatingInputStream in = new InflatingInputStream(new ByteArrayInputStream(gzip(document(10000000))));
+		byte[] buffer = new byte[1000];
+		assertEquals(1000, in.read(buffer, 0, buffer.length));
+		// Stops the inflating thread
+		in.close();
+	}
+}
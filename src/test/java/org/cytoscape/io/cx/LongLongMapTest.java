@@ -0,0 +1,171 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cytoscape.io.internal.cxio.LongLongMap;
+import org.cytoscape.io.internal.cxio.LongObjectMap;
+import org.junit.Test;
+
+public class LongLongMapTest {
+
+	private static final long NO_VALUE = LongLongMap.NO_VALUE;
+
+	private static Map<Long, Long> entries(LongLongMap map) {
+		Map<Long, Long> entries = new HashMap<>();
+		map.forEach((key, value) -> entries.put(key, value));
+		return entries;
+	}
+
+	private static List<Long> keys(LongLongMap map) {
+		List<Long> keys = new ArrayList<>();
+		map.forEach((key, value) -> keys.add(key));
+		return keys;
+	}
+
+	@Test
+	public void testDense() {
+		LongLongMap map = new LongLongMap();
+		for (long key = 999; key >= 0; key--) {
+			assertEquals(NO_VALUE, map.put(key, key * 10));
+		}
+		assertEquals(1000, map.size());
+		for (long key = 0; key < 1000; key++) {
+			assertEquals(key * 10, map.get(key));
+		}
+		assertEquals(NO_VALUE, map.get(1000));
+		assertEquals(NO_VALUE, map.get(Integer.MAX_VALUE + 1L));
+		assertFalse(map.containsKey(5000));
+
+		assertEquals(50, map.put(5, 7));
+		assertEquals(7, map.get(5));
+		assertEquals(1000, map.size());
+
+		// Dense mode visits the entries by key
+		List<Long> keys = keys(map);
+		assertEquals(1000, keys.size());
+		for (int i = 0; i < keys.size(); i++) {
+			assertEquals(Long.valueOf(i), keys.get(i));
+		}
+	}
+
+	@Test
+	public void testHash() {
+		LongLongMap map = new LongLongMap();
+		Map<Long, Long> expected = new HashMap<>();
+		for (long i = 1; i <= 100000; i++) {
+			long key = i * 1000003L;
+			assertEquals(NO_VALUE, map.put(key, i));
+			expected.put(key, i);
+		}
+		map.put(Long.MAX_VALUE, 1);
+		expected.put(Long.MAX_VALUE, 1L);
+		map.put(Long.MIN_VALUE, 2);
+		expected.put(Long.MIN_VALUE, 2L);
+
+		assertEquals(expected.size(), map.size());
+		for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+			assertEquals(entry.getValue().longValue(), map.get(entry.getKey()));
+		}
+		assertEquals(NO_VALUE, map.get(1000004L));
+		assertEquals(1, map.put(1000003L, 5));
+		assertEquals(5, map.get(1000003L));
+		expected.put(1000003L, 5L);
+		assertEquals(expected, entries(map));
+	}
+
+	@Test
+	public void testSwitchToHash() {
+		LongLongMap map = new LongLongMap();
+		for (long key = 0; key < 100; key++) {
+			map.put(key, key + 1);
+		}
+		map.put(1L << 40, 42);
+
+		assertEquals(101, map.size());
+		for (long key = 0; key < 100; key++) {
+			assertEquals(key + 1, map.get(key));
+		}
+		assertEquals(42, map.get(1L << 40));
+
+		// Keys that would have fit the array still work after the switch
+		assertEquals(1, map.put(0, 3));
+		map.put(100, 101);
+		assertEquals(102, map.size());
+		assertEquals(101, map.get(100));
+		assertEquals(3, map.get(0));
+	}
+
+	@Test
+	public void testNegativeKeys() {
+		LongLongMap map = new LongLongMap();
+		map.put(0, 1);
+		map.put(-1, 5);
+		assertEquals(5, map.get(-1));
+		assertEquals(1, map.get(0));
+		assertEquals(NO_VALUE, map.get(-2));
+		assertEquals(2, map.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoValue() {
+		new LongLongMap().put(1, NO_VALUE);
+	}
+
+	@Test
+	public void testPresizedHighKey() {
+		LongLongMap map = new LongLongMap(100000, 99999);
+		for (long key = 99999; key >= 0; key--) {
+			map.put(key, key);
+		}
+		assertEquals(100000, map.size());
+
+		// The first key is far beyond the number of entries, but it fits the presized array so
+		// the map stays dense and visits the entries by key
+		List<Long> keys = keys(map);
+		for (int i = 0; i < keys.size(); i++) {
+			assertEquals(Long.valueOf(i), keys.get(i));
+		}
+	}
+
+	@Test
+	public void testClear() {
+		LongLongMap map = new LongLongMap();
+		map.put(-7, 1);
+		map.put(3, 2);
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertEquals(NO_VALUE, map.get(3));
+		map.put(3, 4);
+		assertEquals(4, map.get(3));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	public void testLongObjectMap() {
+		LongObjectMap<String> map = new LongObjectMap<>(10, 9);
+		map.put(9, "nine");
+		map.put(-1, "minus one");
+		map.put(2, "two");
+		assertNull(map.put(1L << 40, "far"));
+		assertEquals("two", map.put(2, "TWO"));
+
+		assertEquals(4, map.size());
+		assertEquals("minus one", map.get(-1));
+		assertEquals("far", map.get(1L << 40));
+		assertNull(map.get(3));
+		assertEquals(Arrays.asList("nine", "minus one", "TWO", "far"), new ArrayList<>(map.values()));
+
+		List<Long> keys = new ArrayList<>();
+		map.forEachKey(keys::add);
+		assertEquals(Arrays.asList(9L, -1L, 2L, 1L << 40), keys);
+	}
+}
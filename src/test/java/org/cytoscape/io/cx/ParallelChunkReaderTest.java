@@ -0,0 +1,144 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.cytoscape.io.internal.cxio.CxFragmentSplitter;
+import org.cytoscape.io.internal.cxio.ParallelChunkReader;
+import org.junit.Test;
+
+public class ParallelChunkReaderTest {
+
+	private static final Pattern ID = Pattern.compile("\"@id\":(\\d+)");
+
+	private static CxFragmentSplitter splitter(int elements) {
+		StringBuilder json = new StringBuilder("[{\"nodes\":[");
+		for (int i = 0; i < elements; i++) {
+			json.append(i == 0 ? "" : ",").append("{\"@id\":").append(i).append("}");
+		}
+		json.append("]}]");
+		// A few elements per chunk
+		return new CxFragmentSplitter(new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8)), 100);
+	}
+
+	private static List<Long> decode(CxFragmentSplitter.Chunk chunk) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		InputStream in = chunk.getInputStream();
+		int b;
+		while ((b = in.read()) != -1) {
+			out.write(b);
+		}
+		List<Long> ids = new ArrayList<>();
+		Matcher m = ID.matcher(new String(out.toByteArray(), StandardCharsets.UTF_8));
+		while (m.find()) {
+			ids.add(Long.valueOf(m.group(1)));
+		}
+		return ids;
+	}
+
+	@Test
+	public void testDocumentOrder() throws IOException {
+		ParallelChunkReader<List<Long>> reader = new ParallelChunkReader<>(splitter(5000), chunk -> {
+			List<Long> ids = decode(chunk);
+			// Later chunks are often done first
+			if (ids.get(0) % 3 == 0) {
+				Thread.sleep(1);
+			}
+			return ids;
+		});
+		List<Long> ids = new ArrayList<>();
+		assertTrue(reader.read(ids::addAll, null));
+
+		assertEquals(5000, ids.size());
+		for (int i = 0; i < ids.size(); i++) {
+			assertEquals(i, ids.get(i).longValue());
+		}
+		assertTrue(reader.getChunkCount() > 100);
+	}
+
+	@Test
+	public void testDecoderIOException() {
+		ParallelChunkReader<List<Long>> reader = new ParallelChunkReader<>(splitter(1000), chunk -> {
+			List<Long> ids = decode(chunk);
+			if (ids.contains(500L)) {
+				throw new IOException("bad chunk");
+			}
+			return ids;
+		});
+		try {
+			reader.read(ids -> { }, null);
+			fail("The decoder failure was not thrown");
+		} catch (IOException e) {
+			assertEquals("bad chunk", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testDecoderCheckedException() {
+		Exception cause = new Exception("not a chunk");
+		ParallelChunkReader<List<Long>> reader = new ParallelChunkReader<>(splitter(10), chunk -> {
+			throw cause;
+		});
+		try {
+			reader.read(ids -> { }, null);
+			fail("The decoder failure was not thrown");
+		} catch (IOException e) {
+			assertTrue(e.getCause() == cause);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testDecoderRuntimeException() throws IOException {
+		ParallelChunkReader<List<Long>> reader = new ParallelChunkReader<>(splitter(10), chunk -> {
+			throw new IllegalStateException();
+		});
+		reader.read(ids -> { }, null);
+	}
+
+	@Test
+	public void testConsumerException() throws IOException {
+		ParallelChunkReader<List<Long>> reader = new ParallelChunkReader<>(splitter(1000),
+				ParallelChunkReaderTest::decode);
+		AtomicInteger consumed = new AtomicInteger();
+		try {
+			reader.read(ids -> {
+				if (consumed.incrementAndGet() == 3) {
+					throw new InterruptedException("stop");
+				}
+			}, null);
+			fail("The consumer failure was not thrown");
+		} catch (InterruptedException e) {
+			assertEquals("stop", e.getMessage());
+		}
+		assertEquals(3, consumed.get());
+	}
+
+	@Test
+	public void testCancelled() throws IOException {
+		ParallelChunkReader<List<Long>> all = new ParallelChunkReader<>(splitter(10000),
+				ParallelChunkReaderTest::decode);
+		assertTrue(all.read(ids -> { }, null));
+
+		ParallelChunkReader<List<Long>> reader = new ParallelChunkReader<>(splitter(10000),
+				ParallelChunkReaderTest::decode);
+		AtomicInteger consumed = new AtomicInteger();
+		assertFalse(reader.read(ids -> consumed.incrementAndGet(), () -> consumed.get() >= 2));
+
+		assertTrue(consumed.get() >= 2);
+		// The rest of the document was not split
+		assertTrue(reader.getChunkCount() < all.getChunkCount());
+	}
+}
@@ -0,0 +1,193 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.cytoscape.io.internal.cxio.PipelinedReader;
+import org.junit.Test;
+
+public class PipelinedReaderTest {
+
+	/**
+	 * Counts from 0, up to the limit or without end, and fails at the given element
+	 */
+	private static final class Source implements Iterable<Integer> {
+		private final int limit;
+		private final int failAt;
+		private final Throwable failure;
+		final AtomicReference<Thread> thread = new AtomicReference<>();
+		volatile int count = 0;
+
+		Source(int limit) {
+			this(limit, -1, null);
+		}
+
+		Source(int limit, int failAt, Throwable failure) {
+			this.limit = limit;
+			this.failAt = failAt;
+			this.failure = failure;
+		}
+
+		@Override
+		public Iterator<Integer> iterator() {
+			thread.set(Thread.currentThread());
+			return new Iterator<Integer>() {
+				@Override
+				public boolean hasNext() {
+					return limit < 0 || count < limit;
+				}
+
+				@Override
+				public Integer next() {
+					if (count == failAt) {
+						PipelinedReaderTest.<RuntimeException>sneakyThrow(failure);
+					}
+					return count++;
+				}
+			};
+		}
+	}
+
+	// Lets the iterator throw checked exceptions, like a parser does
+	@SuppressWarnings("unchecked")
+	private static <T extends Throwable> void sneakyThrow(Throwable t) throws T {
+		throw (T) t;
+	}
+
+	private static List<Integer> readAll(PipelinedReader<Integer> reader) throws IOException {
+		List<Integer> all = new ArrayList<>();
+		List<Integer> batch;
+		while ((batch = reader.nextBatch()) != null) {
+			all.addAll(batch);
+		}
+		return all;
+	}
+
+	private static void assertStopped(Source source) throws InterruptedException {
+		while (source.thread.get() == null) {
+			Thread.sleep(1);
+		}
+		source.thread.get().join(10000);
+		assertFalse(source.thread.get().isAlive());
+	}
+
+	@Test
+	public void testBatches() throws IOException {
+		try (PipelinedReader<Integer> reader = new PipelinedReader<>(new Source(1300), "test", 512)) {
+			assertEquals(512, reader.nextBatch().size());
+			assertEquals(512, reader.nextBatch().size());
+			List<Integer> last = reader.nextBatch();
+			assertEquals(276, last.size());
+			assertEquals(Integer.valueOf(1299), last.get(last.size() - 1));
+			assertNull(reader.nextBatch());
+			assertNull(reader.nextBatch());
+		}
+	}
+
+	@Test
+	public void testOrder() throws IOException {
+		try (PipelinedReader<Integer> reader = new PipelinedReader<>(new Source(100000), "test")) {
+			List<Integer> all = readAll(reader);
+			assertEquals(100000, all.size());
+			for (int i = 0; i < all.size(); i++) {
+				assertEquals(i, all.get(i).intValue());
+			}
+		}
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		try (PipelinedReader<Integer> reader = new PipelinedReader<>(Collections.emptyList(), "test")) {
+			assertNull(reader.nextBatch());
+		}
+	}
+
+	@Test
+	public void testIOExceptionAfterBatches() {
+		IOException failure = new IOException("bad document");
+		try (PipelinedReader<Integer> reader = new PipelinedReader<>(new Source(-1, 1000, failure), "test", 100)) {
+			// The batches parsed before the failure come first
+			for (int i = 0; i < 10; i++) {
+				assertEquals(100, reader.nextBatch().size());
+			}
+			reader.nextBatch();
+			fail("The parser failure was not thrown");
+		} catch (IOException e) {
+			assertTrue(e == failure);
+		}
+	}
+
+	@Test
+	public void testRuntimeException() throws IOException {
+		IllegalStateException failure = new IllegalStateException("bad element");
+		try (PipelinedReader<Integer> reader = new PipelinedReader<>(new Source(-1, 10, failure), "test", 100)) {
+			// The elements before the failure are in a partial batch that is dropped
+			reader.nextBatch();
+			fail("The parser failure was not thrown");
+		} catch (IllegalStateException e) {
+			assertTrue(e == failure);
+		}
+	}
+
+	@Test
+	public void testCheckedException() throws IOException {
+		Exception failure = new Exception("not an IOException");
+		try (PipelinedReader<Integer> reader = new PipelinedReader<>(new Source(-1, 0, failure), "test")) {
+			reader.nextBatch();
+			fail("The parser failure was not thrown");
+		} catch (IOException e) {
+			assertTrue(e.getCause() == failure);
+		}
+	}
+
+	@Test
+	public void testCloseStopsParser() throws IOException, InterruptedException {
+		Source source = new Source(-1);
+		PipelinedReader<Integer> reader = new PipelinedReader<>(source, "test", 10);
+		assertNotNull(reader.nextBatch());
+		reader.close();
+
+		assertStopped(source);
+		int count = source.count;
+		Thread.sleep(10);
+		assertEquals(count, source.count);
+	}
+
+	@Test
+	public void testCloseWhileParserWaits() throws InterruptedException {
+		// Nothing is consumed, the parser waits for room in the queue
+		Source source = new Source(-1);
+		PipelinedReader<Integer> reader = new PipelinedReader<>(source, "test", 10);
+		while (source.count < 64 * 10) {
+			Thread.sleep(1);
+		}
+		reader.close();
+
+		assertStopped(source);
+		// A full queue and the batch the parser was putting
+		assertTrue(source.count <= 65 * 10);
+	}
+
+	@Test
+	public void testCloseAfterEnd() throws IOException, InterruptedException {
+		Source source = new Source(5);
+		PipelinedReader<Integer> reader = new PipelinedReader<>(source, "test");
+		assertEquals(5, readAll(reader).size());
+		reader.close();
+		reader.close();
+
+		assertStopped(source);
+		assertNull(reader.nextBatch());
+	}
+}
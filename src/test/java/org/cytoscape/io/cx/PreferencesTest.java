@@ -1,14 +1,19 @@
 package org.cytoscape.io.cx;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Properties;
 import org.cytoscape.io.cx.helpers.TestUtil;
 import org.cytoscape.io.cx.helpers.TestUtil.CxReaderWrapper;
 import org.cytoscape.io.internal.CxPreferences;
 import org.cytoscape.io.internal.CyServiceModule;
+import org.cytoscape.io.internal.cx_reader.MappedFileInputStream;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.view.layout.CyLayoutAlgorithmManager;
 import org.junit.Before;
@@ -115,6 +120,19 @@ public class PreferencesTest {
 		verify(layoutManager, times(0)).getLayout(Mockito.eq("force-directed"));
 	}
 
+	@Test
+	public void testMappedInputOptIn() throws IOException {
+		File f = TestUtil.getResource("base", "subnetwork.cx");
+		try (InputStream in = MappedFileInputStream.wrap(new FileInputStream(f))) {
+			assertFalse(in instanceof MappedFileInputStream);
+		}
+		
+		Properties propertiesMock = TestUtil.INSTANCE.getPropertiesMock();
+		when(propertiesMock.getProperty(Mockito.eq(CxPreferences.MAPPED_INPUT_PROPERTY))).thenReturn("true");
+		try (InputStream in = MappedFileInputStream.wrap(new FileInputStream(f))) {
+			assertTrue(in instanceof MappedFileInputStream);
+		}
+	}
 	
 	@Test
 	public void testAutoLayoutUnderThreshold() throws IOException {
@@ -1,13 +1,17 @@
 package org.cytoscape.io.cx;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -18,13 +22,19 @@ import java.util.stream.Stream;
 import org.cytoscape.io.cx.helpers.CyPropertiesMock;
 import org.cytoscape.io.cx.helpers.TestUtil;
 import org.cytoscape.io.cx.helpers.TestUtil.CxReaderWrapper;
+import org.cytoscape.io.cx.helpers.TestUtil.ImportMode;
 import org.cytoscape.io.internal.AspectSet;
 import org.cytoscape.io.internal.CxPreferences;
 import org.cytoscape.io.internal.CyServiceModule;
+import org.cytoscape.io.internal.cxio.CxUtil;
+import org.cytoscape.model.CyColumn;
 import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNetworkFactory;
 import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.model.subnetwork.CyRootNetwork;
+import org.cytoscape.model.subnetwork.CySubNetwork;
 import org.cytoscape.view.model.ContinuousRange;
 import org.cytoscape.view.model.CyNetworkView;
 import org.cytoscape.view.model.CyNetworkViewFactory;
@@ -40,6 +50,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.ndexbio.cxio.aspects.datamodels.CartesianLayoutElement;
+import org.ndexbio.cxio.aspects.datamodels.CyGroupsElement;
 import org.ndexbio.cxio.aspects.datamodels.EdgeAttributesElement;
 import org.ndexbio.cxio.aspects.datamodels.NetworkAttributesElement;
 import org.ndexbio.cxio.aspects.datamodels.NetworkRelationsElement;
@@ -318,6 +329,75 @@ public class SpecialTest {
 		TestUtil.withAspects(reader);
 	}
 	
+	/**
+	 * The opaque aspects serialized into the network tables, by table and column
+	 */
+	private static Map<String, Object> getOpaqueAspects(CyNetwork network) {
+		Map<String, Object> aspects = new HashMap<>();
+		CyRootNetwork root = ((CySubNetwork) network).getRootNetwork();
+		for (CyNetwork n : new CyNetwork[] { network, root }) {
+			for (String namespace : new String[] { CyNetwork.DEFAULT_ATTRS, CyNetwork.LOCAL_ATTRS, CyRootNetwork.SHARED_ATTRS }) {
+				CyTable table = n.getTable(CyNetwork.class, namespace);
+				if (table == null) {
+					continue;
+				}
+				for (CyColumn column : table.getColumns()) {
+					if (column.getName().startsWith(CxUtil.OPAQUE_ASPECT_PREFIX)) {
+						aspects.put((n == root ? "root " : "") + namespace + " " + column.getName(),
+								table.getRow(n.getSUID()).getRaw(column.getName()));
+					}
+				}
+			}
+		}
+		return aspects;
+	}
+	
+	private static CyNetwork loadNetwork(InputStream in, boolean captureOpaqueAspects) throws IOException {
+		CxReaderWrapper reader = TestUtil.INSTANCE.getReader(in, null);
+		reader.setCaptureOpaqueAspects(captureOpaqueAspects);
+		return TestUtil.loadNetworks(reader)[0];
+	}
+	
+	@Test
+	public void testCapturedOpaqueAspects() throws IOException, NdexException {
+		// Pretty printed and compact documents
+		File[] files = new File[] {
+				TestUtil.getResource("specialCases", "node_location_map.cx"),
+				TestUtil.getResource("subnets", "Fanconi Anemia Machine.cx")
+		};
+		for (File f : files) {
+			// Parsed into opaque elements, the way the other round trips import them
+			Map<String, Object> parsed = getOpaqueAspects(loadNetwork(new FileInputStream(f), false));
+			assertFalse(parsed.isEmpty());
+			
+			// Kept as raw JSON, the default
+			CyNetwork network = loadNetwork(new FileInputStream(f), true);
+			assertEquals(parsed, getOpaqueAspects(network));
+			
+			ByteArrayOutputStream out = TestUtil.saveNetwork(network, false, true);
+			Map<String, Object> output = getOpaqueAspects(loadNetwork(TestUtil.pipe(out), true));
+			parsed.forEach((column, json) -> assertEquals(column, json, output.get(column)));
+		}
+	}
+	
+	@Test
+	public void testStreamedCollectionWithIncompleteMetaData() throws IOException, NdexException {
+		File f = TestUtil.getResource("collections", "collection_1.cx");
+		CxReaderWrapper reader = TestUtil.getSubNetwork(f);
+		assertTrue(CxUtil.isCollection(reader.getNiceCX()));
+		
+		// The collection aspects only come up after the streamed import added the nodes and edges
+		TestUtil.INSTANCE.setImportMode(ImportMode.STREAMING);
+		TestUtil.INSTANCE.setUnlistedAspects(SubNetworkElement.ASPECT_NAME, NetworkRelationsElement.ASPECT_NAME,
+				CyGroupsElement.ASPECT_NAME, CxUtil.CX_ID_MAPPING);
+		try {
+			TestUtil.withAspects(reader);
+		} finally {
+			TestUtil.INSTANCE.setImportMode(ImportMode.STAGED);
+			TestUtil.INSTANCE.setUnlistedAspects();
+		}
+	}
+	
 	@Test
 	public void testMismatchedAttributeTypes() throws IOException, NdexException {
 		File f = TestUtil.getResource("specialCases", "n3_pp.cx");
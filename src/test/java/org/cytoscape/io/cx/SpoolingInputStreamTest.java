@@ -0,0 +1,86 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.cytoscape.io.internal.cx_reader.SpoolingInputStream;
+import org.junit.Test;
+
+public class SpoolingInputStreamTest {
+
+	private static byte[] data(int size) {
+		byte[] data = new byte[size];
+		for (int i = 0; i < size; i++) {
+			data[i] = (byte) (i * 31);
+		}
+		return data;
+	}
+
+	private static byte[] read(InputStream in, int length) throws IOException {
+		byte[] bytes = new byte[length];
+		int n = 0;
+		while (n < length) {
+			n += in.read(bytes, n, length - n);
+		}
+		return bytes;
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[333];
+		int n;
+		while ((n = in.read(buffer, 0, buffer.length)) != -1) {
+			out.write(buffer, 0, n);
+		}
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testReplay() throws IOException {
+		byte[] data = data(100000);
+		try (SpoolingInputStream in = new SpoolingInputStream(new ByteArrayInputStream(data))) {
+			assertArrayEquals(Arrays.copyOf(data, 40000), read(in, 40000));
+			assertEquals(data[40000] & 0xff, in.read());
+			assertTrue(in.isSpooling());
+
+			InputStream replay = in.replay();
+			assertFalse(in.isSpooling());
+			// The first reader is done
+			assertEquals(-1, in.read());
+			assertArrayEquals(data, readAll(replay));
+		}
+	}
+
+	@Test
+	public void testReplayAfterEnd() throws IOException {
+		byte[] data = data(5000);
+		try (SpoolingInputStream in = new SpoolingInputStream(new ByteArrayInputStream(data))) {
+			assertArrayEquals(data, readAll(in));
+			assertArrayEquals(data, readAll(in.replay()));
+		}
+	}
+
+	@Test
+	public void testStopSpooling() throws IOException {
+		byte[] data = data(5000);
+		try (SpoolingInputStream in = new SpoolingInputStream(new ByteArrayInputStream(data))) {
+			assertArrayEquals(Arrays.copyOf(data, 100), read(in, 100));
+			in.stopSpooling();
+			assertFalse(in.isSpooling());
+			assertArrayEquals(Arrays.copyOfRange(data, 100, data.length), readAll(in));
+			in.replay();
+			fail("The document was replayed without its start");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+}
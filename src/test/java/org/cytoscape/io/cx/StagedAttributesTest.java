@@ -0,0 +1,104 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.cytoscape.io.internal.cxio.StringPool;
+import org.cytoscape.io.internal.nicecy.StagedAttributes;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.model.NetworkTestSupport;
+import org.junit.Test;
+import org.ndexbio.cxio.aspects.datamodels.ATTRIBUTE_DATA_TYPE;
+import org.ndexbio.cxio.aspects.datamodels.NodeAttributesElement;
+
+public class StagedAttributesTest {
+
+	// Values staged per node
+	private static final int VALUES_PER_NODE = 9;
+
+	private static void stage(StagedAttributes staged, StringPool strings, int nodes) {
+		for (long i = 0; i < nodes; i++) {
+			staged.add(i, new NodeAttributesElement(null, i, "name", "node " + i, ATTRIBUTE_DATA_TYPE.STRING), strings);
+			staged.add(i, new NodeAttributesElement(null, i, "type", i % 3 == 0 ? "protein" : "rna",
+					ATTRIBUTE_DATA_TYPE.STRING), strings);
+			// Values that can not be parsed are loaded as null
+			staged.add(i, new NodeAttributesElement(null, i, "rank", i % 11 == 0 ? "x" : String.valueOf(i % 7),
+					ATTRIBUTE_DATA_TYPE.INTEGER), strings);
+			staged.add(i, new NodeAttributesElement(null, i, "score", String.valueOf(i / 4.0),
+					ATTRIBUTE_DATA_TYPE.DOUBLE), strings);
+			staged.add(i, new NodeAttributesElement(null, i, "flag", String.valueOf(i % 2 == 0),
+					ATTRIBUTE_DATA_TYPE.BOOLEAN), strings);
+			staged.add(i, new NodeAttributesElement(null, i, "big", String.valueOf((1L << 40) + i),
+					ATTRIBUTE_DATA_TYPE.LONG), strings);
+			staged.add(i, new NodeAttributesElement(null, i, "tags", Arrays.asList("t" + i % 3, "u"),
+					ATTRIBUTE_DATA_TYPE.LIST_OF_STRING), strings);
+			staged.add(i, new NodeAttributesElement(null, i, "counts",
+					Arrays.asList(String.valueOf(i), String.valueOf(-i)), ATTRIBUTE_DATA_TYPE.LIST_OF_INTEGER), strings);
+			staged.add(i, new NodeAttributesElement(1L, i, "note", "local " + i % 5, ATTRIBUTE_DATA_TYPE.STRING),
+					strings);
+		}
+	}
+
+	private static void assertLoaded(int nodes) {
+		CyNetwork network = new NetworkTestSupport().getNetworkFactory().createNetwork();
+		List<CyNode> nodeList = new ArrayList<>();
+		for (int i = 0; i < nodes; i++) {
+			nodeList.add(network.addNode());
+		}
+		StagedAttributes staged = new StagedAttributes();
+		stage(staged, new StringPool(), nodes);
+		assertEquals(nodes * VALUES_PER_NODE, staged.size());
+
+		CyTable shared = network.getTable(CyNode.class, CyNetwork.DEFAULT_ATTRS);
+		CyTable local = network.getTable(CyNode.class, CyNetwork.LOCAL_ATTRS);
+		staged.load(shared, local, id -> nodeList.get((int) id));
+
+		assertEquals(Integer.class, shared.getColumn("rank").getType());
+		assertEquals(Long.class, shared.getColumn("big").getType());
+		assertEquals(Integer.class, shared.getColumn("counts").getListElementType());
+		assertTrue(local.getColumn("note") != null);
+		for (int i = 0; i < nodes; i++) {
+			CyRow row = shared.getRow(nodeList.get(i).getSUID());
+			assertEquals("node " + i, row.get("name", String.class));
+			assertEquals(i % 3 == 0 ? "protein" : "rna", row.get("type", String.class));
+			if (i % 11 == 0) {
+				assertNull(row.get("rank", Integer.class));
+			} else {
+				assertEquals(Integer.valueOf(i % 7), row.get("rank", Integer.class));
+			}
+			assertEquals(i / 4.0, row.get("score", Double.class), 0.0);
+			assertEquals(i % 2 == 0, row.get("flag", Boolean.class));
+			assertEquals(Long.valueOf((1L << 40) + i), row.get("big", Long.class));
+			assertEquals(Arrays.asList("t" + i % 3, "u"), row.getList("tags", String.class));
+			assertEquals(Arrays.asList(i, -i), row.getList("counts", Integer.class));
+			assertEquals("local " + i % 5, local.getRow(nodeList.get(i).getSUID()).get("note", String.class));
+		}
+	}
+
+	@Test
+	public void testLoad() {
+		assertLoaded(100);
+	}
+
+	@Test
+	public void testParallelLoad() {
+		// Enough values for the columns to be converted on the fork/join pool
+		assertLoaded(10000);
+	}
+
+	@Test
+	public void testClear() {
+		StagedAttributes staged = new StagedAttributes();
+		stage(staged, new StringPool(), 10);
+		staged.clear();
+		assertTrue(staged.isEmpty());
+	}
+}
@@ -0,0 +1,43 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.cytoscape.io.internal.cxio.StringPool;
+import org.junit.Test;
+
+public class StringPoolTest {
+
+	@Test
+	public void testCategoricalColumnIsPooled() {
+		StringPool pool = new StringPool();
+		StringPool.Values values = pool.values("type");
+		String protein = values.intern(new String("protein"));
+		for (int i = 0; i < 10000; i++) {
+			values.intern(new String("rna"));
+			assertTrue(protein == values.intern(new String("protein")));
+		}
+		assertTrue(values.isPooling());
+		assertEquals(2, pool.size());
+		assertEquals(0, pool.getUnpooledColumns());
+	}
+
+	@Test
+	public void testDistinctColumnStopsPooling() {
+		StringPool pool = new StringPool();
+		StringPool.Values values = pool.values("name");
+		for (int i = 0; i < 10000; i++) {
+			values.intern("node " + i);
+		}
+		assertFalse(values.isPooling());
+		assertEquals(1, pool.getUnpooledColumns());
+		// Only the sample was pooled
+		assertTrue(pool.size() < 2000);
+
+		// Other columns and names are not affected
+		String name = pool.intern(new String("name"));
+		assertTrue(name == pool.intern(new String("name")));
+		assertTrue(pool.values("type").isPooling());
+	}
+}
@@ -16,10 +16,14 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -27,6 +31,7 @@ import java.util.Objects;
 import java.util.Properties;
 import java.util.SortedMap;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.cytoscape.ding.DVisualLexicon;
@@ -38,12 +43,16 @@ import org.cytoscape.group.CyGroupManager;
 import org.cytoscape.group.internal.CyGroupFactoryImpl;
 import org.cytoscape.group.internal.CyGroupManagerImpl;
 import org.cytoscape.group.internal.LockedVisualPropertiesManager;
+import org.cytoscape.io.internal.CxPreferences;
 import org.cytoscape.io.internal.CyServiceModule;
 import org.cytoscape.io.internal.cx_reader.CytoscapeCxFileFilter;
 import org.cytoscape.io.internal.cx_reader.CytoscapeCxNetworkReader;
+import org.cytoscape.io.internal.cx_reader.InflatingInputStream;
+import org.cytoscape.io.internal.cx_reader.MappedFileInputStream;
 import org.cytoscape.io.internal.cx_reader.StringParser;
 import org.cytoscape.io.internal.cx_writer.CxNetworkWriter;
 import org.cytoscape.io.internal.cx_writer.CxNetworkWriterFactory;
+import org.cytoscape.io.internal.cxio.CxFragmentSplitter;
 import org.cytoscape.io.internal.cxio.CxUtil;
 import org.cytoscape.io.internal.cxio.Settings;
 import org.cytoscape.io.internal.nicecy.NiceCyRootNetwork;
@@ -63,6 +72,7 @@ import org.cytoscape.view.vizmap.VisualMappingManager;
 import org.cytoscape.work.SynchronousTaskManager;
 import org.cytoscape.work.TaskMonitor;
 import org.cytoscape.work.swing.DialogTaskManager;
+import org.mockito.Mockito;
 import org.ndexbio.cxio.aspects.datamodels.AbstractAttributesAspectElement;
 import org.ndexbio.cxio.aspects.datamodels.AbstractElementAttributesAspectElement;
 import org.ndexbio.cxio.aspects.datamodels.CartesianLayoutElement;
@@ -138,6 +148,64 @@ public class TestUtil {
 	
 	final SynchronousTaskManager<?> synchronousTaskManager = mock(SynchronousTaskManager.class);
 	
+	/**
+	 * The ways the round trips import a CX document, see CxPreferences
+	 */
+	public enum ImportMode {
+		// Parsed into a NiceCX network, then staged in a NiceCy network
+		STAGED,
+		// Single networks built straight from the stream
+		STREAMING(CxPreferences.STREAMING_IMPORT_PROPERTY),
+		// Staged, with the aspects decoded in parallel chunks
+		PARALLEL(CxPreferences.PARALLEL_IMPORT_PROPERTY),
+		// Staged, read from a file through its memory mapped channel
+		MAPPED(true, false, CxPreferences.MAPPED_INPUT_PROPERTY),
+		// Staged, from a gzip compressed document, and exported compressed
+		GZIP(false, true);
+		
+		private final boolean mapped;
+		private final boolean compressed;
+		private final String[] properties;
+		
+		ImportMode(String... properties) {
+			this(false, false, properties);
+		}
+		
+		ImportMode(boolean mapped, boolean compressed, String... properties) {
+			this.mapped = mapped;
+			this.compressed = compressed;
+			this.properties = properties;
+		}
+	}
+	
+	private ImportMode importMode = ImportMode.STAGED;
+	
+	// Aspects the documents written for the import modes leave out of their pre-metadata
+	private Collection<String> unlistedAspects = Collections.emptyList();
+	
+	/**
+	 * Leave the given aspects out of the pre-metadata of the documents the following round trips
+	 * import, as writers that only list the aspects known before the elements do
+	 */
+	public void setUnlistedAspects(String... aspects) {
+		unlistedAspects = Arrays.asList(aspects);
+	}
+	
+	/**
+	 * Import the networks of the following round trips in the given mode
+	 */
+	public void setImportMode(ImportMode mode) {
+		for (ImportMode m : ImportMode.values()) {
+			for (String property : m.properties) {
+				when(properties.getProperty(Mockito.eq(property))).thenReturn(null);
+			}
+		}
+		for (String property : mode.properties) {
+			when(properties.getProperty(Mockito.eq(property))).thenReturn("true");
+		}
+		importMode = mode;
+	}
+	
 	public static TestUtil INSTANCE;
 	public static void init() {
 		INSTANCE = new TestUtil();
@@ -150,10 +218,21 @@ public class TestUtil {
 				CyNetworkManager network_manager, CyRootNetworkManager root_network_manager) {
 			super(input_stream, network_collection_name, networkview_factory, network_factory, network_manager,
 					root_network_manager);
+			// The parsed document is the reference of the comparisons, it has to keep the opaque aspects
+			setCaptureOpaqueAspects(false);
 		}
 		
 		public NiceCXNetwork getNiceCX(){
-			return niceCX;
+			try {
+				return readNiceCX();
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Failed to import file as CX", e);
+			}
+		}
+		
+		@Override
+		protected void releaseNiceCX() {
+			// Kept, the tests compare the imported networks with the parsed document
 		}
 		
 	}
@@ -219,7 +298,104 @@ public class TestUtil {
 		return reader;
 	}
 	
-	public static CyNetwork[] loadNetworks(CxReaderWrapper reader) throws IOException {
+	/**
+	 * The reader importing the document of a round trip. Staged imports use the reader itself, as
+	 * the test may have changed its parsed document. The other modes parse the document again,
+	 * written back from the parsed one.
+	 */
+	private CytoscapeCxNetworkReader getImportReader(CxReaderWrapper reader) throws IOException {
+		if (importMode == ImportMode.STAGED) {
+			return reader;
+		}
+		byte[] cx = writeCx(reader.getNiceCX(), unlistedAspects);
+		if (importMode.compressed) {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			try (OutputStream out = new GZIPOutputStream(compressed)) {
+				out.write(cx);
+			}
+			cx = compressed.toByteArray();
+		}
+		InputStream in = new ByteArrayInputStream(cx);
+		if (importMode.mapped) {
+			File file = File.createTempFile("import", ".cx");
+			file.deleteOnExit();
+			try (OutputStream out = new FileOutputStream(file)) {
+				out.write(cx);
+			}
+			// As the reader factory does with the stream of a local file
+			in = MappedFileInputStream.wrap(new FileInputStream(file));
+			assertTrue(in instanceof MappedFileInputStream);
+		}
+		return new CytoscapeCxNetworkReader(in, null, networkview_factory, network_factory,
+				nts.getNetworkManager(), nts.getRootNetworkFactory());
+	}
+	
+	/**
+	 * Write a parsed document back as CX, with the aspects the staged import reads from it and
+	 * pre-metadata counting their elements
+	 */
+	public static byte[] writeCx(NiceCXNetwork niceCX) throws IOException {
+		return writeCx(niceCX, Collections.emptyList());
+	}
+	
+	/**
+	 * Write a parsed document back as CX, leaving the given aspects out of the pre-metadata
+	 */
+	public static byte[] writeCx(NiceCXNetwork niceCX, Collection<String> unlistedAspects) throws IOException {
+		Map<String, List<AspectElement>> aspects = new LinkedHashMap<>();
+		aspects.put(NetworkAttributesElement.ASPECT_NAME, new ArrayList<>(niceCX.getNetworkAttributes()));
+		aspects.put(NodesElement.ASPECT_NAME, new ArrayList<>(niceCX.getNodes().values()));
+		if (niceCX.getEdges() != null) {
+			aspects.put(EdgesElement.ASPECT_NAME, new ArrayList<>(niceCX.getEdges().values()));
+		}
+		List<AspectElement> nodeAttributes = new ArrayList<>();
+		niceCX.getNodeAttributes().values().forEach(nodeAttributes::addAll);
+		aspects.put(NodeAttributesElement.ASPECT_NAME, nodeAttributes);
+		List<AspectElement> edgeAttributes = new ArrayList<>();
+		niceCX.getEdgeAttributes().values().forEach(edgeAttributes::addAll);
+		aspects.put(EdgeAttributesElement.ASPECT_NAME, edgeAttributes);
+		Map<Long, Collection<AspectElement>> layout = niceCX.getNodeAssociatedAspects().get(CartesianLayoutElement.ASPECT_NAME);
+		if (layout != null) {
+			List<AspectElement> elements = new ArrayList<>();
+			layout.values().forEach(elements::addAll);
+			aspects.put(CartesianLayoutElement.ASPECT_NAME, elements);
+		}
+		if (niceCX.getOpaqueAspectTable() != null) {
+			niceCX.getOpaqueAspectTable().forEach((name, elements) -> aspects.put(name, new ArrayList<>(elements)));
+		}
+		aspects.values().removeIf(List::isEmpty);
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StringBuilder metadata = new StringBuilder("[" + CxFragmentSplitter.CX_HEADER + ",{\"metaData\":[");
+		aspects.forEach((name, elements) -> {
+			if (unlistedAspects.contains(name)) {
+				return;
+			}
+			if (metadata.charAt(metadata.length() - 1) == '}') {
+				metadata.append(',');
+			}
+			metadata.append("{\"name\":\"" + name + "\",\"version\":\"1.0\",\"elementCount\":" + elements.size() + "}");
+		});
+		out.write(metadata.append("]}").toString().getBytes(StandardCharsets.UTF_8));
+		for (Entry<String, List<AspectElement>> aspect : aspects.entrySet()) {
+			out.write((",{\"" + aspect.getKey() + "\":[").getBytes(StandardCharsets.UTF_8));
+			for (int i = 0; i < aspect.getValue().size(); i++) {
+				if (i > 0) {
+					out.write(',');
+				}
+				ByteArrayOutputStream element = new ByteArrayOutputStream();
+				JsonWriter writer = JsonWriter.createInstance(element, false);
+				aspect.getValue().get(i).write(writer);
+				writer.close();
+				element.writeTo(out);
+			}
+			out.write("]}".getBytes(StandardCharsets.UTF_8));
+		}
+		out.write(",{\"status\":[{\"error\":\"\",\"success\":true}]}]".getBytes(StandardCharsets.UTF_8));
+		return out.toByteArray();
+	}
+	
+	public static CyNetwork[] loadNetworks(CytoscapeCxNetworkReader reader) throws IOException {
 
 		reader.run(null);
 		
@@ -268,7 +444,8 @@ public class TestUtil {
 		
 		StreamUtil streamUtil = CyServiceModule.getService(StreamUtil.class);
 		CytoscapeCxFileFilter filter = new CytoscapeCxFileFilter(streamUtil);
-		CxNetworkWriterFactory writerFactory = new CxNetworkWriterFactory(filter,false);
+		boolean compressed = INSTANCE != null && INSTANCE.importMode.compressed;
+		CxNetworkWriterFactory writerFactory = new CxNetworkWriterFactory(filter, false, compressed);
 		CxNetworkWriter writer = (CxNetworkWriter) writerFactory.createWriter(out, network);
 		writer.useCxId = useCxId;
 		writer.writeSiblings = writeSiblings;
@@ -941,8 +1118,9 @@ public class TestUtil {
 			name = "Unnamed network";
 		}
 		
-		CyNetwork[] networks = loadNetworks(reader);
+		CyNetwork[] networks = loadNetworks(INSTANCE.getImportReader(reader));
 		ByteArrayOutputStream out = saveNetwork(networks[0], collection, useCxId);
+		assertEquals(INSTANCE.importMode.compressed, InflatingInputStream.isGzip(out.toByteArray(), out.size()));
 		
 		File outf = TestUtil.saveOutputStreamToFile(out, name + "_test_output.cx");
 		// TODO: Delete test files on exit
@@ -0,0 +1,151 @@
+package org.cytoscape.io.internal.cx_reader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedFileInputStreamTest {
+
+	// Small windows, so the reads cross them
+	private static final int WINDOW_SIZE = 100;
+
+	private final byte[] data = new byte[1050];
+	private Path file;
+
+	@Before
+	public void createFile() throws IOException {
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i * 31);
+		}
+		file = Files.createTempFile("mapped", ".cx");
+		Files.write(file, data);
+	}
+
+	@After
+	public void deleteFile() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	private MappedFileInputStream open() throws IOException {
+		return new MappedFileInputStream(FileChannel.open(file, StandardOpenOption.READ), WINDOW_SIZE);
+	}
+
+	private static byte[] readAll(InputStream in, int bufferSize) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[bufferSize];
+		int n;
+		while ((n = in.read(buffer, 0, buffer.length)) != -1) {
+			assertTrue(n > 0);
+			out.write(buffer, 0, n);
+		}
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testReadAcrossWindows() throws IOException {
+		for (int bufferSize : new int[] { 1, 7, 100, 333, 4096 }) {
+			try (MappedFileInputStream in = open()) {
+				assertEquals(data.length, in.getLength());
+				assertArrayEquals(data, readAll(in, bufferSize));
+				assertEquals(data.length, in.getPosition());
+				assertEquals(0, in.available());
+				assertEquals(-1, in.read());
+			}
+		}
+	}
+
+	@Test
+	public void testSingleBytes() throws IOException {
+		try (MappedFileInputStream in = open()) {
+			for (int i = 0; i < data.length; i++) {
+				assertEquals(data.length - i, in.available());
+				assertEquals(data[i] & 0xff, in.read());
+			}
+			assertEquals(-1, in.read());
+		}
+	}
+
+	@Test
+	public void testMarkAndResetAcrossWindows() throws IOException {
+		try (MappedFileInputStream in = open()) {
+			assertTrue(in.markSupported());
+			in.skip(150);
+			in.mark(0);
+			byte[] first = new byte[500];
+			int n = 0;
+			while (n < first.length) {
+				n += in.read(first, n, first.length - n);
+			}
+			assertArrayEquals(Arrays.copyOfRange(data, 150, 650), first);
+
+			// Back to a window that is no longer mapped
+			in.reset();
+			assertEquals(150, in.getPosition());
+			assertArrayEquals(Arrays.copyOfRange(data, 150, data.length), readAll(in, 64));
+
+			// And again from the end of the file
+			in.reset();
+			assertEquals(data[150] & 0xff, in.read());
+		}
+	}
+
+	@Test
+	public void testSkip() throws IOException {
+		try (MappedFileInputStream in = open()) {
+			assertEquals(0, in.skip(0));
+			// Within the window, then over several windows
+			assertEquals(30, in.skip(30));
+			assertEquals(data[30] & 0xff, in.read());
+			assertEquals(420, in.skip(420));
+			assertEquals(451, in.getPosition());
+			assertEquals(data[451] & 0xff, in.read());
+			assertEquals(data.length - 452, in.available());
+
+			// Not past the end
+			assertEquals(data.length - 452, in.skip(10000));
+			assertEquals(0, in.skip(1));
+			assertEquals(-1, in.read());
+		}
+	}
+
+	@Test
+	public void testChannelPosition() throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		channel.position(250);
+		try (MappedFileInputStream in = new MappedFileInputStream(channel, WINDOW_SIZE)) {
+			assertEquals(250, in.getPosition());
+			assertArrayEquals(Arrays.copyOfRange(data, 250, data.length), readAll(in, 90));
+		}
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		Files.write(file, new byte[0]);
+		try (MappedFileInputStream in = open()) {
+			assertEquals(0, in.getLength());
+			assertEquals(0, in.available());
+			assertEquals(-1, in.read());
+			assertEquals(-1, in.read(new byte[10], 0, 10));
+		}
+	}
+
+	@Test
+	public void testDefaultWindow() throws IOException {
+		try (MappedFileInputStream in = new MappedFileInputStream(FileChannel.open(file, StandardOpenOption.READ))) {
+			assertArrayEquals(data, readAll(in, 256));
+		}
+	}
+}
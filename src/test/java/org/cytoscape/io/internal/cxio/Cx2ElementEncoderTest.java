@@ -0,0 +1,211 @@
+package org.cytoscape.io.internal.cxio;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cytoscape.ding.NetworkViewTestSupport;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.junit.Before;
+import org.junit.Test;
+import org.ndexbio.cx2.aspect.element.core.CxEdge;
+import org.ndexbio.cx2.aspect.element.core.CxNode;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares the CX2 nodes and edges written from the rows with the CxNode and CxEdge elements
+ * the exporter used to build for them
+ */
+public class Cx2ElementEncoderTest {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private CyNetwork network;
+	private CyNetworkView view;
+
+	@Before
+	public void createNetwork() {
+		NetworkViewTestSupport support = new NetworkViewTestSupport();
+		network = support.getNetworkFactory().createNetwork();
+		CyTable nodes = network.getDefaultNodeTable();
+		nodes.createColumn("rank", Integer.class, false);
+		nodes.createColumn("score", Double.class, false);
+		nodes.createColumn("flag", Boolean.class, false);
+		nodes.createColumn("big", Long.class, false);
+		nodes.createColumn("text", String.class, false);
+		nodes.createColumn(CxUtil.REPRESENTS, String.class, false);
+		nodes.createListColumn("tags", String.class, false);
+		nodes.createListColumn("counts", Integer.class, false);
+		CyTable edges = network.getDefaultEdgeTable();
+		edges.createColumn("weight", Double.class, false);
+		edges.createColumn(CxUtil.sourceNodeMappingPrefix + "x", String.class, false);
+
+		CyNode previous = null;
+		for (int i = 0; i < 40; i++) {
+			CyNode node = network.addNode();
+			CyRow row = network.getRow(node);
+			row.set(CyNetwork.NAME, "node \"" + i + "\"");
+			row.set(CyNetwork.SELECTED, i % 4 == 0);
+			row.set("rank", i % 3 == 0 ? 7 : i);
+			// Not finite values are left out
+			row.set("score", i % 5 == 0 ? Double.NaN : i % 7 == 0 ? Double.POSITIVE_INFINITY : i / 3.0);
+			row.set("flag", i % 2 == 0);
+			if (i % 6 != 0) {
+				row.set("big", (1L << 40) + i);
+				row.set("text", i % 4 == 1 ? "" : "text \u00e9 " + i);
+				row.set(CxUtil.REPRESENTS, "r" + i);
+				row.set("tags", i % 4 == 2 ? Collections.emptyList() : Arrays.asList("t" + (i % 3), "u"));
+				row.set("counts", Arrays.asList(i, -i));
+			}
+			if (previous != null) {
+				CyEdge edge = network.addEdge(previous, node, true);
+				CyRow edgeRow = network.getRow(edge);
+				if (i % 4 != 0) {
+					// The others only have the default columns
+					edgeRow.set(CyNetwork.NAME, "edge " + i);
+					edgeRow.set(CyEdge.INTERACTION, i % 2 == 0 ? "pp" : "pd");
+					edgeRow.set("weight", i % 3 == 0 ? 1.0 : i * 0.5);
+					edgeRow.set(CxUtil.sourceNodeMappingPrefix + "x", "left out");
+				}
+			}
+			previous = node;
+		}
+
+		view = support.getNetworkViewFactory().createNetworkView(network);
+		int i = 0;
+		for (CyNode node : network.getNodeList()) {
+			View<CyNode> nodeView = view.getNodeView(node);
+			nodeView.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, i * 1.5);
+			nodeView.setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, -i / 7.0);
+			nodeView.setVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION, (double) (i % 2));
+			i++;
+		}
+	}
+
+	/**
+	 * The attributes the exporter used to collect for a row
+	 */
+	private static LinkedHashMap<String, Object> getAttributes(CyRow row, Collection<String> columnFilter,
+			Map<String, Object> defaults, String... excludedPrefixes) {
+		LinkedHashMap<String, Object> attrs = new LinkedHashMap<>();
+		for (Map.Entry<String, Object> e : row.getAllValues().entrySet()) {
+			String name = e.getKey();
+			Object value = e.getValue();
+			if (value == null || (value instanceof Double && !Double.isFinite((Double) value))) {
+				continue;
+			}
+			if (Settings.isIgnore(name, Settings.IGNORE_NODE_ATTRIBUTES, value)
+					|| (columnFilter != null && !columnFilter.contains(name)) || value.equals(defaults.get(name))) {
+				continue;
+			}
+			if (Arrays.stream(excludedPrefixes).anyMatch(name::startsWith)) {
+				continue;
+			}
+			attrs.put(name, value);
+		}
+		return attrs;
+	}
+
+	private void assertNodes(Collection<String> columnFilter, Map<String, Object> defaults, boolean withView,
+			boolean zUsed) throws IOException {
+		CyTable table = network.getDefaultNodeTable();
+		Cx2ColumnPlan columns = new Cx2ColumnPlan(table, Settings.IGNORE_NODE_ATTRIBUTES, columnFilter, defaults);
+		Cx2ElementEncoder.Node encoded = new Cx2ElementEncoder.Node(columns, zUsed);
+
+		long id = 0;
+		for (CyNode node : network.getNodeList()) {
+			CyRow row = table.getRow(node.getSUID());
+			CxNode expected = new CxNode(id, getAttributes(row, columnFilter, defaults));
+			View<CyNode> nodeView = withView ? view.getNodeView(node) : null;
+			if (nodeView != null) {
+				expected.setX(nodeView.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION));
+				expected.setY(nodeView.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION));
+				if (zUsed) {
+					expected.setZ(nodeView.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION));
+				}
+			}
+			// The same instance is written for every node
+			assertEquals(mapper.writeValueAsString(expected),
+					mapper.writeValueAsString(encoded.set(id, row, nodeView)));
+			id++;
+		}
+	}
+
+	private void assertEdges(Collection<String> columnFilter, Map<String, Object> defaults) throws IOException {
+		CyTable table = network.getDefaultEdgeTable();
+		Cx2ColumnPlan columns = new Cx2ColumnPlan(table, Settings.IGNORE_NODE_ATTRIBUTES, columnFilter, defaults,
+				CxUtil.sourceNodeMappingPrefix, CxUtil.targetNodeMappingPrefix);
+		Cx2ElementEncoder.Edge encoded = new Cx2ElementEncoder.Edge(columns);
+
+		long id = 100;
+		for (CyEdge edge : network.getEdgeList()) {
+			CyRow row = table.getRow(edge.getSUID());
+			CxEdge expected = new CxEdge(id, id - 100, id - 99);
+			LinkedHashMap<String, Object> attrs = getAttributes(row, columnFilter, defaults,
+					CxUtil.sourceNodeMappingPrefix, CxUtil.targetNodeMappingPrefix);
+			if (!attrs.isEmpty()) {
+				expected.setAttributes(attrs);
+			}
+			assertEquals(mapper.writeValueAsString(expected),
+					mapper.writeValueAsString(encoded.set(id, id - 100, id - 99, row)));
+			id++;
+		}
+	}
+
+	@Test
+	public void testNodes() throws IOException {
+		assertNodes(null, Collections.emptyMap(), false, false);
+	}
+
+	@Test
+	public void testNodesWithView() throws IOException {
+		assertNodes(null, Collections.emptyMap(), true, false);
+		assertNodes(null, Collections.emptyMap(), true, true);
+	}
+
+	@Test
+	public void testNodesWithDeclaredDefaults() throws IOException {
+		Map<String, Object> defaults = new HashMap<>();
+		defaults.put("rank", 7);
+		defaults.put("flag", false);
+		defaults.put("tags", Arrays.asList("t1", "u"));
+		defaults.put("text", "not used");
+		assertNodes(null, defaults, true, false);
+	}
+
+	@Test
+	public void testNodeColumnFilter() throws IOException {
+		List<String> filter = Arrays.asList(CyNetwork.NAME, "score", "counts", CxUtil.REPRESENTS);
+		assertNodes(filter, Collections.emptyMap(), false, false);
+		assertNodes(Collections.emptyList(), Collections.emptyMap(), false, false);
+	}
+
+	@Test
+	public void testEdges() throws IOException {
+		assertEdges(null, Collections.emptyMap());
+	}
+
+	@Test
+	public void testEdgesWithDeclaredDefaults() throws IOException {
+		Map<String, Object> defaults = new HashMap<>();
+		defaults.put("weight", 1.0);
+		defaults.put(CyEdge.INTERACTION, "pp");
+		assertEdges(null, defaults);
+		assertEdges(Arrays.asList("weight"), defaults);
+	}
+}
@@ -0,0 +1,116 @@
+package org.cytoscape.io.internal.cxio;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.ndexbio.cxio.aspects.datamodels.ATTRIBUTE_DATA_TYPE;
+import org.ndexbio.cxio.aspects.datamodels.AttributesAspectUtils;
+import org.ndexbio.cxio.aspects.datamodels.EdgeAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodeAttributesElement;
+import org.ndexbio.cxio.aspects.writers.NodeAttributesFragmentWriter;
+import org.ndexbio.cxio.core.CxWriter;
+import org.ndexbio.cxio.core.interfaces.AspectElement;
+import org.ndexbio.cxio.util.JsonWriter;
+
+public class CxAttributeEncoderTest {
+
+	private static final List<Object> VALUES = Arrays.asList(
+			"plain", "quote \" and \\ backslash", "unicode \u00e9\u4e2d \n tab\t", "",
+			5, -12, 1L << 40, 0.1, 1e300, Double.NaN, true, false,
+			Arrays.asList("a", "b\"c"), Arrays.asList(1, 2, 3), Arrays.asList(1L << 40, -1L),
+			Arrays.asList(0.5, 2.0), Arrays.asList(true, false));
+
+	private static byte[] getJson(AspectElement e) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JsonWriter writer = JsonWriter.createInstance(out, false);
+		e.write(writer);
+		writer.close();
+		return out.toByteArray();
+	}
+
+	/**
+	 * The value as the exporter used to hand it to the cxio elements
+	 */
+	private static List<String> toStrings(Object value) {
+		List<String> strings = new ArrayList<>();
+		for (Object v : (List<?>) value) {
+			strings.add(String.valueOf(v));
+		}
+		return strings;
+	}
+
+	private static NodeAttributesElement newNodeAttributesElement(Long subnetworkId, long id, String name, Object value,
+			ATTRIBUTE_DATA_TYPE type) {
+		return type.isSingleValueType()
+				? new NodeAttributesElement(subnetworkId, id, name, String.valueOf(value), type)
+				: new NodeAttributesElement(subnetworkId, id, name, toStrings(value), type);
+	}
+
+	private static EdgeAttributesElement newEdgeAttributesElement(Long subnetworkId, long id, String name, Object value,
+			ATTRIBUTE_DATA_TYPE type) {
+		return type.isSingleValueType()
+				? new EdgeAttributesElement(subnetworkId, id, name, String.valueOf(value), type)
+				: new EdgeAttributesElement(subnetworkId, id, name, toStrings(value), type);
+	}
+
+	@Test
+	public void testNodeAttributesMatchCxio() throws IOException {
+		CxAttributeEncoder.NodeAttribute attribute = new CxAttributeEncoder.NodeAttribute();
+		for (Long subnetworkId : Arrays.asList(null, 52L)) {
+			for (Object value : VALUES) {
+				ATTRIBUTE_DATA_TYPE type = AttributesAspectUtils.determineDataType(value);
+				String name = "name \"" + type + "\"";
+				byte[] expected = getJson(newNodeAttributesElement(subnetworkId, 7L, name, value, type));
+				// The same instance is reused for every cell
+				assertArrayEquals(String.valueOf(value), expected,
+						getJson(attribute.set(subnetworkId, 7L, name, value, type)));
+			}
+		}
+	}
+
+	@Test
+	public void testEdgeAttributesMatchCxio() throws IOException {
+		CxAttributeEncoder.EdgeAttribute attribute = new CxAttributeEncoder.EdgeAttribute();
+		for (Long subnetworkId : Arrays.asList(null, 52L)) {
+			for (Object value : VALUES) {
+				ATTRIBUTE_DATA_TYPE type = AttributesAspectUtils.determineDataType(value);
+				byte[] expected = getJson(newEdgeAttributesElement(subnetworkId, 1L << 33, "interaction", value, type));
+				assertArrayEquals(String.valueOf(value), expected,
+						getJson(attribute.set(subnetworkId, 1L << 33, "interaction", value, type)));
+			}
+		}
+	}
+
+	/**
+	 * The document with the element written through a CxWriter, as the exporter does
+	 */
+	private static byte[] writeDocument(AspectElement element) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CxWriter writer = CxWriter.createInstance(out, false);
+		writer.addAspectFragmentWriter(NodeAttributesFragmentWriter.createInstance());
+		writer.start();
+		writer.startAspectFragment(NodeAttributesElement.ASPECT_NAME);
+		writer.writeAspectElement(element);
+		writer.endAspectFragment();
+		writer.end(true, null);
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testWrittenByCxWriter() throws IOException {
+		// The encoder relies on the CxWriter calling write(JsonWriter) on the element
+		CxAttributeEncoder.NodeAttribute attribute = new CxAttributeEncoder.NodeAttribute();
+		for (Object value : VALUES) {
+			ATTRIBUTE_DATA_TYPE type = AttributesAspectUtils.determineDataType(value);
+			assertArrayEquals(String.valueOf(value),
+					writeDocument(newNodeAttributesElement(3L, 4L, "probe", value, type)),
+					writeDocument(attribute.set(3L, 4L, "probe", value, type)));
+		}
+	}
+}